@@ -0,0 +1,429 @@
+package com.gentics.odb;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabaseInternal;
+import com.orientechnologies.orient.core.db.ODatabaseLifecycleListener;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.hook.ODocumentHookAbstract;
+import com.orientechnologies.orient.core.hook.ORecordHook;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OCompositeKey;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.tx.OTransaction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
+
+/**
+ * Read-through cache for edge lookups via a composite index whose first field is the out vertex, like
+ * {@code tx.getEdges("e.has_test_edge_branch_type_lang", new OCompositeKey(nodeId, branch, type, lang))}. The cache maps the composite key to
+ * the ids of the edges and evicts the least recently used keys when the maximum size is reached.
+ *
+ * The cache registers a record hook on every session of the database. When an edge of the indexed class was created, deleted or its indexed
+ * fields were updated, all keys of the out vertex of the edge are invalidated once the change was committed. Lookups within transactions
+ * which contain uncommitted changes bypass the cache and query the index, so that they see their own changes.
+ */
+public class EdgeLookupCache implements AutoCloseable {
+
+	private static final String OUT = "out";
+
+	private final String databaseName;
+
+	private final String edgeClass;
+
+	private final String indexName;
+
+	private final int maxSize;
+
+	private final Map<OCompositeKey, List<ORID>> entries;
+
+	private final Map<ORID, Set<OCompositeKey>> keysByNode = new HashMap<>();
+
+	private final ODatabaseLifecycleListener listener = new HookInstaller();
+
+	/**
+	 * Incremented on each invalidation. Loaded entries are only stored when no invalidation happened during the load.
+	 */
+	private long generation;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder bypasses = new LongAdder();
+
+	private final LongAdder invalidations = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Create the cache.
+	 *
+	 * @param databaseName
+	 *            Name of the database whose sessions are watched
+	 * @param edgeClass
+	 *            Class of the indexed edges
+	 * @param indexName
+	 *            Composite index whose first field is the out vertex
+	 * @param maxSize
+	 *            Maximum amount of cached keys
+	 */
+	public EdgeLookupCache(String databaseName, String edgeClass, String indexName, int maxSize) {
+		this.databaseName = databaseName;
+		this.edgeClass = edgeClass;
+		this.indexName = indexName;
+		this.maxSize = maxSize;
+		this.entries = new LinkedHashMap<OCompositeKey, List<ORID>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<OCompositeKey, List<ORID>> eldest) {
+				if (size() > EdgeLookupCache.this.maxSize) {
+					removeNodeKey(eldest.getKey());
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Register the invalidation hook on all sessions of the database which are opened afterwards. Must be called before the sessions which
+	 * modify the edges are opened.
+	 *
+	 * @return Fluent API
+	 */
+	public EdgeLookupCache install() {
+		Orient.instance().addDbLifecycleListener(listener);
+		return this;
+	}
+
+	/**
+	 * Register the invalidation hook on an already opened session.
+	 *
+	 * @param db
+	 */
+	public void register(ODatabaseDocument db) {
+		for (ORecordHook hook : db.getHooks().keySet()) {
+			if (hook instanceof InvalidationHook && ((InvalidationHook) hook).getCache() == this) {
+				return;
+			}
+		}
+		db.registerHook(new InvalidationHook(db));
+	}
+
+	/**
+	 * Return the edges for the key.
+	 *
+	 * @param tx
+	 * @param key
+	 *            Composite key whose first key is the id of the out vertex
+	 * @return
+	 */
+	public List<Edge> getEdges(OrientBaseGraph tx, OCompositeKey key) {
+		if (hasUncommittedChanges(tx)) {
+			bypasses.increment();
+			List<Edge> edges = new ArrayList<>();
+			tx.getEdges(indexName, key).forEach(edges::add);
+			return edges;
+		}
+		List<ORID> ids = getIds(tx, key);
+		List<Edge> edges = new ArrayList<>(ids.size());
+		for (ORID id : ids) {
+			Edge edge = tx.getEdge(id);
+			// The edge may have been deleted after the lookup
+			if (edge != null) {
+				edges.add(edge);
+			}
+		}
+		return edges;
+	}
+
+	private List<ORID> getIds(OrientBaseGraph tx, OCompositeKey key) {
+		long loadGeneration;
+		synchronized (this) {
+			List<ORID> ids = entries.get(key);
+			if (ids != null) {
+				hits.increment();
+				return ids;
+			}
+			loadGeneration = generation;
+		}
+		misses.increment();
+		List<ORID> ids = load(tx, key);
+		synchronized (this) {
+			if (loadGeneration == generation) {
+				entries.put(key, ids);
+				ORID node = nodeOf(key);
+				if (node != null) {
+					keysByNode.computeIfAbsent(node, k -> new HashSet<>()).add(key);
+				}
+			}
+		}
+		return ids;
+	}
+
+	@SuppressWarnings("deprecation")
+	private List<ORID> load(OrientBaseGraph tx, OCompositeKey key) {
+		Object result = tx.getRawGraph().getMetadata().getIndexManager().getIndex(indexName).get(key);
+		List<ORID> ids = new ArrayList<>();
+		if (result instanceof Collection) {
+			for (Object entry : (Collection<?>) result) {
+				ids.add(((OIdentifiable) entry).getIdentity());
+			}
+		} else if (result instanceof OIdentifiable) {
+			ids.add(((OIdentifiable) result).getIdentity());
+		}
+		return Collections.unmodifiableList(ids);
+	}
+
+	private static boolean hasUncommittedChanges(OrientBaseGraph tx) {
+		return tx.getRawGraph().getTransaction().getEntryCount() > 0;
+	}
+
+	private static ORID nodeOf(OCompositeKey key) {
+		Object node = key.getKeys().isEmpty() ? null : key.getKeys().get(0);
+		return node instanceof OIdentifiable ? ((OIdentifiable) node).getIdentity() : null;
+	}
+
+	private void removeNodeKey(OCompositeKey key) {
+		ORID node = nodeOf(key);
+		Set<OCompositeKey> keys = node == null ? null : keysByNode.get(node);
+		if (keys != null) {
+			keys.remove(key);
+			if (keys.isEmpty()) {
+				keysByNode.remove(node);
+			}
+		}
+	}
+
+	/**
+	 * Remove all keys of the vertex.
+	 *
+	 * @param node
+	 */
+	public synchronized void invalidate(ORID node) {
+		generation++;
+		invalidations.increment();
+		Set<OCompositeKey> keys = keysByNode.remove(node);
+		if (keys != null) {
+			entries.keySet().removeAll(keys);
+		}
+	}
+
+	public synchronized void clear() {
+		generation++;
+		entries.clear();
+		keysByNode.clear();
+	}
+
+	/**
+	 * Stop registering the hook on new sessions and clear the cache. Hooks of open sessions only invalidate the cleared cache.
+	 */
+	@Override
+	public void close() {
+		Orient.instance().removeDbLifecycleListener(listener);
+		clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Return the amount of lookups which bypassed the cache because the transaction contained uncommitted changes.
+	 *
+	 * @return
+	 */
+	public long getBypasses() {
+		return bypasses.sum();
+	}
+
+	public long getInvalidations() {
+		return invalidations.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	public double getHitRatio() {
+		long lookups = getHits() + getMisses();
+		return lookups == 0 ? 0 : getHits() / (double) lookups;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Edge lookup cache {%s}: %d entries, %d hits, %d misses (%.1f%% hits), %d bypasses, %d invalidations, %d evictions",
+			indexName, size(), getHits(), getMisses(), getHitRatio() * 100, getBypasses(), getInvalidations(), getEvictions());
+	}
+
+	/**
+	 * Invalidates the keys of the out vertex after the change of an edge was committed. Updates which do not change an indexed field are
+	 * ignored. The previous out vertex of updated edges is captured before the update.
+	 */
+	private class InvalidationHook extends ODocumentHookAbstract {
+
+		/**
+		 * Out vertices of the edges whose indexed fields were changed by the current transaction. The value is null when the out vertex was not
+		 * changed.
+		 */
+		private final Map<ORID, ORID> previousNodes = new HashMap<>();
+
+		/**
+		 * Transaction which captured the previous nodes. The captured nodes of rolled back transactions are dropped when the next transaction
+		 * updates an edge.
+		 */
+		private OTransaction owner;
+
+		private Set<String> indexFields;
+
+		InvalidationHook(ODatabaseDocument db) {
+			super(db);
+			setIncludeClasses(edgeClass);
+		}
+
+		EdgeLookupCache getCache() {
+			return EdgeLookupCache.this;
+		}
+
+		@Override
+		public DISTRIBUTED_EXECUTION_MODE getDistributedExecutionMode() {
+			return DISTRIBUTED_EXECUTION_MODE.BOTH;
+		}
+
+		@Override
+		public RESULT onRecordBeforeUpdate(ODocument doc) {
+			Map<ORID, ORID> captured = capturedNodes();
+			if (!changesIndex(doc)) {
+				return RESULT.RECORD_NOT_CHANGED;
+			}
+			Object previous = doc.getOriginalValue(OUT);
+			captured.put(doc.getIdentity(), previous instanceof OIdentifiable ? ((OIdentifiable) previous).getIdentity() : null);
+			return RESULT.RECORD_NOT_CHANGED;
+		}
+
+		@Override
+		public void onRecordAfterCreate(ODocument doc) {
+			invalidateOut(doc);
+		}
+
+		@Override
+		public void onRecordAfterUpdate(ODocument doc) {
+			Map<ORID, ORID> captured = capturedNodes();
+			if (!captured.containsKey(doc.getIdentity())) {
+				return;
+			}
+			ORID previous = captured.remove(doc.getIdentity());
+			if (previous != null) {
+				invalidate(previous);
+			}
+			invalidateOut(doc);
+		}
+
+		@Override
+		public void onRecordUpdateFailed(ODocument doc) {
+			capturedNodes().remove(doc.getIdentity());
+		}
+
+		@Override
+		public void onRecordAfterDelete(ODocument doc) {
+			invalidateOut(doc);
+		}
+
+		/**
+		 * Return the nodes which were captured by the current transaction.
+		 */
+		private Map<ORID, ORID> capturedNodes() {
+			OTransaction tx = database.getTransaction();
+			if (owner != tx) {
+				previousNodes.clear();
+				owner = tx;
+			}
+			return previousNodes;
+		}
+
+		/**
+		 * Check whether the update changes a field of the index. All updates are considered when the index is unknown.
+		 */
+		private boolean changesIndex(ODocument doc) {
+			if (indexFields == null) {
+				OIndex index = ((ODatabaseDocumentInternal) database).getMetadata().getIndexManagerInternal()
+					.getIndex((ODatabaseDocumentInternal) database, indexName);
+				if (index == null) {
+					return true;
+				}
+				indexFields = new HashSet<>(index.getDefinition().getFields());
+			}
+			for (String field : doc.getDirtyFields()) {
+				if (indexFields.contains(field)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void invalidateOut(ODocument doc) {
+			Object out = doc.rawField(OUT);
+			if (out instanceof OIdentifiable) {
+				invalidate(((OIdentifiable) out).getIdentity());
+			} else {
+				// The out vertex is unknown
+				clear();
+			}
+		}
+	}
+
+	/**
+	 * Registers the invalidation hook on the sessions of the database.
+	 */
+	private class HookInstaller implements ODatabaseLifecycleListener {
+
+		@Override
+		public void onCreate(ODatabaseInternal db) {
+			onOpen(db);
+		}
+
+		@Override
+		public void onOpen(ODatabaseInternal db) {
+			if (databaseName.equals(db.getName()) && db instanceof ODatabaseDocument) {
+				register((ODatabaseDocument) db);
+			}
+		}
+
+		@Override
+		public void onClose(ODatabaseInternal db) {
+		}
+
+		@Override
+		public void onDrop(ODatabaseInternal db) {
+		}
+
+		@Override
+		public void onLocalNodeConfigurationRequest(ODocument iConfiguration) {
+		}
+	}
+
+}
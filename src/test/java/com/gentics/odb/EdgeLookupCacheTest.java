@@ -0,0 +1,215 @@
+package com.gentics.odb;
+
+import static com.gentics.odb.IndexRegression2Test.BRANCH_KEY;
+import static com.gentics.odb.IndexRegression2Test.BRANCH_UUID;
+import static com.gentics.odb.IndexRegression2Test.EDGE_LABEL;
+import static com.gentics.odb.IndexRegression2Test.INDEX_NAME;
+import static com.gentics.odb.IndexRegression2Test.LANGUAGE_KEY;
+import static com.gentics.odb.IndexRegression2Test.LANG_EN;
+import static com.gentics.odb.IndexRegression2Test.TYPE_DRAFT;
+import static com.gentics.odb.IndexRegression2Test.TYPE_INITIAL;
+import static com.gentics.odb.IndexRegression2Test.TYPE_KEY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.orientechnologies.orient.core.index.OCompositeKey;
+import com.orientechnologies.orient.core.metadata.schema.OClass.INDEX_TYPE;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+
+public class EdgeLookupCacheTest extends AbstractOrientTest {
+
+	private OrientGraphFactory factory;
+
+	private EdgeLookupCache cache;
+
+	@Before
+	public void setupDB() {
+		String name = "tinkerpop" + System.currentTimeMillis();
+		// The hook must be registered on all sessions, including the pooled ones
+		cache = new EdgeLookupCache(name, EDGE_LABEL, INDEX_NAME, 100).install();
+		factory = StorageProfile.current().createFactory(name);
+		addEdgeType(factory::getNoTx, EDGE_LABEL, null, type -> {
+			type.createProperty("out", OType.LINK);
+			type.createProperty(TYPE_KEY, OType.STRING);
+			type.createProperty(LANGUAGE_KEY, OType.STRING);
+			type.createProperty(BRANCH_KEY, OType.STRING);
+			String fields[] = { "out", BRANCH_KEY, TYPE_KEY, LANGUAGE_KEY };
+			ODocument meta = new ODocument().fields("ignoreNullValues", true);
+			type.createIndex(INDEX_NAME, INDEX_TYPE.NOTUNIQUE_HASH_INDEX.toString(), null, meta, fields);
+		});
+		addVertexType(factory::getNoTx, "NodeImpl", null, null);
+		addVertexType(factory::getNoTx, "ContentImpl", null, null);
+	}
+
+	@After
+	public void closeDB() {
+		System.out.println(cache);
+		cache.close();
+		StorageProfile.current().drop(factory);
+	}
+
+	@Test
+	public void testReadThrough() {
+		Object nodeId = addNode();
+		OCompositeKey key = key(nodeId, TYPE_INITIAL);
+		assertEquals(1, lookup(key));
+		assertEquals(1, lookup(key));
+		assertEquals(1, lookup(key(nodeId, TYPE_DRAFT)));
+		assertEquals(2, cache.getMisses());
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void testInvalidationOnCommit() {
+		Object nodeId = addNode();
+		OCompositeKey key = key(nodeId, TYPE_INITIAL);
+		assertEquals(1, lookup(key));
+
+		// Add a second edge with the same key
+		OrientGraph tx = factory.getTx();
+		try {
+			Vertex node = tx.getVertex(nodeId);
+			addEdge(node, tx.addVertex("class:ContentImpl"), TYPE_INITIAL);
+			tx.commit();
+		} finally {
+			tx.shutdown();
+		}
+		assertEquals(2, lookup(key));
+
+		// Change the type of an edge
+		tx = factory.getTx();
+		try {
+			Edge edge = tx.getVertex(nodeId).getEdges(Direction.OUT, EDGE_LABEL).iterator().next();
+			edge.setProperty(TYPE_KEY, TYPE_DRAFT);
+			tx.commit();
+		} finally {
+			tx.shutdown();
+		}
+		assertEquals(1, lookup(key));
+		assertEquals(2, lookup(key(nodeId, TYPE_DRAFT)));
+		assertTrue(cache.getInvalidations() > 0);
+	}
+
+	@Test
+	public void testUpdateOfUnindexedField() {
+		Object nodeId = addNode();
+		OCompositeKey key = key(nodeId, TYPE_INITIAL);
+		assertEquals(1, lookup(key));
+		long invalidations = cache.getInvalidations();
+
+		OrientGraph tx = factory.getTx();
+		try {
+			for (Edge edge : tx.getVertex(nodeId).getEdges(Direction.OUT, EDGE_LABEL)) {
+				edge.setProperty("comment", "not indexed");
+			}
+			tx.commit();
+		} finally {
+			tx.shutdown();
+		}
+		assertEquals("Changes of fields which are not indexed must not invalidate the keys", invalidations, cache.getInvalidations());
+		assertEquals(1, lookup(key));
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	public void testUncommittedChangesBypassCache() {
+		Object nodeId = addNode();
+		OCompositeKey key = key(nodeId, TYPE_INITIAL);
+		assertEquals(1, lookup(key));
+
+		// Same scenario as in IndexRegression2Test: the deletion must be visible within the transaction
+		OrientGraph tx = factory.getTx();
+		try {
+			Vertex node = tx.getVertex(nodeId);
+			node.getVertices(Direction.OUT, EDGE_LABEL).forEach(Vertex::remove);
+			assertEquals(0, cache.getEdges(tx, key).size());
+			assertEquals(1, cache.getBypasses());
+			tx.rollback();
+		} finally {
+			tx.shutdown();
+		}
+		assertEquals("The rollback must not change the cached result", 1, lookup(key));
+
+		tx = factory.getTx();
+		try {
+			tx.getVertex(nodeId).getVertices(Direction.OUT, EDGE_LABEL).forEach(Vertex::remove);
+			tx.commit();
+		} finally {
+			tx.shutdown();
+		}
+		assertEquals(0, lookup(key));
+	}
+
+	@Test
+	public void testEviction() {
+		EdgeLookupCache small = new EdgeLookupCache(factory.getDatabase().getName(), EDGE_LABEL, INDEX_NAME, 2);
+		Object nodeA = addNode();
+		Object nodeB = addNode();
+		OrientGraph tx = factory.getTx();
+		try {
+			small.getEdges(tx, key(nodeA, TYPE_INITIAL));
+			small.getEdges(tx, key(nodeA, TYPE_DRAFT));
+			// Keep the first key recently used
+			small.getEdges(tx, key(nodeA, TYPE_INITIAL));
+			small.getEdges(tx, key(nodeB, TYPE_INITIAL));
+			small.getEdges(tx, key(nodeA, TYPE_INITIAL));
+			small.getEdges(tx, key(nodeA, TYPE_DRAFT));
+		} finally {
+			tx.shutdown();
+		}
+		assertEquals(2, small.size());
+		assertEquals(2, small.getEvictions());
+		assertEquals(2, small.getHits());
+	}
+
+	private int lookup(OCompositeKey key) {
+		OrientGraph tx = factory.getTx();
+		try {
+			List<Edge> edges = cache.getEdges(tx, key);
+			for (Edge edge : edges) {
+				assertEquals(key.getKeys().get(2), edge.getProperty(TYPE_KEY));
+			}
+			return edges.size();
+		} finally {
+			tx.shutdown();
+		}
+	}
+
+	private Object addNode() {
+		OrientGraph tx = factory.getTx();
+		try {
+			Vertex node = tx.addVertex("class:NodeImpl");
+			addEdge(node, tx.addVertex("class:ContentImpl"), TYPE_INITIAL);
+			addEdge(node, tx.addVertex("class:ContentImpl"), TYPE_DRAFT);
+			tx.commit();
+			return node.getId();
+		} finally {
+			tx.shutdown();
+		}
+	}
+
+	private void addEdge(Vertex node, Vertex content, String type) {
+		Edge edge = node.addEdge(EDGE_LABEL, content);
+		edge.setProperty(TYPE_KEY, type);
+		edge.setProperty(LANGUAGE_KEY, LANG_EN);
+		edge.setProperty(BRANCH_KEY, BRANCH_UUID);
+	}
+
+	private static OCompositeKey key(Object nodeId, String type) {
+		return new OCompositeKey(nodeId, BRANCH_UUID, type, LANG_EN);
+	}
+
+}
@@ -0,0 +1,233 @@
+package com.gentics.odb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Minimal pull reader for the JSON of database exports. The reader only splits the export into its top-level sections and the elements of
+ * arrays and returns them as raw JSON text, thus only a single element has to be kept in memory. Empty array elements (e.g. {@code [a,,b]})
+ * which are written by the database export are skipped.
+ */
+public class ExportJsonReader implements Closeable {
+
+	private final Reader reader;
+
+	private final char[] buffer = new char[64 * 1024];
+
+	private int pos;
+
+	private int limit;
+
+	private long charsRead;
+
+	public ExportJsonReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Consume the opening brace of the top-level object.
+	 *
+	 * @throws IOException
+	 */
+	public void beginObject() throws IOException {
+		expect('{');
+	}
+
+	/**
+	 * Return the next key of the current object and consume the colon which follows the key.
+	 *
+	 * @return Key or null if the end of the object was reached
+	 * @throws IOException
+	 */
+	public String nextKey() throws IOException {
+		int c = skipSeparators();
+		if (c == '}') {
+			read();
+			return null;
+		}
+		StringBuilder key = new StringBuilder();
+		readValue(key);
+		expect(':');
+		// Remove the quotes
+		return key.substring(1, key.length() - 1);
+	}
+
+	/**
+	 * Return the next value as raw JSON.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	public String nextValue() throws IOException {
+		skipWhitespace();
+		StringBuilder value = new StringBuilder();
+		readValue(value);
+		return value.toString();
+	}
+
+	/**
+	 * Skip the next value without buffering it.
+	 *
+	 * @throws IOException
+	 */
+	public void skipValue() throws IOException {
+		skipWhitespace();
+		readValue(null);
+	}
+
+	/**
+	 * Consume the opening bracket of an array.
+	 *
+	 * @throws IOException
+	 */
+	public void beginArray() throws IOException {
+		expect('[');
+	}
+
+	/**
+	 * Return the next element of the current array as raw JSON.
+	 *
+	 * @return Element or null if the end of the array was reached
+	 * @throws IOException
+	 */
+	public String nextElement() throws IOException {
+		int c = skipSeparators();
+		if (c == ']') {
+			read();
+			return null;
+		}
+		StringBuilder value = new StringBuilder();
+		readValue(value);
+		return value.toString();
+	}
+
+	/**
+	 * Return the amount of characters which have been consumed so far.
+	 *
+	 * @return
+	 */
+	public long getCharsRead() {
+		return charsRead - (limit - pos);
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	/**
+	 * Read a complete value (string, object, array or literal) and append it to the target.
+	 */
+	private void readValue(StringBuilder target) throws IOException {
+		int c = peek();
+		if (c == '"') {
+			readString(target);
+			return;
+		}
+		if (c == '{' || c == '[') {
+			int depth = 0;
+			while (true) {
+				c = peek();
+				if (c == '"') {
+					readString(target);
+					continue;
+				}
+				read();
+				if (c < 0) {
+					throw new IOException("Unexpected end of input at char " + getCharsRead());
+				}
+				append(target, c);
+				if (c == '{' || c == '[') {
+					depth++;
+				} else if (c == '}' || c == ']') {
+					if (--depth == 0) {
+						return;
+					}
+				}
+			}
+		}
+		// Literal like numbers, true, false, null
+		while (true) {
+			c = peek();
+			if (c < 0 || c == ',' || c == '}' || c == ']' || c == ':' || Character.isWhitespace(c)) {
+				return;
+			}
+			append(target, read());
+		}
+	}
+
+	private void readString(StringBuilder target) throws IOException {
+		append(target, read());
+		while (true) {
+			int c = read();
+			if (c < 0) {
+				throw new IOException("Unterminated string at char " + getCharsRead());
+			}
+			append(target, c);
+			if (c == '\\') {
+				append(target, read());
+			} else if (c == '"') {
+				return;
+			}
+		}
+	}
+
+	private static void append(StringBuilder target, int c) {
+		if (target != null) {
+			target.append((char) c);
+		}
+	}
+
+	private int skipSeparators() throws IOException {
+		int c;
+		while ((c = peek()) == ',' || Character.isWhitespace(c)) {
+			read();
+		}
+		if (c < 0) {
+			throw new IOException("Unexpected end of input at char " + getCharsRead());
+		}
+		return c;
+	}
+
+	private void skipWhitespace() throws IOException {
+		while (Character.isWhitespace(peek())) {
+			read();
+		}
+	}
+
+	private void expect(char expected) throws IOException {
+		skipWhitespace();
+		int c = read();
+		if (c != expected) {
+			throw new IOException("Expected {" + expected + "} but found {" + (c < 0 ? "EOF" : String.valueOf((char) c)) + "} at char "
+				+ getCharsRead());
+		}
+	}
+
+	private int peek() throws IOException {
+		if (pos == limit && !fill()) {
+			return -1;
+		}
+		return buffer[pos];
+	}
+
+	private int read() throws IOException {
+		if (pos == limit && !fill()) {
+			return -1;
+		}
+		return buffer[pos++];
+	}
+
+	private boolean fill() throws IOException {
+		int n = reader.read(buffer, 0, buffer.length);
+		if (n <= 0) {
+			return false;
+		}
+		pos = 0;
+		limit = n;
+		charsRead += n;
+		return true;
+	}
+
+}
@@ -0,0 +1,356 @@
+package com.gentics.odb;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+import org.apache.commons.lang3.RandomStringUtils;
+
+import com.gentics.odb.RecordRegistry.RecordInfo;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+import com.tinkerpop.blueprints.impls.orient.OrientVertex;
+
+/**
+ * Workload which creates records with text content and afterwards replaces or updates random records with records of a different size. The
+ * operations are executed by concurrent workers which share a {@link RecordRegistry}.
+ */
+public class FragmentationWorkload {
+
+	public enum Operation {
+		/**
+		 * Delete the record and create a new one.
+		 */
+		DELETE_CREATE,
+
+		/**
+		 * Update the text of the record in-place.
+		 */
+		UPDATE,
+
+		/**
+		 * Remove all properties of the record and set the new text.
+		 */
+		PURGE_REUSE
+	}
+
+	private final OrientGraphFactory factory;
+
+	private final String contentType;
+
+	private int threads = 1;
+
+	private int initialRecords = 5_000;
+
+	private int initialSize = 1024;
+
+	private long operations = 50_000;
+
+	private SizeDistribution distribution = SizeDistribution.shrink(0.5);
+
+	private final Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+
+	private long progressInterval = 5_000;
+
+	private LongConsumer progressListener;
+
+	private RecordRegistry registry;
+
+	private String content;
+
+	public FragmentationWorkload(OrientGraphFactory factory, String contentType) {
+		this.factory = factory;
+		this.contentType = contentType;
+		mix.put(Operation.DELETE_CREATE, 1);
+	}
+
+	public FragmentationWorkload setThreads(int threads) {
+		this.threads = threads;
+		return this;
+	}
+
+	public FragmentationWorkload setInitialRecords(int initialRecords) {
+		this.initialRecords = initialRecords;
+		return this;
+	}
+
+	public FragmentationWorkload setInitialSize(int initialSize) {
+		this.initialSize = initialSize;
+		return this;
+	}
+
+	public FragmentationWorkload setOperations(long operations) {
+		this.operations = operations;
+		return this;
+	}
+
+	public FragmentationWorkload setDistribution(SizeDistribution distribution) {
+		this.distribution = distribution;
+		return this;
+	}
+
+	/**
+	 * Set the weights of the operations. Operations without weight will not be executed.
+	 *
+	 * @param mix
+	 * @return Fluent API
+	 */
+	public FragmentationWorkload setMix(Map<Operation, Integer> mix) {
+		this.mix.clear();
+		this.mix.putAll(mix);
+		return this;
+	}
+
+	/**
+	 * Set a listener which is invoked with the amount of executed operations every interval operations.
+	 *
+	 * @param interval
+	 * @param listener
+	 * @return Fluent API
+	 */
+	public FragmentationWorkload setProgressListener(long interval, LongConsumer listener) {
+		this.progressInterval = interval;
+		this.progressListener = listener;
+		return this;
+	}
+
+	/**
+	 * Return the registry which contains the records. The registry is created by {@link #populate()}.
+	 *
+	 * @return
+	 */
+	public RecordRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Create the initial records.
+	 */
+	public void populate() {
+		registry = new RecordRegistry(initialRecords);
+		System.out.println("Creating " + initialRecords + " vertices with text size " + initialSize + " using " + threads + " threads");
+		AtomicLong created = new AtomicLong();
+		execute(initialRecords, random -> {
+			OrientGraph tx = factory.getTx();
+			try {
+				OrientVertex v = addContent(tx, initialSize);
+				tx.commit();
+				registry.add(new RecordInfo(v.getId(), initialSize));
+			} finally {
+				tx.shutdown();
+			}
+			long count = created.incrementAndGet();
+			if (count % 1000 == 0) {
+				System.out.println("Created " + count + " vertices");
+			}
+		});
+	}
+
+	/**
+	 * Execute the operations.
+	 *
+	 * @return Result of the run
+	 */
+	public Result run() {
+		List<Operation> ops = new ArrayList<>();
+		List<Integer> weights = new ArrayList<>();
+		int totalWeight = 0;
+		for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+			if (entry.getValue() > 0) {
+				ops.add(entry.getKey());
+				totalWeight += entry.getValue();
+				weights.add(totalWeight);
+			}
+		}
+		if (ops.isEmpty()) {
+			throw new IllegalStateException("No operation was configured");
+		}
+		int weightSum = totalWeight;
+
+		System.out.println("Now invoking " + operations + " operations " + mix + " with " + threads + " threads");
+		AtomicLong executed = new AtomicLong();
+		AtomicLong failed = new AtomicLong();
+		AtomicLong deleted = new AtomicLong();
+		long start = System.currentTimeMillis();
+		execute(operations, random -> {
+			int w = random.nextInt(weightSum);
+			int i = 0;
+			while (w >= weights.get(i)) {
+				i++;
+			}
+			Operation op = ops.get(i);
+			try {
+				if (apply(op, random)) {
+					deleted.incrementAndGet();
+				}
+			} catch (RuntimeException e) {
+				failed.incrementAndGet();
+				System.out.println("Operation " + op + " failed: " + e.getMessage());
+			}
+			long count = executed.incrementAndGet();
+			if (progressListener != null && count % progressInterval == 0) {
+				progressListener.accept(count);
+			}
+		});
+		long duration = Math.max(1, System.currentTimeMillis() - start);
+		return new Result(executed.get(), failed.get(), deleted.get(), duration);
+	}
+
+	/**
+	 * Apply the operation to a random record.
+	 *
+	 * @return true if a record was deleted
+	 */
+	private boolean apply(Operation op, Random random) {
+		RecordInfo info = registry.take(random);
+		if (info == null) {
+			throw new IllegalStateException("The registry contains no records");
+		}
+		int size = distribution.nextSize(info.textSize, random);
+		OrientGraph tx = factory.getTx();
+		try {
+			OrientVertex v = tx.getVertex(info.id);
+			RecordInfo newInfo;
+			switch (op) {
+			case DELETE_CREATE:
+				v.remove();
+				OrientVertex added = addContent(tx, size);
+				tx.commit();
+				newInfo = new RecordInfo(added.getId(), size);
+				break;
+			case UPDATE:
+				v.setProperty("text", getData(size));
+				tx.commit();
+				newInfo = new RecordInfo(v.getId(), size);
+				break;
+			case PURGE_REUSE:
+				for (String key : v.getPropertyKeys()) {
+					v.removeProperty(key);
+				}
+				v.setProperty("text", getData(size));
+				tx.commit();
+				newInfo = new RecordInfo(v.getId(), size);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown operation " + op);
+			}
+			registry.add(newInfo);
+			return op == Operation.DELETE_CREATE;
+		} catch (RuntimeException e) {
+			tx.rollback();
+			// Put the unchanged record back
+			registry.add(info);
+			throw e;
+		} finally {
+			tx.shutdown();
+		}
+	}
+
+	private OrientVertex addContent(OrientGraph tx, int size) {
+		OrientVertex v = tx.addVertex("class:" + contentType);
+		v.setProperty("text", getData(size));
+		return v;
+	}
+
+	private String getData(int size) {
+		return content.substring(0, size);
+	}
+
+	/**
+	 * Invoke the task count times, split across the worker threads.
+	 */
+	private void execute(long count, Task task) {
+		synchronized (this) {
+			// The distribution or the initial size may have been changed since the last run
+			int maxSize = Math.max(initialSize, distribution.maxSize(initialSize));
+			if (content == null || content.length() < maxSize) {
+				content = RandomStringUtils.randomAlphanumeric(maxSize);
+			}
+		}
+		AtomicLong remaining = new AtomicLong(count);
+		AtomicInteger workerCounter = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threads, r -> new Thread(r, "fragmentation-" + workerCounter.getAndIncrement()));
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(executor.submit(() -> {
+					Random random = ThreadLocalRandom.current();
+					while (remaining.getAndDecrement() > 0) {
+						task.run(random);
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Workload was interrupted", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Workload failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@FunctionalInterface
+	private interface Task {
+		void run(Random random);
+	}
+
+	public static class Result {
+		private final long operations;
+		private final long failed;
+		private final long deleted;
+		private final long durationMs;
+
+		public Result(long operations, long failed, long deleted, long durationMs) {
+			this.operations = operations;
+			this.failed = failed;
+			this.deleted = deleted;
+			this.durationMs = durationMs;
+		}
+
+		public long getOperations() {
+			return operations;
+		}
+
+		public long getFailed() {
+			return failed;
+		}
+
+		/**
+		 * Return the amount of deleted records.
+		 *
+		 * @return
+		 */
+		public long getDeleted() {
+			return deleted;
+		}
+
+		public long getDurationMs() {
+			return durationMs;
+		}
+
+		public double getThroughput() {
+			return operations * 1000d / durationMs;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d operations (%d failed) in %d ms: %1.2f ops/sec", operations, failed, durationMs, getThroughput());
+		}
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.gentics.odb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gentics.odb.FragmentationWorkload.Operation;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+
+public class FragmentationWorkloadTest extends AbstractOrientTest {
+
+	private static final String CONTENT_TYPE = "ContentImpl";
+	private static final int RECORDS = 200;
+
+	private OrientGraphFactory factory;
+
+	@Before
+	public void setupDB() {
+		factory = StorageProfile.current().createFactory("tinkerpop" + System.currentTimeMillis());
+		addVertexType(factory::getNoTx, CONTENT_TYPE, null, null);
+	}
+
+	@After
+	public void closeDB() {
+		StorageProfile.current().drop(factory);
+	}
+
+	@Test
+	public void testConcurrentMixedWorkload() {
+		Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+		mix.put(Operation.DELETE_CREATE, 2);
+		mix.put(Operation.UPDATE, 1);
+		mix.put(Operation.PURGE_REUSE, 1);
+		FragmentationWorkload workload = new FragmentationWorkload(factory, CONTENT_TYPE)
+			.setThreads(4)
+			.setInitialRecords(RECORDS)
+			.setInitialSize(2048)
+			.setOperations(2_000)
+			.setDistribution(SizeDistribution.zipfian(1, 4096, 1.1))
+			.setMix(mix);
+
+		workload.populate();
+		assertEquals(RECORDS, workload.getRegistry().size());
+		assertEquals(RECORDS * 2048L, workload.getRegistry().getPayloadSize());
+
+		FragmentationWorkload.Result result = workload.run();
+		System.out.println(result);
+		assertEquals(2_000, result.getOperations());
+		assertEquals(0, result.getFailed());
+		assertEquals(RECORDS, workload.getRegistry().size());
+
+		OrientGraphNoTx noTx = factory.getNoTx();
+		try {
+			assertEquals(RECORDS, noTx.countVertices(CONTENT_TYPE));
+		} finally {
+			noTx.shutdown();
+		}
+	}
+
+	@Test
+	public void testLargerDistributionAfterPopulate() {
+		FragmentationWorkload workload = new FragmentationWorkload(factory, CONTENT_TYPE)
+			.setThreads(2)
+			.setInitialRecords(100)
+			.setInitialSize(512)
+			.setOperations(200)
+			.setDistribution(SizeDistribution.shrink(0.5));
+		workload.populate();
+
+		// The content must grow with the distribution
+		FragmentationWorkload.Result result = workload.setDistribution(SizeDistribution.grow(4, 8192)).run();
+		assertEquals(200, result.getOperations());
+		assertEquals(0, result.getFailed());
+	}
+
+	@Test
+	public void testDistributions() {
+		Random random = new Random(42);
+		assertEquals(50, SizeDistribution.parse("shrink:0.5").nextSize(100, random));
+		assertEquals(76, SizeDistribution.parse("subtract:24").nextSize(100, random));
+		assertEquals(120, SizeDistribution.parse("grow:2:120").nextSize(100, random));
+		SizeDistribution uniform = SizeDistribution.parse("uniform:10:20");
+		SizeDistribution zipfian = SizeDistribution.parse("zipfian:1:1000:1.5");
+		int small = 0;
+		for (int i = 0; i < 1000; i++) {
+			int size = uniform.nextSize(100, random);
+			assertTrue(size >= 10 && size <= 20);
+			if (zipfian.nextSize(100, random) < 100) {
+				small++;
+			}
+		}
+		assertTrue("Small sizes should be picked most often", small > 500);
+	}
+
+}
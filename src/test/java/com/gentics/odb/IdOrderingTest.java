@@ -0,0 +1,62 @@
+package com.gentics.odb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.gentics.odb.IdOrderingWorkload.IdScheme;
+import com.gentics.odb.IdOrderingWorkload.IndexKind;
+import com.gentics.odb.IdOrderingWorkload.Result;
+
+/**
+ * Compares the insert throughput and the index growth of random and time-ordered ids for the tree and the hash index. The report is
+ * written to target/IdOrderingTest.csv. The test uses disk storage by default since the index pages can not be counted in memory.
+ *
+ * Tests can be configured with system properties:
+ * <ul>
+ * <li>{@code idordering.keys}: Amount of inserted keys per run (default: 100000, use 10000000 for the full comparison)</li>
+ * <li>{@code idordering.batchSize}: Inserts per transaction (default: 1000)</li>
+ * <li>{@code idordering.interval}: Inserts between two samples (default: 25000)</li>
+ * <li>{@code storage.profile}: See {@link StorageProfile} (default: plocal)</li>
+ * </ul>
+ */
+public class IdOrderingTest {
+
+	private static final long KEYS = Long.getLong("idordering.keys", 100_000);
+
+	private static final int BATCH_SIZE = Integer.getInteger("idordering.batchSize", 1_000);
+
+	private static final long INTERVAL = Long.getLong("idordering.interval", 25_000);
+
+	@Test
+	public void testIdSchemes() throws Exception {
+		StorageProfile profile = StorageProfile.parse(System.getProperty(StorageProfile.PROFILE_PROPERTY, "plocal"));
+		IdOrderingWorkload workload = new IdOrderingWorkload(profile, IdOrderingTest.class.getSimpleName())
+			.setKeys(KEYS)
+			.setBatchSize(BATCH_SIZE)
+			.setSampleInterval(INTERVAL);
+
+		List<Result> results = new ArrayList<>();
+		for (IndexKind kind : IndexKind.values()) {
+			for (IdScheme scheme : IdScheme.values()) {
+				results.add(workload.run(scheme, kind));
+			}
+		}
+		SampleReport report = IdOrderingWorkload.report(results);
+		System.out.println(report.toTable());
+		report.writeCsv(new File("target", IdOrderingTest.class.getSimpleName() + ".csv"));
+
+		for (Result result : results) {
+			assertEquals(KEYS, result.getSamples().get(result.getSamples().size() - 1).getKeys());
+			if (!profile.isMemory()) {
+				assertTrue("The index must have grown", result.getIndexPages() > 0);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,347 @@
+package com.gentics.odb;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+import com.tinkerpop.blueprints.impls.orient.OrientVertexType;
+
+/**
+ * Workload which inserts vertices with a unique uuid into a fresh database and measures the insert throughput and the growth of the uuid
+ * index. It is run with random and time-ordered ids ({@link IdScheme}) against a tree and a hash index ({@link IndexKind}).
+ *
+ * OrientDB does not count page splits. Each split allocates a new page, so the amount of pages which the index files gained during the
+ * load is reported as approximation. The page counts are only available for disk storage. Use a small disk cache (e.g.
+ * {@code -Dstorage.diskCache.bufferSize=64}) to see the effect of random I/O without loading millions of keys.
+ */
+public class IdOrderingWorkload {
+
+	private static final String TYPE = "Item";
+
+	private static final String INDEX = "item_uuid";
+
+	public enum IdScheme {
+		/**
+		 * Random ids via {@link UuidGenerator#randomUuid()}.
+		 */
+		RANDOM(UuidGenerator::randomUuid),
+
+		/**
+		 * Time-ordered ids via {@link UuidGenerator#orderedUuid()}.
+		 */
+		ORDERED(UuidGenerator::orderedUuid);
+
+		private final Supplier<String> generator;
+
+		IdScheme(Supplier<String> generator) {
+			this.generator = generator;
+		}
+
+		public String next() {
+			return generator.get();
+		}
+	}
+
+	public enum IndexKind {
+		/**
+		 * SBTree based unique index.
+		 */
+		SBTREE(OClass.INDEX_TYPE.UNIQUE),
+
+		/**
+		 * Hash based unique index, like {@code AbstractClusterTest.uuidTypeModifier()}.
+		 */
+		HASH(OClass.INDEX_TYPE.UNIQUE_HASH_INDEX);
+
+		private final OClass.INDEX_TYPE type;
+
+		IndexKind(OClass.INDEX_TYPE type) {
+			this.type = type;
+		}
+
+		public OClass.INDEX_TYPE getType() {
+			return type;
+		}
+	}
+
+	private final StorageProfile profile;
+
+	private final String dbName;
+
+	private long keys = 100_000;
+
+	private int batchSize = 1_000;
+
+	private long sampleInterval = 25_000;
+
+	public IdOrderingWorkload(StorageProfile profile, String dbName) {
+		this.profile = profile;
+		this.dbName = dbName;
+	}
+
+	/**
+	 * Set the amount of inserted vertices.
+	 *
+	 * @param keys
+	 * @return Fluent API
+	 */
+	public IdOrderingWorkload setKeys(long keys) {
+		this.keys = keys;
+		return this;
+	}
+
+	/**
+	 * Set the amount of inserts per transaction.
+	 *
+	 * @param batchSize
+	 * @return Fluent API
+	 */
+	public IdOrderingWorkload setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * Set the amount of inserts between two samples.
+	 *
+	 * @param sampleInterval
+	 * @return Fluent API
+	 */
+	public IdOrderingWorkload setSampleInterval(long sampleInterval) {
+		this.sampleInterval = sampleInterval;
+		return this;
+	}
+
+	/**
+	 * Run the workload against a fresh database which is dropped afterwards.
+	 *
+	 * @param scheme
+	 * @param kind
+	 * @return
+	 */
+	public Result run(IdScheme scheme, IndexKind kind) {
+		OrientGraphFactory factory = profile.createFactory(dbName);
+		try {
+			OrientGraphNoTx noTx = factory.getNoTx();
+			try {
+				OrientVertexType type = noTx.createVertexType(TYPE);
+				type.createProperty("uuid", OType.STRING);
+				type.createIndex(INDEX, kind.getType().toString(), null, new ODocument().fields("ignoreNullValues", true),
+					new String[] { "uuid" });
+			} finally {
+				noTx.shutdown();
+			}
+
+			Result result = new Result(scheme, kind, keys);
+			result.emptyIndexPages = indexPages(factory);
+			long start = System.nanoTime();
+			long intervalStart = start;
+			long samplingNanos = 0;
+			long inserted = 0;
+			while (inserted < keys) {
+				int batch = (int) Math.min(batchSize, keys - inserted);
+				OrientGraph tx = factory.getTx();
+				try {
+					for (int i = 0; i < batch; i++) {
+						tx.addVertex("class:" + TYPE).setProperty("uuid", scheme.next());
+					}
+					tx.commit();
+				} finally {
+					tx.shutdown();
+				}
+				long previous = inserted;
+				inserted += batch;
+				if (inserted / sampleInterval != previous / sampleInterval || inserted == keys) {
+					long now = System.nanoTime();
+					double opsPerSecond = (inserted - result.lastSampleKeys()) * 1_000_000_000d / Math.max(1, now - intervalStart);
+					result.samples.add(new Sample(inserted, opsPerSecond, indexPages(factory)));
+					intervalStart = System.nanoTime();
+					samplingNanos += intervalStart - now;
+				}
+			}
+			// The flushes of the samples are not part of the insert time
+			result.durationMs = (System.nanoTime() - start - samplingNanos) / 1_000_000;
+			result.indexPages = indexPages(factory);
+			System.out.println(result);
+			return result;
+		} finally {
+			factory.drop();
+			factory.close();
+			profile.delete(dbName);
+		}
+	}
+
+	/**
+	 * Flush the storage and return the amount of pages of the index files.
+	 *
+	 * @param factory
+	 * @return 0 for memory storage
+	 */
+	private long indexPages(OrientGraphFactory factory) {
+		if (profile.isMemory()) {
+			return 0;
+		}
+		OrientGraphNoTx noTx = factory.getNoTx();
+		try {
+			noTx.getRawGraph().getStorage().synch();
+		} finally {
+			noTx.shutdown();
+		}
+		Pattern pattern = Pattern.compile(Pattern.quote(INDEX) + "(_\\d+)?\\.\\w+");
+		long bytes = 0;
+		File[] files = new File(profile.getDirectory(), dbName).listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (pattern.matcher(file.getName()).matches()) {
+					bytes += file.length();
+				}
+			}
+		}
+		return bytes / (OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * 1024L);
+	}
+
+	/**
+	 * Create the report of the samples of the results.
+	 *
+	 * @param results
+	 * @return
+	 */
+	public static SampleReport report(List<Result> results) {
+		SampleReport report = new SampleReport()
+			.addColumn("ids", "%-8s")
+			.addColumn("index", "%-8s")
+			.addColumn("keys", "%12d")
+			.addColumn("ops/sec", "%12.1f")
+			.addColumn("index pages", "%12d");
+		for (Result result : results) {
+			for (Sample sample : result.getSamples()) {
+				report.addRow(result.getScheme(), result.getKind(), sample.getKeys(), sample.getOpsPerSecond(), sample.getIndexPages());
+			}
+		}
+		return report;
+	}
+
+	/**
+	 * Measurement after a sample interval.
+	 */
+	public static class Sample {
+
+		private final long keys;
+
+		private final double opsPerSecond;
+
+		private final long indexPages;
+
+		public Sample(long keys, double opsPerSecond, long indexPages) {
+			this.keys = keys;
+			this.opsPerSecond = opsPerSecond;
+			this.indexPages = indexPages;
+		}
+
+		/**
+		 * Return the amount of keys when the sample was taken.
+		 *
+		 * @return
+		 */
+		public long getKeys() {
+			return keys;
+		}
+
+		/**
+		 * Return the insert throughput of the interval.
+		 *
+		 * @return
+		 */
+		public double getOpsPerSecond() {
+			return opsPerSecond;
+		}
+
+		public long getIndexPages() {
+			return indexPages;
+		}
+	}
+
+	/**
+	 * Samples of a run.
+	 */
+	public static class Result {
+
+		private final IdScheme scheme;
+
+		private final IndexKind kind;
+
+		private final long keys;
+
+		private final List<Sample> samples = new ArrayList<>();
+
+		private long durationMs;
+
+		private long emptyIndexPages;
+
+		private long indexPages;
+
+		public Result(IdScheme scheme, IndexKind kind, long keys) {
+			this.scheme = scheme;
+			this.kind = kind;
+			this.keys = keys;
+		}
+
+		private long lastSampleKeys() {
+			return samples.isEmpty() ? 0 : samples.get(samples.size() - 1).getKeys();
+		}
+
+		public IdScheme getScheme() {
+			return scheme;
+		}
+
+		public IndexKind getKind() {
+			return kind;
+		}
+
+		public List<Sample> getSamples() {
+			return samples;
+		}
+
+		public long getDurationMs() {
+			return durationMs;
+		}
+
+		public double getOpsPerSecond() {
+			return durationMs == 0 ? keys * 1000d : keys * 1000d / durationMs;
+		}
+
+		/**
+		 * Return the amount of pages of the index files after the load.
+		 *
+		 * @return
+		 */
+		public long getIndexPages() {
+			return indexPages;
+		}
+
+		/**
+		 * Return the amount of pages which were allocated by the index during the load, which approximates the amount of page splits.
+		 *
+		 * @return
+		 */
+		public long getAllocatedPages() {
+			return indexPages - emptyIndexPages;
+		}
+
+		@Override
+		public String toString() {
+			return "Inserting " + keys + " " + scheme + " ids into the " + kind + " index took " + durationMs + " ms ("
+				+ String.format("%.1f", getOpsPerSecond()) + " ops/sec), allocated index pages " + getAllocatedPages();
+		}
+	}
+
+}
@@ -8,6 +8,7 @@ import static org.junit.Assert.fail;
 import java.util.Iterator;
 import java.util.List;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -48,10 +49,15 @@ public class IndexRegression4Test extends AbstractOrientTest {
 
 	@Before
 	public void setupDB() {
-		factory = new OrientGraphFactory("memory:tinkerpop" + System.currentTimeMillis()).setupPool(16, 100);
+		factory = StorageProfile.current().createFactory("tinkerpop" + System.currentTimeMillis());
 		addTypesAndIndices();
 	}
 
+	@After
+	public void closeDB() {
+		StorageProfile.current().drop(factory);
+	}
+
 	private void addTypesAndIndices() {
 		addEdgeType(factory::getNoTx, EDGE_LABEL, null, type -> {
 
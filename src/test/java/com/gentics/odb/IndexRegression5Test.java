@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -41,10 +42,15 @@ public class IndexRegression5Test extends AbstractOrientTest {
 
 	@Before
 	public void setupDB() {
-		factory = new OrientGraphFactory("memory:tinkerpop" + System.currentTimeMillis()).setupPool(16, 100);
+		factory = StorageProfile.current().createFactory("tinkerpop" + System.currentTimeMillis());
 		addTypesAndIndices();
 	}
 
+	@After
+	public void closeDB() {
+		StorageProfile.current().drop(factory);
+	}
+
 	private void addTypesAndIndices() {
 		addEdgeType(factory::getNoTx, CONTENT_EDGE_LABEL, null, null);
 		addVertexType(factory::getNoTx, NODE_TYPE, null, type -> {
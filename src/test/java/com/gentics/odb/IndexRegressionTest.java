@@ -6,6 +6,7 @@ import static org.junit.Assert.fail;
 
 import java.util.Iterator;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -37,10 +38,15 @@ public class IndexRegressionTest extends AbstractOrientTest {
 
 	@Before
 	public void setupDB() {
-		factory = new OrientGraphFactory("memory:tinkerpop" + System.currentTimeMillis()).setupPool(16, 100);
+		factory = StorageProfile.current().createFactory("tinkerpop" + System.currentTimeMillis());
 		addTypesAndIndices();
 	}
 
+	@After
+	public void closeDB() {
+		StorageProfile.current().drop(factory);
+	}
+
 	private void addTypesAndIndices() {
 		addEdgeType(factory::getNoTx, EDGE_LABEL, null, type -> {
 
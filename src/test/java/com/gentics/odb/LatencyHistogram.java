@@ -0,0 +1,167 @@
+package com.gentics.odb;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe histogram of latencies in nanoseconds. Values are recorded in log-linear buckets (32 buckets per power of two) which limits the
+ * error of the reported percentiles to about 3% while keeping the memory footprint constant.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	private final LongAdder count = new LongAdder();
+
+	private final LongAdder sum = new LongAdder();
+
+	private final AtomicLong max = new AtomicLong();
+
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+	/**
+	 * Record the latency.
+	 *
+	 * @param nanos
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(index(value));
+		count.increment();
+		sum.add(value);
+		max.accumulateAndGet(value, Math::max);
+		min.accumulateAndGet(value, Math::min);
+	}
+
+	/**
+	 * Record the time which passed since the given {@link System#nanoTime()} timestamp.
+	 *
+	 * @param startNanos
+	 * @return Recorded latency
+	 */
+	public long recordSince(long startNanos) {
+		long latency = System.nanoTime() - startNanos;
+		record(latency);
+		return latency;
+	}
+
+	/**
+	 * Add all values of the other histogram to this histogram.
+	 *
+	 * @param other
+	 * @return Fluent API
+	 */
+	public LatencyHistogram add(LatencyHistogram other) {
+		for (int i = 0; i < BUCKETS; i++) {
+			long c = other.counts.get(i);
+			if (c != 0) {
+				counts.addAndGet(i, c);
+			}
+		}
+		count.add(other.count.sum());
+		sum.add(other.sum.sum());
+		max.accumulateAndGet(other.max.get(), Math::max);
+		min.accumulateAndGet(other.min.get(), Math::min);
+		return this;
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		count.reset();
+		sum.reset();
+		max.set(0);
+		min.set(Long.MAX_VALUE);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public long getMin() {
+		return getCount() == 0 ? 0 : min.get();
+	}
+
+	public double getMean() {
+		long c = count.sum();
+		return c == 0 ? 0 : sum.sum() / (double) c;
+	}
+
+	/**
+	 * Return the value in nanoseconds below which the given percentage of the recorded values fall.
+	 *
+	 * @param percentile
+	 *            Percentile between 0 and 100
+	 * @return
+	 */
+	public long getPercentile(double percentile) {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += counts.get(i);
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, percentile) / 100d));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				long low = lowerBound(i);
+				long high = lowerBound(i + 1) - 1;
+				return Math.max(getMin(), Math.min(getMax(), low + (high - low) / 2));
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * Return the percentile in milliseconds.
+	 *
+	 * @param percentile
+	 * @return
+	 */
+	public double getPercentileMs(double percentile) {
+		return toMs(getPercentile(percentile));
+	}
+
+	public static double toMs(double nanos) {
+		return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	static int index(long value) {
+		if (value < 2 * SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return shift * SUB_BUCKETS + (int) (value >>> shift);
+	}
+
+	static long lowerBound(int index) {
+		if (index < 2 * SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		return (long) (index - shift * SUB_BUCKETS) << shift;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d mean=%.3f p50=%.3f p90=%.3f p99=%.3f p99.9=%.3f max=%.3f [ms]", getCount(), toMs(getMean()),
+			getPercentileMs(50), getPercentileMs(90), getPercentileMs(99), getPercentileMs(99.9), toMs(getMax()));
+	}
+
+}
@@ -0,0 +1,67 @@
+package com.gentics.odb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Thread safe registry of the records of a workload. Picking a random record removes it from the registry (swap with the last element), thus
+ * adding, picking and removing are O(1) and a record is never handled by two workers at the same time.
+ */
+public class RecordRegistry {
+
+	private final List<RecordInfo> records;
+
+	private long payloadSize;
+
+	public RecordRegistry(int expectedSize) {
+		this.records = new ArrayList<>(expectedSize);
+	}
+
+	public synchronized void add(RecordInfo info) {
+		records.add(info);
+		payloadSize += info.textSize;
+	}
+
+	/**
+	 * Remove a random record from the registry.
+	 *
+	 * @param random
+	 * @return Removed record or null if the registry is empty
+	 */
+	public synchronized RecordInfo take(Random random) {
+		int size = records.size();
+		if (size == 0) {
+			return null;
+		}
+		int index = random.nextInt(size);
+		RecordInfo last = records.remove(size - 1);
+		RecordInfo info = index == size - 1 ? last : records.set(index, last);
+		payloadSize -= info.textSize;
+		return info;
+	}
+
+	public synchronized int size() {
+		return records.size();
+	}
+
+	/**
+	 * Return the sum of the text sizes of all registered records.
+	 *
+	 * @return
+	 */
+	public synchronized long getPayloadSize() {
+		return payloadSize;
+	}
+
+	public static class RecordInfo {
+		final Object id;
+		final int textSize;
+
+		public RecordInfo(Object id, int textSize) {
+			this.id = id;
+			this.textSize = textSize;
+		}
+	}
+
+}
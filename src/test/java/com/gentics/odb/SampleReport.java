@@ -0,0 +1,114 @@
+package com.gentics.odb;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Samples of workload runs which are printed as table and written as CSV. Each column has a format for the table cells, e.g. {@code %-20s}
+ * or {@code %10.2f}. The CSV contains the plain values, floating point values are written with three decimals.
+ */
+public class SampleReport {
+
+	private static final Pattern WIDTH = Pattern.compile("%(-?\\d*)");
+
+	private final List<String> names = new ArrayList<>();
+
+	private final List<String> formats = new ArrayList<>();
+
+	private final List<Object[]> rows = new ArrayList<>();
+
+	/**
+	 * Add a column.
+	 *
+	 * @param name
+	 * @param format
+	 *            Format of the table cells
+	 * @return Fluent API
+	 */
+	public SampleReport addColumn(String name, String format) {
+		names.add(name);
+		formats.add(format);
+		return this;
+	}
+
+	/**
+	 * Add a row with one value per column.
+	 *
+	 * @param values
+	 * @return Fluent API
+	 */
+	public SampleReport addRow(Object... values) {
+		if (values.length != names.size()) {
+			throw new IllegalArgumentException("Expected " + names.size() + " values but got " + values.length);
+		}
+		rows.add(values);
+		return this;
+	}
+
+	public int size() {
+		return rows.size();
+	}
+
+	/**
+	 * Format the rows as table.
+	 *
+	 * @return
+	 */
+	public String toTable() {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < names.size(); i++) {
+			Matcher matcher = WIDTH.matcher(formats.get(i));
+			String format = matcher.find() ? "%" + matcher.group(1) + "s" : "%s";
+			builder.append(i == 0 ? "" : " ").append(String.format(Locale.ROOT, format, names.get(i)));
+		}
+		builder.append('\n');
+		for (Object[] row : rows) {
+			for (int i = 0; i < row.length; i++) {
+				builder.append(i == 0 ? "" : " ").append(String.format(Locale.ROOT, formats.get(i), row[i]));
+			}
+			builder.append('\n');
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Format the rows as CSV.
+	 *
+	 * @return
+	 */
+	public String toCsv() {
+		StringBuilder builder = new StringBuilder(String.join(",", names)).append('\n');
+		for (Object[] row : rows) {
+			List<String> values = new ArrayList<>(row.length);
+			for (Object value : row) {
+				values.add(value instanceof Double ? String.format(Locale.ROOT, "%.3f", value) : String.valueOf(value));
+			}
+			builder.append(String.join(",", values)).append('\n');
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Write the rows as CSV to the file.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void writeCsv(File file) throws IOException {
+		FileUtils.writeStringToFile(file, toCsv(), StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public String toString() {
+		return toTable();
+	}
+
+}
@@ -0,0 +1,179 @@
+package com.gentics.odb;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Distribution which determines the text size of a record that replaces or updates an existing record.
+ */
+public interface SizeDistribution {
+
+	/**
+	 * Return the size of the new record.
+	 *
+	 * @param currentSize
+	 *            Size of the record which will be replaced or updated
+	 * @param random
+	 * @return
+	 */
+	int nextSize(int currentSize, Random random);
+
+	/**
+	 * Return the largest size which can be returned by {@link #nextSize(int, Random)} for records up to the given size.
+	 *
+	 * @param initialSize
+	 * @return
+	 */
+	int maxSize(int initialSize);
+
+	/**
+	 * Multiply the current size with the factor (0 &lt; factor &lt; 1).
+	 *
+	 * @param factor
+	 * @return
+	 */
+	static SizeDistribution shrink(double factor) {
+		return new SizeDistribution() {
+			@Override
+			public int nextSize(int currentSize, Random random) {
+				return (int) Math.ceil(currentSize * factor);
+			}
+
+			@Override
+			public int maxSize(int initialSize) {
+				return initialSize;
+			}
+		};
+	}
+
+	/**
+	 * Subtract the given amount of bytes from the current size.
+	 *
+	 * @param bytes
+	 * @return
+	 */
+	static SizeDistribution subtract(int bytes) {
+		return new SizeDistribution() {
+			@Override
+			public int nextSize(int currentSize, Random random) {
+				return Math.max(1, currentSize - bytes);
+			}
+
+			@Override
+			public int maxSize(int initialSize) {
+				return initialSize;
+			}
+		};
+	}
+
+	/**
+	 * Multiply the current size with the factor (factor &gt; 1) up to the given limit.
+	 *
+	 * @param factor
+	 * @param limit
+	 * @return
+	 */
+	static SizeDistribution grow(double factor, int limit) {
+		return new SizeDistribution() {
+			@Override
+			public int nextSize(int currentSize, Random random) {
+				return (int) Math.min(limit, Math.ceil(currentSize * factor));
+			}
+
+			@Override
+			public int maxSize(int initialSize) {
+				return Math.max(initialSize, limit);
+			}
+		};
+	}
+
+	/**
+	 * Choose a size between min and max (inclusive) independent of the current size.
+	 *
+	 * @param min
+	 * @param max
+	 * @return
+	 */
+	static SizeDistribution uniform(int min, int max) {
+		return new SizeDistribution() {
+			@Override
+			public int nextSize(int currentSize, Random random) {
+				return min + random.nextInt(max - min + 1);
+			}
+
+			@Override
+			public int maxSize(int initialSize) {
+				return Math.max(initialSize, max);
+			}
+		};
+	}
+
+	/**
+	 * Choose a size between min and max which is zipfian distributed. The range is split into buckets and the k-th bucket is picked with a
+	 * probability proportional to 1/k^skew. Small sizes are thus picked most often.
+	 *
+	 * @param min
+	 * @param max
+	 * @param skew
+	 * @return
+	 */
+	static SizeDistribution zipfian(int min, int max, double skew) {
+		int buckets = Math.min(64, max - min + 1);
+		double[] cdf = new double[buckets];
+		double sum = 0;
+		for (int k = 1; k <= buckets; k++) {
+			sum += 1 / Math.pow(k, skew);
+			cdf[k - 1] = sum;
+		}
+		for (int i = 0; i < buckets; i++) {
+			cdf[i] /= sum;
+		}
+		return new SizeDistribution() {
+			@Override
+			public int nextSize(int currentSize, Random random) {
+				int bucket = Arrays.binarySearch(cdf, random.nextDouble());
+				if (bucket < 0) {
+					bucket = Math.min(buckets - 1, -bucket - 1);
+				}
+				if (buckets == 1) {
+					return min;
+				}
+				return min + (int) ((long) bucket * (max - min) / (buckets - 1));
+			}
+
+			@Override
+			public int maxSize(int initialSize) {
+				return Math.max(initialSize, max);
+			}
+		};
+	}
+
+	/**
+	 * Parse the distribution from a specification like {@code shrink:0.5}, {@code subtract:1024}, {@code grow:1.5:1048576},
+	 * {@code uniform:1:4096} or {@code zipfian:1:4096:1.2}.
+	 *
+	 * @param spec
+	 * @return
+	 */
+	static SizeDistribution parse(String spec) {
+		String[] parts = spec.split(":");
+		try {
+			switch (parts[0]) {
+			case "shrink":
+				return shrink(Double.parseDouble(parts[1]));
+			case "subtract":
+				return subtract(Integer.parseInt(parts[1]));
+			case "grow":
+				return grow(Double.parseDouble(parts[1]), Integer.parseInt(parts[2]));
+			case "uniform":
+				return uniform(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+			case "zipfian":
+				return zipfian(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), Double.parseDouble(parts[3]));
+			default:
+				throw new IllegalArgumentException("Unknown size distribution {" + spec + "}");
+			}
+		} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid size distribution {" + spec + "}", e);
+		}
+	}
+}
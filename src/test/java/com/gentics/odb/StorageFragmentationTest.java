@@ -1,21 +1,21 @@
 package com.gentics.odb;
 
+import com.gentics.odb.FragmentationWorkload.Operation;
 import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
-import com.tinkerpop.blueprints.Vertex;
-import com.tinkerpop.blueprints.impls.orient.OrientGraph;
 import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
-import com.tinkerpop.blueprints.impls.orient.OrientVertex;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertTrue;
 
@@ -26,29 +26,37 @@ import static org.junit.Assert.assertTrue;
  * After that the test will randomly pick a vertex, delete it and create a new one with a smaller text content.
  * Ideally the storage size should not explode.
  * 
- * The {@link #REUSE_VERTEX} flag can be used to switch to a non-deleting operation. Instead the picked vertex will be purged and reused.
+ * The workload can be configured via system properties:
+ * <ul>
+ * <li>{@code fragmentation.threads} - Amount of concurrent workers</li>
+ * <li>{@code fragmentation.vertexCount} - Amount of initially created vertices</li>
+ * <li>{@code fragmentation.operations} - Amount of executed operations</li>
+ * <li>{@code fragmentation.initialTextSize} - Text size of the initially created vertices</li>
+ * <li>{@code fragmentation.distribution} - Size distribution of the new records, see {@link SizeDistribution#parse(String)}</li>
+ * <li>{@code fragmentation.mix} - Weighted operations e.g. {@code DELETE_CREATE=2,UPDATE=1,PURGE_REUSE=1}. Use {@code PURGE_REUSE=1} to purge
+ * and reuse the picked vertex instead of deleting it.</li>
+ * </ul>
  */
 public class StorageFragmentationTest extends AbstractOrientTest {
 
 	/* ************************************************************************
 	 * Test settings
 	 * ************************************************************************/
-	private static final int INITIAL_TEXT_SIZE = (int) Math.ceil(0.4 * 1024 * 1024);
-	private static final boolean REUSE_VERTEX = false;
-	private static final double REDUCTION = .5;
-	private static final boolean REDUCE_BY_MULTIPLICATION = true;
-	private static final int VERTEX_COUNT = 5_000;
-	private static final int DELETE_CREATE_OPS = 50_000;
+	private static final int INITIAL_TEXT_SIZE = Integer.getInteger("fragmentation.initialTextSize", (int) Math.ceil(0.4 * 1024 * 1024));
+	private static final String DISTRIBUTION = System.getProperty("fragmentation.distribution", "shrink:0.5");
+	private static final String MIX = System.getProperty("fragmentation.mix", "DELETE_CREATE=1");
+	private static final int THREADS = Integer.getInteger("fragmentation.threads", 1);
+	private static final int VERTEX_COUNT = Integer.getInteger("fragmentation.vertexCount", 5_000);
+	private static final long OPERATIONS = Long.getLong("fragmentation.operations", 50_000);
 
 	private static final String DB_NAME = StorageFragmentationTest.class.getSimpleName();
 	private static final String CONTENT_TYPE = "ContentImpl";
 	private static final File DB_FOLDER = new File("target", DB_NAME);
 	private static final File WAL_FOLDER = new File("target", "wal");
-
-	private final List<RecordInfo> ids = new ArrayList<>(VERTEX_COUNT);
+	private static final File GROWTH_CSV = new File("target", DB_NAME + "-growth.csv");
+	private static final long SAMPLE_INTERVAL_MS = 1_000;
 
 	private OrientGraphFactory factory;
-	private String content;
 
 
 	@Before
@@ -70,131 +78,76 @@ public class StorageFragmentationTest extends AbstractOrientTest {
 		addTypes();
 	}
 
+	/**
+	 * The test sets the global WAL location and shuts the engine down to measure the final size, so both are restored for the following
+	 * tests.
+	 */
+	@After
+	public void restoreEngine() {
+		StorageProfile.resetWalLocation();
+		Orient.instance().startup();
+	}
+
 	private void addTypes() {
 		addVertexType(factory::getNoTx, CONTENT_TYPE, null, null);
 	}
 
 	@Test
-	public void testFragmentation() throws InterruptedException {
-		// Add vertices which have a large record size
-		System.out.println("Creating " + VERTEX_COUNT + " vertices with text size " + INITIAL_TEXT_SIZE);
-		for (int i = 0; i < VERTEX_COUNT; i++) {
-			OrientGraph tx = factory.getTx();
-			try {
-				Vertex v = addContent(tx, INITIAL_TEXT_SIZE);
-				tx.commit();
-				ids.add(new RecordInfo(v.getId(), INITIAL_TEXT_SIZE));
-			} finally {
-				tx.shutdown();
-			}
-			if (i % 1000 == 0) {
-				System.out.println("Created " + i + " vertices");
-			}
-		}
+	public void testFragmentation() throws InterruptedException, IOException {
+		FragmentationWorkload workload = new FragmentationWorkload(factory, CONTENT_TYPE)
+			.setThreads(THREADS)
+			.setInitialRecords(VERTEX_COUNT)
+			.setInitialSize(INITIAL_TEXT_SIZE)
+			.setOperations(OPERATIONS)
+			.setDistribution(SizeDistribution.parse(DISTRIBUTION))
+			.setMix(parseMix(MIX))
+			.setProgressListener(5_000, count -> printDBSize());
+
+		StorageGrowthSampler sampler = new StorageGrowthSampler(factory::getNoTx, DB_FOLDER, WAL_FOLDER, GROWTH_CSV,
+			Collections.singletonList(CONTENT_TYPE), () -> workload.getRegistry() == null ? 0 : workload.getRegistry().getPayloadSize());
+		FragmentationWorkload.Result result;
+		long initialSize;
+		try {
+			sampler.start(SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
 
-		System.out.printf(
-			"Size will be reduced by %s %f",
-			REDUCE_BY_MULTIPLICATION ? "multiplying with" : "subtracting",
-			REDUCTION);
+			// Add vertices which have a large record size
+			workload.populate();
 
-		System.out.println("\nBefore:");
-		long initialSize = printDBSize();
-		System.out.println();
+			System.out.println("Size distribution: " + DISTRIBUTION);
+			System.out.println("\nBefore:");
+			initialSize = printDBSize();
+			System.out.println();
 
-		long deletedRecords = REUSE_VERTEX ? reUseVertices() : replaceVertices();
+			result = workload.run();
+		} finally {
+			sampler.close();
+		}
 
 		Orient.instance().shutdown();
 		Thread.sleep(5000);
 		System.out.println("\nFinal result:");
 		long finalSize = printDBSize();
-		long expectedTombstoneSize = deletedRecords * 11;
+		long expectedTombstoneSize = result.getDeleted() * 11;
 		long effSize = finalSize - expectedTombstoneSize;
 		double factor = (double) effSize / (double) initialSize;
 
 		System.out.println();
 		System.out.println("DB increased by " + toHumanSize(finalSize - initialSize) + " factor: " + String.format("%1.2f", factor));
 		System.out.println("Expected tombstone size: " + toHumanSize(expectedTombstoneSize));
-	}
-
-	private long replaceVertices() {
-
-		// Randomly delete and create new records / elements
-		System.out.println("Replace Vertices: Now invoking " + DELETE_CREATE_OPS + " delete & create operations.");
-		long deletedRecords = 0;
-		for (int i = 0; i < DELETE_CREATE_OPS; i++) {
-			RecordInfo info = getRandomRecord();
-			int size = reduceSize(info.textSize);
-			OrientGraph tx = factory.getTx();
-			try {
-				// 1. Delete the found record
-				OrientVertex v = tx.getVertex(info.id);
-				v.remove();
-				deletedRecords++;
-				ids.remove(info);
-
-				// 2. Reduce the text size for the new record and create it
-				Vertex added = addContent(tx, size);
-				tx.commit();
-				ids.add(new RecordInfo(added.getId(), size));
-			} finally {
-				tx.shutdown();
-			}
-			if (i % 5000 == 0) {
-				printDBSize();
-			}
-		}
-		return deletedRecords;
-	}
-
-	private int reduceSize(int curSize) {
-		if (REDUCE_BY_MULTIPLICATION) {
-			return (int) Math.ceil(curSize * REDUCTION);
-		}
-
-		return Math.max(1, curSize - (int) REDUCTION);
-	}
-
-	private long reUseVertices() {
-		// Randomly delete and create new records / elements
-		System.out.println("Re-Use Vertices: Now invoking " + DELETE_CREATE_OPS + " update operations with smaller text size for updated records");
-		for (int i = 0; i < DELETE_CREATE_OPS; i++) {
-			RecordInfo info = getRandomRecord();
-			int size = reduceSize(info.textSize);
-			OrientGraph tx = factory.getTx();
-
-			try {
-				// 1. Delete the found record
-				OrientVertex v = tx.getVertex(info.id);
-				clearVertex(v);
-				ids.remove(info);
-
-				// 2. Reduce the text size for the new record and create it
-				v.setProperty("text", getData(size));
-				ids.add(new RecordInfo(v.getId(), size));
-				tx.commit();
-			} finally {
-				tx.shutdown();
-			}
-			if (i % 5000 == 0) {
-				printDBSize();
-			}
-		}
-		return 0;
-	}
-
-	private void clearVertex(OrientVertex v) {
-		for (String key : v.getPropertyKeys()) {
-			v.removeProperty(key);
-		}
+		System.out.println("Throughput: " + result);
+		System.out.println("Space amplification: " + String.format("%1.2f", sampler.getLastAmplification()));
 	}
 
 	/**
-	 * Return a random record.
-	 *
-	 * @return A random record
+	 * Parse the operation mix e.g. {@code DELETE_CREATE=2,UPDATE=1}.
 	 */
-	private RecordInfo getRandomRecord() {
-		return ids.get((int) (Math.random() * ids.size()));
+	private Map<Operation, Integer> parseMix(String mix) {
+		Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+		for (String entry : mix.split(",")) {
+			String[] parts = entry.trim().split("=");
+			weights.put(Operation.valueOf(parts[0].trim().toUpperCase()), parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1);
+		}
+		return weights;
 	}
 
 	private long printDBSize() {
@@ -247,35 +200,4 @@ public class StorageFragmentationTest extends AbstractOrientTest {
 		return String.format("%5d %s", size, unit);
 	}
 
-	private Vertex addContent(OrientGraph tx, int size) {
-		if (content == null) {
-			content = RandomStringUtils.randomAlphanumeric(INITIAL_TEXT_SIZE);
-		}
-		OrientVertex v = tx.addVertex("class:" + CONTENT_TYPE);
-		v.setProperty("text", getData(size));
-		return v;
-	}
-
-	private String getData(int size) {
-		if (content == null) {
-			content = RandomStringUtils.randomAlphanumeric(INITIAL_TEXT_SIZE);
-		}
-
-		if (size > content.length()) {
-			System.out.printf("WARNING: current size %d is greater than data length %d%n", size, content.length());
-		}
-
-		return content.substring(0, size);
-	}
-
-	static class RecordInfo {
-		Object id;
-		int textSize;
-
-		public RecordInfo(Object id, int textSize) {
-			this.id = id;
-			this.textSize = textSize;
-		}
-	}
-
 }
@@ -0,0 +1,255 @@
+package com.gentics.odb;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OSchema;
+import com.orientechnologies.orient.core.storage.OCluster;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+
+/**
+ * Background sampler which periodically appends the storage file sizes and the storage statistics to a CSV file. Each line contains:
+ * <ul>
+ * <li>the sizes of the cluster (pcl), cluster position map (cpm), other and WAL files</li>
+ * <li>the WAL segment count</li>
+ * <li>the total record count, live payload bytes and free bytes (cluster file size minus payload)</li>
+ * <li>the space amplification (on-disk bytes of the database folder / live payload bytes)</li>
+ * <li>record count and cluster file bytes of each tracked class</li>
+ * </ul>
+ *
+ * Without a payload supplier the records size of the clusters is used. Only the older cluster formats maintain it, the clusters which
+ * OrientDB 3.1 creates by default always report 0 and the amplification is then recorded as 0. The workload should thus provide the live
+ * payload bytes.
+ */
+public class StorageGrowthSampler implements AutoCloseable {
+
+	private static final Pattern PHYSICAL_SUFFIX = Pattern.compile("_\\d+(\\.\\w+)$");
+
+	private final Supplier<OrientGraphNoTx> txProvider;
+
+	private final File dbFolder;
+
+	private final File walFolder;
+
+	private final File csvFile;
+
+	private final List<String> trackedClasses;
+
+	private final LongSupplier payloadSupplier;
+
+	private ScheduledExecutorService executor;
+
+	private PrintWriter writer;
+
+	private long start;
+
+	private volatile double lastAmplification;
+
+	/**
+	 * Create a new sampler.
+	 *
+	 * @param txProvider
+	 *            Provider for the graph which is used to access the storage
+	 * @param dbFolder
+	 *            Folder of the plocal database
+	 * @param walFolder
+	 *            Folder of the WAL
+	 * @param csvFile
+	 *            CSV file which will be written
+	 * @param trackedClasses
+	 *            Names of the classes whose clusters should be recorded in separate columns
+	 * @param payloadSupplier
+	 *            Supplier for the live payload bytes. The records size of the clusters, which is only maintained by the older cluster formats,
+	 *            will be used when null
+	 */
+	public StorageGrowthSampler(Supplier<OrientGraphNoTx> txProvider, File dbFolder, File walFolder, File csvFile,
+		List<String> trackedClasses, LongSupplier payloadSupplier) {
+		this.txProvider = txProvider;
+		this.dbFolder = dbFolder;
+		this.walFolder = walFolder;
+		this.csvFile = csvFile;
+		this.trackedClasses = new ArrayList<>(trackedClasses);
+		this.payloadSupplier = payloadSupplier;
+	}
+
+	/**
+	 * Start sampling in the given interval.
+	 *
+	 * @param interval
+	 * @param unit
+	 * @throws IOException
+	 */
+	public void start(long interval, TimeUnit unit) throws IOException {
+		csvFile.getParentFile().mkdirs();
+		writer = new PrintWriter(new FileWriter(csvFile));
+		StringBuilder header = new StringBuilder(
+			"timestamp,elapsed_ms,pcl_bytes,cpm_bytes,other_bytes,wal_bytes,wal_segments,records,payload_bytes,free_bytes,space_amplification");
+		for (String clazz : trackedClasses) {
+			header.append(",").append(clazz).append("_records,").append(clazz).append("_bytes");
+		}
+		writer.println(header);
+		start = System.currentTimeMillis();
+		executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "storage-growth-sampler");
+			t.setDaemon(true);
+			return t;
+		});
+		executor.scheduleAtFixedRate(this::sampleSafely, 0, interval, unit);
+	}
+
+	private void sampleSafely() {
+		try {
+			sample();
+		} catch (Exception e) {
+			// Don't let a single failed sample cancel the schedule
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Record a single sample.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void sample() throws IOException {
+		long pclSize = 0;
+		long cpmSize = 0;
+		long other = 0;
+		Map<String, Long> fileSizes = new HashMap<>();
+		File[] files = dbFolder.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				long size = file.length();
+				// The physical file names contain an additional id suffix (e.g. contentimpl_334864908.pcl)
+				fileSizes.put(PHYSICAL_SUFFIX.matcher(file.getName()).replaceFirst("$1"), size);
+				fileSizes.put(file.getName(), size);
+				String ext = FilenameUtils.getExtension(file.getName()).toLowerCase();
+				switch (ext) {
+				case "pcl":
+					pclSize += size;
+					break;
+				case "cpm":
+					cpmSize += size;
+					break;
+				default:
+					other += size;
+					break;
+				}
+			}
+		}
+		long walSize = walFolder.exists() ? FileUtils.sizeOfDirectory(walFolder) : 0;
+
+		long walSegments = -1;
+		long records = 0;
+		long payload = 0;
+		Map<Integer, long[]> clusterStats = new HashMap<>();
+		List<long[]> classStats = new ArrayList<>();
+		OrientGraphNoTx noTx = txProvider.get();
+		try {
+			OStorage storage = noTx.getRawGraph().getStorage().getUnderlying();
+			if (storage instanceof OAbstractPaginatedStorage) {
+				OAbstractPaginatedStorage paginatedStorage = (OAbstractPaginatedStorage) storage;
+				if (paginatedStorage.getWALInstance() != null) {
+					walSegments = paginatedStorage.getWALInstance().nonActiveSegments().length + 1;
+				}
+			}
+			Collection<? extends OCluster> clusters = storage.getClusterInstances();
+			for (OCluster cluster : clusters) {
+				long entries = cluster.getEntries();
+				records += entries;
+				if (payloadSupplier == null) {
+					payload += cluster.getRecordsSize();
+				}
+				clusterStats.put(cluster.getId(), new long[] { entries, fileSizes.getOrDefault(cluster.getFileName(), 0L) });
+			}
+
+			OSchema schema = noTx.getRawGraph().getMetadata().getImmutableSchemaSnapshot();
+			for (String className : trackedClasses) {
+				long[] stats = new long[2];
+				OClass clazz = schema.getClass(className);
+				if (clazz != null) {
+					for (int clusterId : clazz.getPolymorphicClusterIds()) {
+						long[] cStats = clusterStats.getOrDefault(clusterId, new long[2]);
+						stats[0] += cStats[0];
+						stats[1] += cStats[1];
+					}
+				}
+				classStats.add(stats);
+			}
+		} finally {
+			noTx.shutdown();
+		}
+
+		if (payloadSupplier != null) {
+			payload = payloadSupplier.getAsLong();
+		}
+		long free = Math.max(0, pclSize - payload);
+		long diskSize = pclSize + cpmSize + other;
+		lastAmplification = payload == 0 ? 0 : (double) diskSize / (double) payload;
+
+		StringBuilder line = new StringBuilder();
+		long now = System.currentTimeMillis();
+		line.append(now).append(",").append(now - start);
+		line.append(",").append(pclSize).append(",").append(cpmSize).append(",").append(other).append(",").append(walSize);
+		line.append(",").append(walSegments).append(",").append(records).append(",").append(payload).append(",").append(free);
+		line.append(",").append(String.format(Locale.ROOT, "%1.4f", lastAmplification));
+		for (long[] stats : classStats) {
+			line.append(",").append(stats[0]).append(",").append(stats[1]);
+		}
+		writer.println(line);
+		writer.flush();
+	}
+
+	/**
+	 * Return the space amplification of the last sample.
+	 *
+	 * @return
+	 */
+	public double getLastAmplification() {
+		return lastAmplification;
+	}
+
+	/**
+	 * Stop the sampling and record a final sample.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (executor == null) {
+			return;
+		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			sample();
+		} finally {
+			writer.close();
+			executor = null;
+		}
+		System.out.println("Wrote storage growth samples to " + csvFile.getAbsolutePath());
+	}
+
+}
@@ -0,0 +1,76 @@
+package com.gentics.odb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+import com.tinkerpop.blueprints.impls.orient.OrientVertex;
+
+public class StorageGrowthSamplerTest extends AbstractOrientTest {
+
+	private static final String DB_NAME = StorageGrowthSamplerTest.class.getSimpleName();
+	private static final String CONTENT_TYPE = "ContentImpl";
+	private static final File DB_FOLDER = new File("target", DB_NAME);
+	private static final File CSV_FILE = new File("target", DB_NAME + ".csv");
+
+	private OrientGraphFactory factory;
+
+	@Before
+	public void setupDB() throws IOException {
+		FileUtils.deleteDirectory(DB_FOLDER);
+		factory = new OrientGraphFactory("plocal:" + DB_FOLDER.getAbsolutePath()).setupPool(16, 100);
+		addVertexType(factory::getNoTx, CONTENT_TYPE, null, null);
+	}
+
+	@After
+	public void closeDB() {
+		factory.drop();
+		factory.close();
+	}
+
+	@Test
+	public void testSampling() throws IOException {
+		AtomicLong payload = new AtomicLong();
+		try (StorageGrowthSampler sampler = new StorageGrowthSampler(factory::getNoTx, DB_FOLDER, DB_FOLDER, CSV_FILE,
+			Collections.singletonList(CONTENT_TYPE), payload::get)) {
+			sampler.start(100, TimeUnit.MILLISECONDS);
+			OrientGraph tx = factory.getTx();
+			try {
+				for (int i = 0; i < 100; i++) {
+					OrientVertex v = tx.addVertex("class:" + CONTENT_TYPE);
+					String text = "Some text content " + i;
+					v.setProperty("text", text);
+					payload.addAndGet(text.length());
+				}
+				tx.commit();
+			} finally {
+				tx.shutdown();
+			}
+			sampler.sample();
+			assertTrue("The database files should be larger than the payload", sampler.getLastAmplification() > 1);
+		}
+
+		List<String> lines = FileUtils.readLines(CSV_FILE, StandardCharsets.UTF_8);
+		assertTrue("Header and samples should have been written", lines.size() >= 3);
+		String[] header = lines.get(0).split(",");
+		String[] last = lines.get(lines.size() - 1).split(",");
+		assertEquals(header.length, last.length);
+		assertEquals(CONTENT_TYPE + "_records", header[header.length - 2]);
+		assertEquals("100", last[last.length - 2]);
+	}
+
+}
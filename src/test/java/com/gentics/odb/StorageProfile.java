@@ -0,0 +1,279 @@
+package com.gentics.odb;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+
+/**
+ * Describes where a local database stores its data. Tests and benchmarks which create their factory via {@link #createFactory(String)} can be
+ * run under a different storage by setting the system property {@code storage.profile}:
+ * <ul>
+ * <li>{@code memory} - In-memory storage (default)</li>
+ * <li>{@code plocal} or {@code plocal:<path>} - Disk storage in target/profiles/plocal or the given path</li>
+ * <li>{@code tmpfs} or {@code tmpfs:<path>} - Disk storage on a RAM backed filesystem (/dev/shm by default)</li>
+ * <li>{@code wal} or {@code wal:<path>:<walPath>} - Disk storage with the write ahead log on a separate location</li>
+ * </ul>
+ * The property {@code storage.profiles} selects the profiles which are compared by {@link StorageProfileComparison}. Use {@code all} to
+ * select every profile which is available on this machine.
+ */
+public final class StorageProfile {
+
+	public static final String PROFILE_PROPERTY = "storage.profile";
+
+	public static final String PROFILES_PROPERTY = "storage.profiles";
+
+	private static final File BASE = new File("target", "profiles");
+
+	private static final File TMPFS = new File("/dev/shm");
+
+	private final String name;
+
+	private final File directory;
+
+	private final File walDirectory;
+
+	private StorageProfile(String name, File directory, File walDirectory) {
+		this.name = name;
+		this.directory = directory;
+		this.walDirectory = walDirectory;
+	}
+
+	public static StorageProfile memory() {
+		return new StorageProfile("memory", null, null);
+	}
+
+	public static StorageProfile plocal(File directory) {
+		return new StorageProfile("plocal", directory, null);
+	}
+
+	public static StorageProfile tmpfs(File directory) {
+		return new StorageProfile("tmpfs", directory, null);
+	}
+
+	public static StorageProfile separateWal(File directory, File walDirectory) {
+		return new StorageProfile("wal", directory, walDirectory);
+	}
+
+	/**
+	 * Parse the profile specification. See the class documentation for the supported values.
+	 *
+	 * @param spec
+	 * @return
+	 */
+	public static StorageProfile parse(String spec) {
+		String[] parts = spec.trim().split(":");
+		switch (parts[0]) {
+		case "memory":
+			return memory();
+		case "plocal":
+			return plocal(parts.length > 1 ? new File(parts[1]) : new File(BASE, "plocal"));
+		case "tmpfs":
+			return tmpfs(parts.length > 1 ? new File(parts[1]) : new File(TMPFS, "orientdb-profiles"));
+		case "wal":
+			if (parts.length > 2) {
+				return separateWal(new File(parts[1]), new File(parts[2]));
+			}
+			return separateWal(new File(BASE, "wal-data"), new File(BASE, "wal-log"));
+		default:
+			throw new IllegalArgumentException("Unknown storage profile {" + spec + "}");
+		}
+	}
+
+	/**
+	 * Return the profile which was selected via the {@code storage.profile} system property.
+	 *
+	 * @return
+	 */
+	public static StorageProfile current() {
+		return parse(System.getProperty(PROFILE_PROPERTY, "memory"));
+	}
+
+	/**
+	 * Return all profiles which can be used on this machine. The tmpfs profile is only included when /dev/shm exists.
+	 *
+	 * @return
+	 */
+	public static List<StorageProfile> all() {
+		List<StorageProfile> profiles = new ArrayList<>();
+		profiles.add(parse("memory"));
+		profiles.add(parse("plocal"));
+		if (TMPFS.isDirectory() && TMPFS.canWrite()) {
+			profiles.add(parse("tmpfs"));
+		}
+		profiles.add(parse("wal"));
+		return profiles;
+	}
+
+	/**
+	 * Return the profiles which were selected via the {@code storage.profiles} system property. Without the property only the
+	 * {@link #current()} profile is returned.
+	 *
+	 * @return
+	 */
+	public static List<StorageProfile> selected() {
+		String spec = System.getProperty(PROFILES_PROPERTY);
+		if (spec == null) {
+			List<StorageProfile> profiles = new ArrayList<>();
+			profiles.add(current());
+			return profiles;
+		}
+		if ("all".equals(spec)) {
+			return all();
+		}
+		List<StorageProfile> profiles = new ArrayList<>();
+		for (String entry : spec.split(",")) {
+			profiles.add(parse(entry));
+		}
+		return profiles;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public boolean isMemory() {
+		return directory == null;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public File getWalDirectory() {
+		return walDirectory;
+	}
+
+	/**
+	 * Return the database URL for the given database name.
+	 *
+	 * @param dbName
+	 * @return
+	 */
+	public String getUrl(String dbName) {
+		if (isMemory()) {
+			return "memory:" + dbName;
+		}
+		return "plocal:" + new File(directory, dbName).getAbsolutePath();
+	}
+
+	/**
+	 * Create a pooled factory for a new database. An existing database with the same name will be deleted. The WAL location is a global
+	 * setting, so the WAL directory of this profile is set before the database is created. It applies to all storages which are opened until
+	 * the database is deleted via {@link #delete(String)} or {@link #drop(OrientGraphFactory)}, which restore the default location.
+	 *
+	 * @param dbName
+	 * @return
+	 */
+	public OrientGraphFactory createFactory(String dbName) {
+		if (!isMemory()) {
+			try {
+				FileUtils.deleteDirectory(new File(directory, dbName));
+				if (walDirectory != null) {
+					FileUtils.deleteDirectory(new File(walDirectory, dbName));
+				}
+			} catch (IOException e) {
+				throw new RuntimeException("Could not clear storage of profile {" + name + "}", e);
+			}
+		}
+		if (walDirectory != null) {
+			File walFolder = new File(walDirectory, dbName);
+			walFolder.mkdirs();
+			OGlobalConfiguration.WAL_LOCATION.setValue(walFolder.getAbsolutePath());
+		}
+		return openFactory(dbName);
+	}
+
+	/**
+	 * Create a pooled factory for the database. The database will be created if it does not exist. The global WAL location is not changed.
+	 *
+	 * @param dbName
+	 * @return
+	 */
+	public OrientGraphFactory openFactory(String dbName) {
+		return new OrientGraphFactory(getUrl(dbName)).setupPool(16, 100);
+	}
+
+	/**
+	 * Drop the database of the factory, close the factory and delete the remaining files of the database, e.g. the separate WAL.
+	 *
+	 * @param factory
+	 */
+	public void drop(OrientGraphFactory factory) {
+		ODatabaseDocumentTx db = factory.getDatabase();
+		String dbName = db.getName();
+		db.close();
+		factory.drop();
+		factory.close();
+		delete(dbName);
+	}
+
+	/**
+	 * Return the amount of bytes which the database uses on disk including the WAL. Memory databases always return 0.
+	 *
+	 * @param dbName
+	 * @return
+	 */
+	public long getDiskUsage(String dbName) {
+		if (isMemory()) {
+			return 0;
+		}
+		long size = sizeOf(new File(directory, dbName));
+		if (walDirectory != null) {
+			size += sizeOf(new File(walDirectory, dbName));
+		}
+		return size;
+	}
+
+	/**
+	 * Delete the files of the database and restore the default WAL location.
+	 *
+	 * @param dbName
+	 */
+	public void delete(String dbName) {
+		if (!isMemory()) {
+			FileUtils.deleteQuietly(new File(directory, dbName));
+			if (walDirectory != null) {
+				FileUtils.deleteQuietly(new File(walDirectory, dbName));
+				resetWalLocation();
+			}
+		}
+	}
+
+	/**
+	 * Restore the default WAL location, which places the WAL next to the storage. The default is {@code null} and
+	 * {@link OGlobalConfiguration#setValue(Object)} ignores {@code null} values, so the value is reset directly.
+	 */
+	public static void resetWalLocation() {
+		try {
+			Field value = OGlobalConfiguration.class.getDeclaredField("value");
+			value.setAccessible(true);
+			value.set(OGlobalConfiguration.WAL_LOCATION, OGlobalConfiguration.WAL_LOCATION.getDefValue());
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException("Could not reset the WAL location", e);
+		}
+	}
+
+	private static long sizeOf(File folder) {
+		return folder.exists() ? FileUtils.sizeOfDirectory(folder) : 0;
+	}
+
+	@Override
+	public String toString() {
+		if (isMemory()) {
+			return name;
+		}
+		if (walDirectory != null) {
+			return name + " (" + directory + ", WAL " + walDirectory + ")";
+		}
+		return name + " (" + directory + ")";
+	}
+
+}
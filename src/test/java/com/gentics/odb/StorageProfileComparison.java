@@ -0,0 +1,150 @@
+package com.gentics.odb;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+
+/**
+ * Runs the same workload once per {@link StorageProfile} and collects the throughput and disk usage of each run. Comparing the memory
+ * profile with the disk profiles separates the cost of the storage engine from the cost of the I/O device.
+ */
+public class StorageProfileComparison {
+
+	/**
+	 * Workload which is executed against a freshly created database.
+	 */
+	@FunctionalInterface
+	public interface Workload {
+
+		/**
+		 * Execute the workload.
+		 *
+		 * @param factory
+		 * @return Amount of executed operations
+		 * @throws Exception
+		 */
+		long run(OrientGraphFactory factory) throws Exception;
+	}
+
+	private final String dbName;
+
+	private final List<StorageProfile> profiles;
+
+	private Workload setup;
+
+	public StorageProfileComparison(String dbName, List<StorageProfile> profiles) {
+		this.dbName = dbName;
+		this.profiles = profiles;
+	}
+
+	/**
+	 * Create a comparison for the profiles which were selected via the {@code storage.profiles} system property.
+	 *
+	 * @param dbName
+	 */
+	public StorageProfileComparison(String dbName) {
+		this(dbName, StorageProfile.selected());
+	}
+
+	/**
+	 * Set the workload which prepares the database (e.g. creates the types). It is not included in the measurement.
+	 *
+	 * @param setup
+	 * @return Fluent API
+	 */
+	public StorageProfileComparison setSetup(Workload setup) {
+		this.setup = setup;
+		return this;
+	}
+
+	/**
+	 * Run the workload for every profile. The databases are dropped after each run.
+	 *
+	 * @param workload
+	 * @return
+	 * @throws Exception
+	 */
+	public List<Result> run(Workload workload) throws Exception {
+		List<Result> results = new ArrayList<>();
+		for (StorageProfile profile : profiles) {
+			System.out.println("Running workload with storage profile " + profile);
+			OrientGraphFactory factory = profile.createFactory(dbName);
+			try {
+				if (setup != null) {
+					setup.run(factory);
+				}
+				long start = System.nanoTime();
+				long operations = workload.run(factory);
+				long durationMs = (System.nanoTime() - start) / 1_000_000;
+				results.add(new Result(profile, operations, durationMs, profile.getDiskUsage(dbName)));
+			} finally {
+				factory.drop();
+				factory.close();
+				profile.delete(dbName);
+			}
+		}
+		System.out.println(toTable(results));
+		return results;
+	}
+
+	/**
+	 * Format the results as a table. The last column compares the throughput with the first profile.
+	 *
+	 * @param results
+	 * @return
+	 */
+	public static String toTable(List<Result> results) {
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("%-10s %12s %10s %12s %12s %8s%n", "profile", "operations", "time [ms]", "ops/sec", "disk [MB]", "rel"));
+		double baseline = results.isEmpty() ? 0 : results.get(0).getOpsPerSecond();
+		for (Result result : results) {
+			double relative = baseline == 0 ? 0 : result.getOpsPerSecond() / baseline;
+			builder.append(String.format("%-10s %12d %10d %12.1f %12.2f %8.2f%n", result.getProfile().getName(), result.getOperations(),
+				result.getDurationMs(), result.getOpsPerSecond(), result.getDiskBytes() / (1024d * 1024d), relative));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Measurement of a single profile.
+	 */
+	public static class Result {
+
+		private final StorageProfile profile;
+
+		private final long operations;
+
+		private final long durationMs;
+
+		private final long diskBytes;
+
+		public Result(StorageProfile profile, long operations, long durationMs, long diskBytes) {
+			this.profile = profile;
+			this.operations = operations;
+			this.durationMs = durationMs;
+			this.diskBytes = diskBytes;
+		}
+
+		public StorageProfile getProfile() {
+			return profile;
+		}
+
+		public long getOperations() {
+			return operations;
+		}
+
+		public long getDurationMs() {
+			return durationMs;
+		}
+
+		public long getDiskBytes() {
+			return diskBytes;
+		}
+
+		public double getOpsPerSecond() {
+			return durationMs == 0 ? operations * 1000d : operations * 1000d / durationMs;
+		}
+	}
+
+}
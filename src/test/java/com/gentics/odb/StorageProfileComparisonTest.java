@@ -0,0 +1,84 @@
+package com.gentics.odb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.gentics.odb.StorageProfileComparison.Result;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+
+/**
+ * Runs a small insert workload with every available storage profile. Use {@code -Dstorage.profiles=memory,plocal:/mnt/disk} to compare
+ * specific locations.
+ */
+public class StorageProfileComparisonTest extends AbstractOrientTest {
+
+	private static final int VERTEX_COUNT = Integer.getInteger("profiles.vertexCount", 5_000);
+
+	private static final int BATCH_SIZE = 100;
+
+	@Test
+	public void testCompareProfiles() throws Exception {
+		List<StorageProfile> profiles = System.getProperty(StorageProfile.PROFILES_PROPERTY) == null ? StorageProfile.all()
+			: StorageProfile.selected();
+
+		StorageProfileComparison comparison = new StorageProfileComparison(StorageProfileComparisonTest.class.getSimpleName(), profiles);
+		comparison.setSetup(factory -> {
+			addVertexType(factory::getNoTx, "ContentImpl", null, null);
+			return 0;
+		});
+		List<Result> results = comparison.run(factory -> {
+			for (int i = 0; i < VERTEX_COUNT; i += BATCH_SIZE) {
+				OrientGraph tx = factory.getTx();
+				try {
+					for (int e = 0; e < BATCH_SIZE; e++) {
+						Vertex v = tx.addVertex("class:ContentImpl");
+						v.setProperty("uuid", Utils.randomUUID());
+						v.setProperty("text", Utils.randomUUID() + Utils.randomUUID());
+					}
+					tx.commit();
+				} finally {
+					tx.shutdown();
+				}
+			}
+			OrientGraphNoTx noTx = factory.getNoTx();
+			try {
+				return noTx.countVertices("ContentImpl");
+			} finally {
+				noTx.shutdown();
+			}
+		});
+
+		assertEquals(profiles.size(), results.size());
+		for (Result result : results) {
+			assertEquals(VERTEX_COUNT, result.getOperations());
+			if (result.getProfile().isMemory()) {
+				assertEquals(0, result.getDiskBytes());
+			} else {
+				assertTrue("Profile " + result.getProfile() + " should use disk space", result.getDiskBytes() > 0);
+			}
+		}
+	}
+
+	@Test
+	public void testParse() {
+		StorageProfile memory = StorageProfile.parse("memory");
+		assertTrue(memory.isMemory());
+		assertEquals("memory:test", memory.getUrl("test"));
+
+		StorageProfile plocal = StorageProfile.parse("plocal:target/custom");
+		assertEquals("plocal:" + new File("target/custom/test").getAbsolutePath(), plocal.getUrl("test"));
+		assertNull(plocal.getWalDirectory());
+
+		StorageProfile wal = StorageProfile.parse("wal:target/data:target/wal");
+		assertEquals(new File("target/wal"), wal.getWalDirectory());
+	}
+
+}
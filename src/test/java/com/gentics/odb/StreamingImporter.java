@@ -0,0 +1,748 @@
+package com.gentics.odb;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import com.orientechnologies.orient.core.command.OCommandOutputListener;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.db.record.ORecordLazyMultiValue;
+import com.orientechnologies.orient.core.db.record.ridbag.ORidBag;
+import com.orientechnologies.orient.core.db.tool.ODatabaseImport;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OSimpleKeyIndexDefinition;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerJSON;
+
+/**
+ * Importer for JSON database exports which streams the (gzipped) export with constant memory. In contrast to {@link ODatabaseImport} the
+ * records are written by multiple workers and the indexes are only built once all records have been written. The import is split into
+ * phases:
+ * <ol>
+ * <li>schema - The schema, clusters and security records are imported via {@link ODatabaseImport}</li>
+ * <li>records - The records are dispatched to the workers by their source cluster and written using batched commits. The mapping of the old
+ * to the new record ids is stored in a temporary index.</li>
+ * <li>links - The records of each cluster are loaded again and the links are changed to the new record ids. Links to security records are
+ * not changed.</li>
+ * <li>indexes - The index definitions are imported via {@link ODatabaseImport} which builds the indexes.</li>
+ * </ol>
+ */
+public class StreamingImporter {
+
+	/**
+	 * Clusters which contain the schema and index records. Their content is created by the schema and index phases.
+	 */
+	private static final Set<String> SKIPPED_CLUSTERS = new HashSet<>(Arrays.asList("internal", "index", "manindex"));
+
+	/**
+	 * Clusters which contain the users and roles. Their records (and the records of all clusters with lower ids) are imported by
+	 * {@link ODatabaseImport} during the schema phase, since it merges them with the security records of the database.
+	 */
+	private static final Set<String> SECURITY_CLUSTERS = new HashSet<>(Arrays.asList("orole", "ouser"));
+
+	private static final String RID_MAP_INDEX = "streamingImportRIDMap";
+
+	private static final String RID_PREFIX = "\"@rid\":\"#";
+
+	/**
+	 * Marker which tells the record workers that the stream has ended.
+	 */
+	private static final String END = new String();
+
+	private final ODatabaseDocumentInternal db;
+
+	private final File exportFile;
+
+	private int threads = 4;
+
+	private int batchSize = 1_000;
+
+	private int queueSize = 1_000;
+
+	private long progressInterval = 50_000;
+
+	private OCommandOutputListener listener = System.out::println;
+
+	private final List<PhaseResult> results = new ArrayList<>();
+
+	public StreamingImporter(ODatabaseDocumentInternal db, File exportFile) {
+		this.db = db;
+		this.exportFile = exportFile;
+	}
+
+	public StreamingImporter setThreads(int threads) {
+		this.threads = threads;
+		return this;
+	}
+
+	/**
+	 * Set the amount of records which are written or updated per transaction.
+	 *
+	 * @param batchSize
+	 * @return Fluent API
+	 */
+	public StreamingImporter setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * Set the amount of records which can be queued per worker. This limits the memory which is used when the workers can't keep up with
+	 * reading the export.
+	 *
+	 * @param queueSize
+	 * @return Fluent API
+	 */
+	public StreamingImporter setQueueSize(int queueSize) {
+		this.queueSize = queueSize;
+		return this;
+	}
+
+	public StreamingImporter setProgressInterval(long progressInterval) {
+		this.progressInterval = progressInterval;
+		return this;
+	}
+
+	public StreamingImporter setListener(OCommandOutputListener listener) {
+		this.listener = listener;
+		return this;
+	}
+
+	/**
+	 * Run the import.
+	 *
+	 * @return Results of the phases
+	 * @throws IOException
+	 */
+	public List<PhaseResult> importDatabase() throws IOException {
+		results.clear();
+		// The links of the records are only valid after the link phase
+		boolean validation = db.isValidationEnabled();
+		db.setValidationEnabled(false);
+		// The sessions are opened before the schema import since it replaces the security records
+		List<ODatabaseDocumentInternal> sessions = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			sessions.add(db.copy());
+		}
+		db.activateOnCurrentThread();
+		try (ExportJsonReader reader = new ExportJsonReader(new InputStreamReader(open(), StandardCharsets.UTF_8))) {
+
+			long start = System.currentTimeMillis();
+			Map<String, String> header = new LinkedHashMap<>();
+			reader.beginObject();
+			String key;
+			while ((key = reader.nextKey()) != null && !"records".equals(key)) {
+				if ("info".equals(key) || "clusters".equals(key) || "schema".equals(key)) {
+					header.put(key, reader.nextValue());
+				} else {
+					reader.skipValue();
+				}
+			}
+			Map<Integer, String> sourceClusters = parseClusters(header.get("clusters"));
+			List<String> pending = new ArrayList<>();
+			if (key != null) {
+				reader.beginArray();
+				header.put("records", readLeadingRecords(reader, sourceClusters, pending));
+				// ODatabaseImport expects the broken record ids after the records
+				header.put("brokenRids", "[]");
+			}
+			runImport(header, false);
+			addResult("schema", sourceClusters.size(), "clusters", reader.getCharsRead(), start);
+
+			if (key != null) {
+				createRidMap();
+				start = System.currentTimeMillis();
+				long bytes = reader.getCharsRead();
+				Set<String> targetClusters = importRecords(reader, pending, sessions, sourceClusters);
+				db.activateOnCurrentThread();
+				addResult("records", getRidMap().getSize(), "records", reader.getCharsRead() - bytes, start);
+
+				start = System.currentTimeMillis();
+				AtomicLong bytesScanned = new AtomicLong();
+				long scanned = remapLinks(sessions, targetClusters, bytesScanned);
+				db.activateOnCurrentThread();
+				addResult("links", scanned, "records", bytesScanned.get(), start);
+				db.getMetadata().getIndexManagerInternal().dropIndex(db, RID_MAP_INDEX);
+			}
+
+			start = System.currentTimeMillis();
+			long bytes = reader.getCharsRead();
+			Map<String, String> indexes = new LinkedHashMap<>();
+			indexes.put("info", header.get("info"));
+			while (key != null && (key = reader.nextKey()) != null) {
+				if ("indexes".equals(key)) {
+					indexes.put(key, reader.nextValue());
+				} else {
+					reader.skipValue();
+				}
+			}
+			if (indexes.containsKey("indexes")) {
+				runImport(indexes, true);
+			}
+			addResult("indexes", db.getMetadata().getIndexManagerInternal().getIndexes(db).size(), "indexes", reader.getCharsRead() - bytes,
+				start);
+		} finally {
+			for (ODatabaseDocumentInternal session : sessions) {
+				session.activateOnCurrentThread();
+				session.close();
+			}
+			db.activateOnCurrentThread();
+			db.setValidationEnabled(validation);
+		}
+		return results;
+	}
+
+	private InputStream open() throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(exportFile));
+		if (exportFile.getName().endsWith(".gz")) {
+			return new GZIPInputStream(in, 64 * 1024);
+		}
+		return in;
+	}
+
+	/**
+	 * Import the given top-level sections of the export via {@link ODatabaseImport}.
+	 */
+	private void runImport(Map<String, String> sections, boolean merge) throws IOException {
+		StringBuilder json = new StringBuilder("{");
+		for (Map.Entry<String, String> entry : sections.entrySet()) {
+			if (json.length() > 1) {
+				json.append(',');
+			}
+			json.append('"').append(entry.getKey()).append("\":").append(entry.getValue());
+		}
+		json.append('}');
+		ODatabaseImport databaseImport = new ODatabaseImport(db, new ByteArrayInputStream(json.toString().getBytes(StandardCharsets.UTF_8)),
+			listener);
+		try {
+			databaseImport.setMerge(merge);
+			databaseImport.importDatabase();
+		} finally {
+			databaseImport.close();
+		}
+	}
+
+	private Map<Integer, String> parseClusters(String json) {
+		Map<Integer, String> clusters = new HashMap<>();
+		if (json == null) {
+			return clusters;
+		}
+		ODocument doc = new ODocument().fromJSON("{\"clusters\":" + json + "}");
+		List<Map<String, Object>> entries = doc.field("clusters");
+		for (Map<String, Object> entry : entries) {
+			clusters.put(((Number) entry.get("id")).intValue(), (String) entry.get("name"));
+		}
+		return clusters;
+	}
+
+	private void createRidMap() {
+		db.getMetadata().getIndexManagerInternal().createIndex(db, RID_MAP_INDEX, OClass.INDEX_TYPE.DICTIONARY_HASH_INDEX.toString(),
+			new OSimpleKeyIndexDefinition(OType.LINK), null, null, null);
+	}
+
+	private OIndex getRidMap() {
+		return db.getMetadata().getIndexManagerInternal().getIndex(db, RID_MAP_INDEX);
+	}
+
+	/**
+	 * Read the records up to the last security cluster. The records are ordered by cluster id, thus the first record of a later cluster is
+	 * added to the pending records.
+	 *
+	 * @return JSON array of the leading records
+	 */
+	private String readLeadingRecords(ExportJsonReader reader, Map<Integer, String> sourceClusters, List<String> pending) throws IOException {
+		int lastSecurityCluster = -1;
+		for (Map.Entry<Integer, String> entry : sourceClusters.entrySet()) {
+			if (SECURITY_CLUSTERS.contains(entry.getValue())) {
+				lastSecurityCluster = Math.max(lastSecurityCluster, entry.getKey());
+			}
+		}
+		StringBuilder records = new StringBuilder("[");
+		String json;
+		while ((json = reader.nextElement()) != null) {
+			if (getClusterId(json) > lastSecurityCluster) {
+				pending.add(json);
+				break;
+			}
+			if (records.length() > 1) {
+				// Use the separator of the database export which is expected by ODatabaseImport
+				records.append(",,");
+			}
+			records.append(json);
+		}
+		if (json == null) {
+			// Mark the end of the records
+			pending.add(null);
+		}
+		return records.append(']').toString();
+	}
+
+	/**
+	 * Dispatch the records to the workers. All records of a cluster are handled by the same worker.
+	 *
+	 * @return Names of the clusters which received records
+	 */
+	private Set<String> importRecords(ExportJsonReader reader, List<String> pending, List<ODatabaseDocumentInternal> sessions,
+		Map<Integer, String> sourceClusters) throws IOException {
+		List<BlockingQueue<String>> queues = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			queues.add(new ArrayBlockingQueue<>(queueSize));
+		}
+		Set<String> targetClusters = ConcurrentHashMap.newKeySet();
+		AtomicLong written = new AtomicLong();
+		WorkerGroup workers = startWorkers("import-records", sessions,
+			(session, index) -> writeRecords(session, queues.get(index), sourceClusters, targetClusters, written));
+
+		long skipped = 0;
+		try {
+			Iterator<String> pendingIt = pending.iterator();
+			String json;
+			while ((json = pendingIt.hasNext() ? pendingIt.next() : reader.nextElement()) != null) {
+				int clusterId = getClusterId(json);
+				String cluster = sourceClusters.get(clusterId);
+				if (cluster == null || SKIPPED_CLUSTERS.contains(cluster) || SECURITY_CLUSTERS.contains(cluster)) {
+					skipped++;
+					continue;
+				}
+				queues.get(clusterId % threads).put(json);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Import was interrupted", e);
+		} finally {
+			// The workers must also be stopped when the export could not be read
+			end(queues);
+			workers.join();
+		}
+		listener.onMessage("Skipped " + skipped + " records of internal and security clusters");
+		return targetClusters;
+	}
+
+	/**
+	 * Put the end marker on every queue. The workers keep on draining their queues until they receive the marker, so the put can not block
+	 * forever.
+	 */
+	private static void end(List<BlockingQueue<String>> queues) {
+		boolean interrupted = false;
+		for (BlockingQueue<String> queue : queues) {
+			while (true) {
+				try {
+					queue.put(END);
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void writeRecords(ODatabaseDocumentInternal session, BlockingQueue<String> queue, Map<Integer, String> sourceClusters,
+		Set<String> targetClusters, AtomicLong written) throws InterruptedException {
+		OIndex ridMap = session.getMetadata().getIndexManagerInternal().getIndex(session, RID_MAP_INDEX);
+		List<ORID> oldIds = new ArrayList<>(batchSize);
+		List<ODocument> batch = new ArrayList<>(batchSize);
+		RuntimeException failure = null;
+		String json;
+		while ((json = queue.take()) != END) {
+			if (failure != null) {
+				// Keep on draining the queue so that the reader is not blocked
+				continue;
+			}
+			try {
+				if (batch.isEmpty()) {
+					session.begin();
+				}
+				ODocument doc = (ODocument) ORecordSerializerJSON.INSTANCE.fromString(json, new ODocument(), null);
+				ORID oldId = doc.getIdentity().copy();
+				String clusterName = sourceClusters.get(oldId.getClusterId());
+				ORecordInternal.setIdentity(doc, new ORecordId());
+				ORecordInternal.setVersion(doc, 0);
+				doc.setDirty();
+				session.save(doc, clusterName);
+				targetClusters.add(clusterName);
+				oldIds.add(oldId);
+				batch.add(doc);
+				if (batch.size() >= batchSize) {
+					flush(session, ridMap, oldIds, batch, written);
+				}
+			} catch (RuntimeException e) {
+				session.rollback();
+				failure = e;
+			}
+		}
+		if (failure == null && !batch.isEmpty()) {
+			flush(session, ridMap, oldIds, batch, written);
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Commit the batch and store the new ids of the records in the map. The new ids are only known after the commit.
+	 */
+	private void flush(ODatabaseDocumentInternal session, OIndex ridMap, List<ORID> oldIds, List<ODocument> batch, AtomicLong written) {
+		session.commit();
+		for (int i = 0; i < batch.size(); i++) {
+			ridMap.put(oldIds.get(i), batch.get(i).getIdentity());
+		}
+		progress("Written", written.addAndGet(batch.size()), batch.size());
+		oldIds.clear();
+		batch.clear();
+	}
+
+	/**
+	 * Extract the cluster id from the record id of the record without parsing the whole record.
+	 */
+	private static int getClusterId(String json) {
+		int start = json.indexOf(RID_PREFIX);
+		if (start < 0) {
+			return -1;
+		}
+		start += RID_PREFIX.length();
+		int end = json.indexOf(':', start);
+		if (end < 0) {
+			return -1;
+		}
+		try {
+			return Integer.parseInt(json.substring(start, end));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Change the links of the records in the clusters to the new record ids. The clusters are processed in parallel.
+	 *
+	 * @return Amount of scanned records
+	 */
+	private long remapLinks(List<ODatabaseDocumentInternal> sessions, Set<String> clusters, AtomicLong bytesScanned) {
+		Queue<String> pending = new ConcurrentLinkedQueue<>(clusters);
+		AtomicLong scanned = new AtomicLong();
+		AtomicLong updated = new AtomicLong();
+		AtomicLong unresolved = new AtomicLong();
+		startWorkers("import-links", sessions, (session, index) -> {
+			OIndex ridMap = session.getMetadata().getIndexManagerInternal().getIndex(session, RID_MAP_INDEX);
+			LinkMapper mapper = new LinkMapper(ridMap, unresolved);
+			String cluster;
+			List<ODocument> batch = new ArrayList<>(batchSize);
+			while ((cluster = pending.poll()) != null) {
+				// The changed records are saved in batches while the cluster is browsed. The updates keep the record ids, so the iterator does not
+				// return the records again
+				for (ORecord record : session.browseCluster(cluster)) {
+					bytesScanned.addAndGet(record.getSize());
+					if (record instanceof ODocument && mapper.remapFields((ODocument) record)) {
+						batch.add((ODocument) record);
+						if (batch.size() >= batchSize) {
+							saveAll(session, batch);
+							updated.addAndGet(batch.size());
+							batch.clear();
+						}
+					}
+					progress("Scanned", scanned.incrementAndGet(), 1);
+				}
+				saveAll(session, batch);
+				updated.addAndGet(batch.size());
+				batch.clear();
+			}
+		}).join();
+		listener.onMessage("Updated links of " + updated.get() + " records");
+		if (unresolved.get() > 0) {
+			listener.onMessage("Found " + unresolved.get() + " links to records which were not part of the export");
+		}
+		return scanned.get();
+	}
+
+	private static void saveAll(ODatabaseDocumentInternal session, List<ODocument> batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		session.begin();
+		try {
+			for (ODocument doc : batch) {
+				doc.save();
+			}
+			session.commit();
+		} catch (RuntimeException e) {
+			session.rollback();
+			throw e;
+		}
+	}
+
+	/**
+	 * Start a worker thread for each session.
+	 */
+	private WorkerGroup startWorkers(String name, List<ODatabaseDocumentInternal> sessions, Worker worker) {
+		WorkerGroup group = new WorkerGroup();
+		for (int i = 0; i < sessions.size(); i++) {
+			ODatabaseDocumentInternal session = sessions.get(i);
+			int index = i;
+			Thread thread = new Thread(() -> {
+				session.activateOnCurrentThread();
+				// The cache may still contain records which were replaced by the previous phase
+				session.getLocalCache().clear();
+				try {
+					worker.run(session, index);
+				} catch (Throwable e) {
+					group.failure.compareAndSet(null, e);
+				}
+			}, name + "-" + i);
+			group.threads.add(thread);
+			thread.start();
+		}
+		return group;
+	}
+
+	private void progress(String action, long count, long delta) {
+		if (count / progressInterval != (count - delta) / progressInterval) {
+			listener.onMessage(action + " " + count + " records");
+		}
+	}
+
+	private void addResult(String phase, long count, String unit, long bytes, long start) {
+		PhaseResult result = new PhaseResult(phase, count, unit, bytes, Math.max(1, System.currentTimeMillis() - start));
+		results.add(result);
+		listener.onMessage(result.toString());
+	}
+
+	@FunctionalInterface
+	private interface Worker {
+		void run(ODatabaseDocumentInternal session, int index) throws Exception;
+	}
+
+	private static class WorkerGroup {
+		private final List<Thread> threads = new ArrayList<>();
+		private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		/**
+		 * Wait for the workers and rethrow the first failure.
+		 */
+		void join() {
+			try {
+				for (Thread thread : threads) {
+					thread.join();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Import was interrupted", e);
+			}
+			if (failure.get() != null) {
+				throw new RuntimeException("Import worker failed", failure.get());
+			}
+		}
+	}
+
+	/**
+	 * Replaces the old record ids within the fields of a record.
+	 */
+	private static class LinkMapper {
+		private final OIndex ridMap;
+		private final AtomicLong unresolved;
+
+		LinkMapper(OIndex ridMap, AtomicLong unresolved) {
+			this.ridMap = ridMap;
+			this.unresolved = unresolved;
+		}
+
+		/**
+		 * Remap the fields of the document.
+		 *
+		 * @return true if a field was changed
+		 */
+		boolean remapFields(ODocument doc) {
+			boolean changed = false;
+			for (String name : doc.fieldNames()) {
+				Object value = doc.rawField(name);
+				Object mapped = remap(value);
+				if (mapped != value) {
+					OType type = doc.fieldType(name);
+					if (type != null) {
+						doc.field(name, mapped, type);
+					} else {
+						doc.field(name, mapped);
+					}
+					changed = true;
+				}
+			}
+			return changed;
+		}
+
+		/**
+		 * Return the remapped value or the same instance if the value contains no links which have to be changed.
+		 */
+		private Object remap(Object value) {
+			if (value instanceof ORidBag) {
+				ORidBag bag = (ORidBag) value;
+				List<OIdentifiable> ids = remapAll(bag.rawIterator());
+				if (ids == null) {
+					return value;
+				}
+				ORidBag mapped = new ORidBag();
+				for (OIdentifiable id : ids) {
+					mapped.add(id);
+				}
+				return mapped;
+			}
+			if (value instanceof ODocument && ((ODocument) value).isEmbedded()) {
+				// Embedded documents are changed in place
+				remapFields((ODocument) value);
+				return value;
+			}
+			if (value instanceof OIdentifiable) {
+				ORID id = ((OIdentifiable) value).getIdentity();
+				OIdentifiable mapped = lookup(id);
+				return mapped == null ? value : mapped.getIdentity();
+			}
+			if (value instanceof Collection) {
+				Iterator<?> it = value instanceof ORecordLazyMultiValue ? ((ORecordLazyMultiValue) value).rawIterator()
+					: ((Collection<?>) value).iterator();
+				List<Object> mapped = remapAll(it);
+				if (mapped == null) {
+					return value;
+				}
+				return value instanceof Set ? new HashSet<>(mapped) : mapped;
+			}
+			if (value instanceof Map) {
+				Map<Object, Object> mapped = null;
+				for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+					Object v = remap(entry.getValue());
+					if (v != entry.getValue() && mapped == null) {
+						mapped = new LinkedHashMap<>((Map<?, ?>) value);
+					}
+					if (mapped != null) {
+						mapped.put(entry.getKey(), v);
+					}
+				}
+				return mapped == null ? value : mapped;
+			}
+			return value;
+		}
+
+		/**
+		 * Remap the elements.
+		 *
+		 * @return Remapped elements or null if no element was changed
+		 */
+		@SuppressWarnings("unchecked")
+		private <T> List<T> remapAll(Iterator<?> it) {
+			List<Object> elements = new ArrayList<>();
+			boolean changed = false;
+			while (it.hasNext()) {
+				Object element = it.next();
+				Object mapped = remap(element);
+				changed |= mapped != element;
+				elements.add(mapped);
+			}
+			return changed ? (List<T>) elements : null;
+		}
+
+		private OIdentifiable lookup(ORID id) {
+			if (!id.isPersistent()) {
+				return null;
+			}
+			OIdentifiable mapped = (OIdentifiable) ridMap.get(id);
+			if (mapped == null) {
+				unresolved.incrementAndGet();
+			}
+			return mapped;
+		}
+	}
+
+	/**
+	 * Throughput of a single phase of the import.
+	 */
+	public static class PhaseResult {
+		private final String phase;
+		private final long count;
+		private final String unit;
+		private final long bytes;
+		private final long durationMs;
+
+		public PhaseResult(String phase, long count, String unit, long bytes, long durationMs) {
+			this.phase = phase;
+			this.count = count;
+			this.unit = unit;
+			this.bytes = bytes;
+			this.durationMs = durationMs;
+		}
+
+		public String getPhase() {
+			return phase;
+		}
+
+		/**
+		 * Return the amount of handled elements (see {@link #getUnit()}).
+		 *
+		 * @return
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		public String getUnit() {
+			return unit;
+		}
+
+		/**
+		 * Return the amount of bytes which were read. For the phases which read the export this is the amount of uncompressed JSON characters,
+		 * for the link phase the size of the scanned records.
+		 *
+		 * @return
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+
+		public long getDurationMs() {
+			return durationMs;
+		}
+
+		public double getCountPerSecond() {
+			return count * 1000d / durationMs;
+		}
+
+		public double getBytesPerSecond() {
+			return bytes * 1000d / durationMs;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Phase %s: %d %s, %d bytes in %d ms: %1.2f %s/sec, %1.2f bytes/sec", phase, count, unit, bytes, durationMs,
+				getCountPerSecond(), unit, getBytesPerSecond());
+		}
+	}
+
+}
@@ -0,0 +1,121 @@
+package com.gentics.odb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gentics.odb.StreamingImporter.PhaseResult;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+
+public class StreamingImporterTest extends AbstractOrientTest {
+
+	/**
+	 * Database which was created in OrientDB 3.0.34
+	 */
+	private static final File IMPORT_FILE = new File("exports/export_02-11-2020_10-32-17-606.json.gz");
+
+	private static final String DB_PATH = "target/streaming_import";
+
+	private OrientGraphFactory factory;
+
+	@Before
+	public void setupDB() throws IOException {
+		FileUtils.deleteDirectory(new File(DB_PATH));
+		factory = new OrientGraphFactory("plocal:" + DB_PATH).setupPool(16, 100);
+	}
+
+	@After
+	public void closeDB() {
+		// Drop the storage, otherwise the next test would reuse the storage of the deleted directory
+		factory.drop();
+		factory.close();
+	}
+
+	@Test
+	public void testImport() throws Exception {
+		ODatabaseDocumentTx db = factory.getDatabase();
+		try {
+			List<PhaseResult> results = new StreamingImporter((ODatabaseDocumentInternal) db, IMPORT_FILE)
+				.setThreads(4)
+				.setBatchSize(100)
+				.importDatabase();
+			results.forEach(System.out::println);
+			assertEquals(4, results.size());
+			assertTrue("Records should have been imported", results.get(1).getCount() > 0);
+			assertTrue("Indexes should have been imported", results.get(3).getCount() > 3);
+		} finally {
+			db.close();
+		}
+
+		OrientGraphNoTx graph = factory.getNoTx();
+		try {
+			long edges = 0;
+			for (Edge edge : graph.getEdges()) {
+				assertNotNull("The links of edge {" + edge.getId() + "} should have been remapped", edge.getVertex(Direction.OUT));
+				assertNotNull("The links of edge {" + edge.getId() + "} should have been remapped", edge.getVertex(Direction.IN));
+				edges++;
+			}
+			assertTrue("Edges should have been imported", edges > 0);
+			assertTrue("The admin user should have been imported", graph.getRawGraph().countClass("OUser") > 0);
+		} finally {
+			graph.shutdown();
+		}
+	}
+
+	/**
+	 * A truncated export must fail the import instead of blocking on the workers.
+	 */
+	@Test(expected = IOException.class, timeout = 120_000)
+	public void testTruncatedImport() throws Exception {
+		File truncated = new File("target", "truncated_export.json.gz");
+		byte[] content = FileUtils.readFileToByteArray(IMPORT_FILE);
+		FileUtils.writeByteArrayToFile(truncated, Arrays.copyOf(content, content.length * 3 / 4));
+		ODatabaseDocumentTx db = factory.getDatabase();
+		try {
+			new StreamingImporter((ODatabaseDocumentInternal) db, truncated)
+				.setThreads(4)
+				.setBatchSize(100)
+				.importDatabase();
+		} finally {
+			db.close();
+		}
+	}
+
+	@Test
+	public void testReader() throws IOException {
+		String json = "{\"info\":{\"name\":\"a\"},\"records\":[{\"@rid\":\"#9:0\",\"text\":\"with ] and \\\" }\"},,{\"@rid\":\"#9:1\"}],\"x\":1}";
+		try (ExportJsonReader reader = new ExportJsonReader(new StringReader(json))) {
+			reader.beginObject();
+			assertEquals("info", reader.nextKey());
+			assertEquals("{\"name\":\"a\"}", reader.nextValue());
+			assertEquals("records", reader.nextKey());
+			reader.beginArray();
+			ODocument first = new ODocument().fromJSON(reader.nextElement());
+			assertEquals("with ] and \" }", first.field("text"));
+			assertEquals("{\"@rid\":\"#9:1\"}", reader.nextElement());
+			assertEquals(null, reader.nextElement());
+			assertEquals("x", reader.nextKey());
+			reader.skipValue();
+			assertEquals(null, reader.nextKey());
+			assertEquals(json.length(), reader.getCharsRead());
+		}
+	}
+
+}
@@ -40,7 +40,7 @@ public class Tinkerpop3IndexRegressionTest {
 
 	@Before
 	public void setupDB() {
-		String url = "memory:tinkerpop" + System.currentTimeMillis();
+		String url = StorageProfile.current().getUrl("tinkerpop" + System.currentTimeMillis());
 		factory = new OrientGraphFactory(url);
 		addTypesAndIndices();
 	}
@@ -0,0 +1,132 @@
+package com.gentics.odb;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OIndexCursor;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
+
+/**
+ * Breadth-first traversal of a tree whose vertices reference their parents by an indexed set of parent ids, like the
+ * {@code NodeImpl_parents} index of {@link IndexRegression5Test}. The children of a whole level are fetched with one multi-key lookup on
+ * the parent index instead of one lookup per vertex. Large levels are split into batches, so that only the ids of the next level and one
+ * batch of vertices are held in memory.
+ */
+public class TreeTraversal {
+
+	private final String indexName;
+
+	private final String idKey;
+
+	private int batchSize = 1_000;
+
+	/**
+	 * Create the traversal.
+	 *
+	 * @param indexName
+	 *            Index on the parent ids of the vertices
+	 * @param idKey
+	 *            Property which contains the id that is referenced by the children
+	 */
+	public TreeTraversal(String indexName, String idKey) {
+		this.indexName = indexName;
+		this.idKey = idKey;
+	}
+
+	/**
+	 * Set the maximum amount of parent ids per index lookup and vertices per visited batch.
+	 *
+	 * @param batchSize
+	 * @return Fluent API
+	 */
+	public TreeTraversal setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * Visit the descendants of the root level by level. The root itself is not visited.
+	 *
+	 * @param tx
+	 * @param rootId
+	 *            Id of the root vertex
+	 * @param visitor
+	 * @return Total amount of visited vertices
+	 */
+	public long traverse(OrientBaseGraph tx, String rootId, LevelVisitor visitor) {
+		OIndex index = getIndex(tx);
+		List<String> level = new ArrayList<>();
+		level.add(rootId);
+		long visited = 0;
+		for (int depth = 1; !level.isEmpty(); depth++) {
+			List<String> next = new ArrayList<>();
+			for (int from = 0; from < level.size(); from += batchSize) {
+				List<String> parents = level.subList(from, Math.min(level.size(), from + batchSize));
+				List<Vertex> children = new ArrayList<>(batchSize);
+				for (OIdentifiable child : findChildren(index, parents)) {
+					Vertex vertex = tx.getVertex(child);
+					if (vertex == null) {
+						continue;
+					}
+					next.add(vertex.getProperty(idKey));
+					children.add(vertex);
+					if (children.size() >= batchSize) {
+						visitor.visit(depth, children);
+						visited += children.size();
+						children = new ArrayList<>(batchSize);
+					}
+				}
+				if (!children.isEmpty()) {
+					visitor.visit(depth, children);
+					visited += children.size();
+				}
+			}
+			level = next;
+		}
+		return visited;
+	}
+
+	@SuppressWarnings("deprecation")
+	private OIndex getIndex(OrientBaseGraph tx) {
+		OIndex index = tx.getRawGraph().getMetadata().getIndexManager().getIndex(indexName);
+		if (index == null) {
+			throw new IllegalArgumentException("Index {" + indexName + "} not found");
+		}
+		return index;
+	}
+
+	/**
+	 * Return the ids of the children of all parents with one index lookup. Vertices with more than one of the parents are only returned once.
+	 */
+	private Set<OIdentifiable> findChildren(OIndex index, List<String> parents) {
+		Set<OIdentifiable> children = new LinkedHashSet<>();
+		OIndexCursor cursor = index.iterateEntries(parents, true);
+		for (Map.Entry<Object, OIdentifiable> entry = cursor.nextEntry(); entry != null; entry = cursor.nextEntry()) {
+			children.add(entry.getValue().getIdentity());
+		}
+		return children;
+	}
+
+	/**
+	 * Receives the vertices of a level in batches.
+	 */
+	@FunctionalInterface
+	public interface LevelVisitor {
+
+		/**
+		 * Visit a batch of vertices.
+		 *
+		 * @param depth
+		 *            Depth of the vertices. The children of the root have the depth 1.
+		 * @param vertices
+		 */
+		void visit(int depth, List<Vertex> vertices);
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.gentics.odb;
+
+import static com.gentics.odb.IndexRegression5Test.INDEX_NAME;
+import static com.gentics.odb.IndexRegression5Test.NODE_TYPE;
+import static com.gentics.odb.IndexRegression5Test.PARENTS_KEY;
+import static com.gentics.odb.IndexRegression5Test.UUID_KEY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.orientechnologies.orient.core.metadata.schema.OClass.INDEX_TYPE;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+
+public class TreeTraversalTest extends AbstractOrientTest {
+
+	private static final int DEPTH = 4;
+
+	private static final int FANOUT = 3;
+
+	private OrientGraphFactory factory;
+
+	@Before
+	public void setupDB() {
+		factory = StorageProfile.current().createFactory("tinkerpop" + System.currentTimeMillis());
+		addVertexType(factory::getNoTx, NODE_TYPE, null, type -> {
+			type.createProperty(UUID_KEY, OType.STRING);
+			type.createProperty(PARENTS_KEY, OType.EMBEDDEDSET, OType.STRING);
+			String fields[] = { PARENTS_KEY };
+			ODocument meta = new ODocument().fields("ignoreNullValues", true);
+			type.createIndex(INDEX_NAME, INDEX_TYPE.NOTUNIQUE_HASH_INDEX.toString(), null, meta, fields);
+		});
+		OrientGraph tx = factory.getTx();
+		try {
+			addTree(tx, "R", 0);
+			tx.commit();
+		} finally {
+			tx.shutdown();
+		}
+	}
+
+	@After
+	public void closeDB() {
+		StorageProfile.current().drop(factory);
+	}
+
+	@Test
+	public void testLevels() {
+		Map<Integer, Integer> levels = new TreeMap<>();
+		Set<String> visited = new HashSet<>();
+		int batchSize = 4;
+		OrientGraph tx = factory.getTx();
+		try {
+			long total = new TreeTraversal(INDEX_NAME, UUID_KEY).setBatchSize(batchSize).traverse(tx, "R", (depth, vertices) -> {
+				assertTrue("Batches must not exceed the batch size", vertices.size() <= batchSize);
+				assertTrue("Levels must be visited in order", levels.keySet().stream().allMatch(d -> d <= depth));
+				levels.merge(depth, vertices.size(), Integer::sum);
+				for (Vertex vertex : vertices) {
+					String uuid = vertex.getProperty(UUID_KEY);
+					assertEquals("The uuid encodes the depth", depth, uuid.split("_").length - 1);
+					assertTrue("Vertex " + uuid + " visited twice", visited.add(uuid));
+				}
+			});
+			assertEquals(FANOUT + FANOUT * FANOUT + FANOUT * FANOUT * FANOUT + FANOUT * FANOUT * FANOUT * FANOUT, total);
+		} finally {
+			tx.shutdown();
+		}
+		for (int depth = 1; depth <= DEPTH; depth++) {
+			assertEquals((int) Math.pow(FANOUT, depth), (int) levels.get(depth));
+		}
+	}
+
+	@Test
+	public void testLeaf() {
+		OrientGraph tx = factory.getTx();
+		try {
+			long total = new TreeTraversal(INDEX_NAME, UUID_KEY).traverse(tx, "R_0_0_0_0", (depth, vertices) -> {
+				throw new AssertionError("A leaf has no children");
+			});
+			assertEquals(0, total);
+		} finally {
+			tx.shutdown();
+		}
+	}
+
+	private void addTree(OrientBaseGraph tx, String uuid, int depth) {
+		if (depth == DEPTH) {
+			return;
+		}
+		for (int i = 0; i < FANOUT; i++) {
+			String childUuid = uuid + "_" + i;
+			Vertex child = tx.addVertex("class:" + NODE_TYPE);
+			child.setProperty(UUID_KEY, childUuid);
+			child.setProperty(PARENTS_KEY, Collections.singleton(uuid));
+			addTree(tx, childUuid, depth + 1);
+		}
+	}
+
+}
@@ -1,29 +1,28 @@
 package com.gentics.odb;
 
-import java.util.UUID;
-
 public final class Utils {
 
 	private Utils() {
 	}
 
+	/**
+	 * Return a random uuid without dashes.
+	 *
+	 * @return
+	 * @see UuidGenerator#randomUuid()
+	 */
 	public static String randomUUID() {
-		final UUID uuid = UUID.randomUUID();
-		return (digits(uuid.getMostSignificantBits() >> 32, 8) + digits(uuid.getMostSignificantBits() >> 16, 4)
-			+ digits(uuid.getMostSignificantBits(), 4) + digits(uuid.getLeastSignificantBits() >> 48, 4)
-			+ digits(uuid.getLeastSignificantBits(), 12));
+		return UuidGenerator.randomUuid();
 	}
 
 	/**
-	 * Returns val represented by the specified number of hex digits.
-	 * 
-	 * @param val
-	 * @param digits
+	 * Return a time-ordered uuid without dashes.
+	 *
 	 * @return
+	 * @see UuidGenerator#orderedUuid()
 	 */
-	private static String digits(long val, int digits) {
-		long hi = 1L << (digits * 4);
-		return Long.toHexString(hi | (val & (hi - 1))).substring(1);
+	public static String orderedUUID() {
+		return UuidGenerator.orderedUuid();
 	}
 
 	public static void sleep(long time) {
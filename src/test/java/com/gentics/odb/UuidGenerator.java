@@ -0,0 +1,104 @@
+package com.gentics.odb;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generator for the 32 character hex uuids (version 4 uuids without dashes) which are used as keys of the vertices. The random bits are
+ * taken from {@link ThreadLocalRandom} instead of the synchronized {@link java.security.SecureRandom} of {@link java.util.UUID}, and the hex
+ * digits are written into a reused per thread buffer, so that the returned string is the only allocation. The ids are unique but not
+ * suitable as secrets.
+ *
+ * The {@link #orderedUuid()} ids follow the version 7 layout: the first 48 bits contain the unix time in milliseconds and the remaining bits
+ * are random. Ids which are created in different milliseconds sort in creation order, so that consecutive inserts hit neighbouring index
+ * pages instead of random ones. Ids within the same millisecond are not ordered.
+ */
+public final class UuidGenerator {
+
+	/**
+	 * Length of the hex representation.
+	 */
+	public static final int LENGTH = 32;
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[LENGTH]);
+
+	private UuidGenerator() {
+	}
+
+	/**
+	 * Return a random uuid.
+	 *
+	 * @return
+	 */
+	public static String randomUuid() {
+		char[] buffer = BUFFER.get();
+		writeRandomUuid(buffer, 0);
+		return new String(buffer);
+	}
+
+	/**
+	 * Write a random uuid into the buffer without allocating.
+	 *
+	 * @param dest
+	 * @param offset
+	 *            Position of the first of the {@link #LENGTH} characters
+	 */
+	public static void writeRandomUuid(char[] dest, int offset) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		// Set the version (4) and the variant (IETF) bits like java.util.UUID
+		long msb = (random.nextLong() & ~0xF000L) | 0x4000L;
+		long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+		writeHex(dest, offset, msb, lsb);
+	}
+
+	/**
+	 * Return a time-ordered uuid.
+	 *
+	 * @return
+	 */
+	public static String orderedUuid() {
+		char[] buffer = BUFFER.get();
+		writeOrderedUuid(buffer, 0, System.currentTimeMillis());
+		return new String(buffer);
+	}
+
+	/**
+	 * Write a time-ordered uuid into the buffer without allocating.
+	 *
+	 * @param dest
+	 * @param offset
+	 *            Position of the first of the {@link #LENGTH} characters
+	 * @param timestamp
+	 *            Unix time in milliseconds
+	 */
+	public static void writeOrderedUuid(char[] dest, int offset, long timestamp) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		// 48 bit timestamp, version (7) and 12 random bits
+		long msb = (timestamp << 16) | 0x7000L | (random.nextInt() & 0x0FFFL);
+		long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+		writeHex(dest, offset, msb, lsb);
+	}
+
+	/**
+	 * Write the 128 bits as {@link #LENGTH} lower case hex digits into the buffer.
+	 *
+	 * @param dest
+	 * @param offset
+	 * @param msb
+	 *            Most significant bits
+	 * @param lsb
+	 *            Least significant bits
+	 */
+	public static void writeHex(char[] dest, int offset, long msb, long lsb) {
+		for (int i = 15; i >= 0; i--) {
+			dest[offset + i] = HEX[(int) msb & 0xF];
+			msb >>>= 4;
+		}
+		for (int i = 31; i >= 16; i--) {
+			dest[offset + i] = HEX[(int) lsb & 0xF];
+			lsb >>>= 4;
+		}
+	}
+
+}
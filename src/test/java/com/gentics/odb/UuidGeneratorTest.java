@@ -0,0 +1,72 @@
+package com.gentics.odb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class UuidGeneratorTest {
+
+	@Test
+	public void testFormat() {
+		for (int i = 0; i < 10_000; i++) {
+			String uuid = UuidGenerator.randomUuid();
+			assertEquals(UuidGenerator.LENGTH, uuid.length());
+			assertTrue(uuid, uuid.matches("[0-9a-f]{32}"));
+			UUID parsed = UUID.fromString(uuid.substring(0, 8) + "-" + uuid.substring(8, 12) + "-" + uuid.substring(12, 16) + "-"
+				+ uuid.substring(16, 20) + "-" + uuid.substring(20));
+			assertEquals(4, parsed.version());
+			assertEquals(2, parsed.variant());
+		}
+	}
+
+	@Test
+	public void testWriteHex() {
+		UUID uuid = UUID.randomUUID();
+		char[] buffer = new char[UuidGenerator.LENGTH + 2];
+		UuidGenerator.writeHex(buffer, 1, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+		assertEquals(uuid.toString().replace("-", ""), new String(buffer, 1, UuidGenerator.LENGTH));
+		assertEquals(0, buffer[0]);
+		assertEquals(0, buffer[UuidGenerator.LENGTH + 1]);
+	}
+
+	@Test
+	public void testOrderedFormat() {
+		for (int i = 0; i < 10_000; i++) {
+			String uuid = UuidGenerator.orderedUuid();
+			assertTrue(uuid, uuid.matches("[0-9a-f]{32}"));
+			UUID parsed = UUID.fromString(uuid.substring(0, 8) + "-" + uuid.substring(8, 12) + "-" + uuid.substring(12, 16) + "-"
+				+ uuid.substring(16, 20) + "-" + uuid.substring(20));
+			assertEquals(7, parsed.version());
+			assertEquals(2, parsed.variant());
+		}
+	}
+
+	@Test
+	public void testOrdered() {
+		char[] buffer = new char[UuidGenerator.LENGTH];
+		String previous = null;
+		for (long timestamp = 1_600_000_000_000L; timestamp < 1_600_000_010_000L; timestamp++) {
+			UuidGenerator.writeOrderedUuid(buffer, 0, timestamp);
+			String uuid = new String(buffer);
+			assertEquals(timestamp, Long.parseLong(uuid.substring(0, 12), 16));
+			if (previous != null) {
+				assertTrue(previous + " < " + uuid, previous.compareTo(uuid) < 0);
+			}
+			previous = uuid;
+		}
+	}
+
+	@Test
+	public void testUnique() {
+		Set<String> uuids = new HashSet<>();
+		for (int i = 0; i < 100_000; i++) {
+			assertTrue(uuids.add(Utils.randomUUID()));
+		}
+	}
+
+}
@@ -0,0 +1,175 @@
+package com.gentics.odb.bench;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.gentics.odb.AbstractOrientTest;
+import com.gentics.odb.StorageProfile;
+import com.orientechnologies.orient.core.index.OCompositeKey;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.metadata.schema.OClass.INDEX_TYPE;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+
+/**
+ * Benchmarks the composite {@code (out, branch, type, language)} edge index lookup of the {@code IndexRegression*Test} tests. The lookup via
+ * {@link OrientGraph#getEdges(String, Object)} is compared with a direct {@link OIndex#get(Object)} on the storage
+ * profiles memory, plocal, tmpfs and separate WAL (see {@link StorageProfile}).
+ *
+ * Throughput and sample time (p50/p99) are reported by JMH. Run it via {@code mvn -Pjmh test-compile exec:exec -Djmh.args=CompositeEdgeIndexBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CompositeEdgeIndexBenchmark extends AbstractOrientTest {
+
+	public static final String EDGE_LABEL = "HAS_TEST_EDGE";
+	public static final String IDX_POSTFIX = "_branch_type_lang";
+	public static final String INDEX_NAME = "e." + EDGE_LABEL.toLowerCase() + IDX_POSTFIX;
+
+	public static final String TYPE_INITIAL = "I";
+	public static final String TYPE_PUBLISHED = "P";
+	public static final String TYPE_DRAFT = "D";
+	public static final String BRANCH_UUID = "branchUuidValue";
+	public static final String LANG_EN = "en";
+
+	public static final String TYPE_KEY = "type";
+	public static final String LANGUAGE_KEY = "language";
+	public static final String BRANCH_KEY = "branch";
+
+	@Param({ "memory", "plocal", "tmpfs", "wal" })
+	public String storage;
+
+	@Param({ "10000" })
+	public int nodeCount;
+
+	private OrientGraphFactory factory;
+
+	private final List<Object> nodeIds = new ArrayList<>();
+
+	@Setup(Level.Trial)
+	public void setupDB() {
+		factory = StorageProfile.parse(storage).createFactory(CompositeEdgeIndexBenchmark.class.getSimpleName());
+		addTypesAndIndices();
+		addGraph();
+	}
+
+	@TearDown(Level.Trial)
+	public void closeDB() {
+		factory.drop();
+		factory.close();
+	}
+
+	private void addTypesAndIndices() {
+		addEdgeType(factory::getNoTx, EDGE_LABEL, null, type -> {
+			type.createProperty("out", OType.LINK);
+			type.createProperty(TYPE_KEY, OType.STRING);
+			type.createProperty(LANGUAGE_KEY, OType.STRING);
+			type.createProperty(BRANCH_KEY, OType.STRING);
+
+			String fields[] = { "out", BRANCH_KEY, TYPE_KEY, LANGUAGE_KEY };
+			String indexType = INDEX_TYPE.NOTUNIQUE_HASH_INDEX.toString();
+			ODocument meta = new ODocument().fields("ignoreNullValues", true);
+			type.createIndex(INDEX_NAME, indexType, null, meta, fields);
+		});
+
+		addVertexType(factory::getNoTx, "NodeImpl", null, null);
+		addVertexType(factory::getNoTx, "ContentImpl", null, null);
+	}
+
+	private void addGraph() {
+		OrientGraph tx = factory.getTx();
+		try {
+			for (int i = 0; i < nodeCount; i++) {
+				Vertex node = tx.addVertex("class:NodeImpl");
+				for (String type : new String[] { TYPE_INITIAL, TYPE_DRAFT, TYPE_PUBLISHED }) {
+					Vertex content = tx.addVertex("class:ContentImpl");
+					Edge edge = node.addEdge(EDGE_LABEL, content);
+					edge.setProperty(TYPE_KEY, type);
+					edge.setProperty(LANGUAGE_KEY, LANG_EN);
+					edge.setProperty(BRANCH_KEY, BRANCH_UUID);
+				}
+				if (i % 1000 == 0) {
+					tx.commit();
+				}
+			}
+			tx.commit();
+
+			// Only persistent ids are valid lookup keys
+			for (Vertex node : tx.getVerticesOfClass("NodeImpl")) {
+				nodeIds.add(node.getId());
+			}
+		} finally {
+			tx.shutdown();
+		}
+		System.out.println("Created " + nodeIds.size() + " nodes with " + (nodeIds.size() * 3) + " edges in " + storage + " storage");
+	}
+
+	private OCompositeKey randomKey() {
+		Object nodeId = nodeIds.get(ThreadLocalRandom.current().nextInt(nodeIds.size()));
+		return new OCompositeKey(nodeId, BRANCH_UUID, TYPE_INITIAL, LANG_EN);
+	}
+
+	/**
+	 * Per thread graph which is used for the lookups.
+	 */
+	@State(Scope.Thread)
+	public static class GraphState {
+
+		OrientGraph tx;
+
+		OIndex index;
+
+		@Setup(Level.Trial)
+		public void open(CompositeEdgeIndexBenchmark benchmark) {
+			tx = benchmark.factory.getTx();
+			index = tx.getRawGraph().getMetadata().getIndexManager().getIndex(INDEX_NAME);
+		}
+
+		@TearDown(Level.Trial)
+		public void close() {
+			tx.shutdown();
+		}
+	}
+
+	@Benchmark
+	public void graphGetEdges(GraphState state, Blackhole bh) {
+		for (Edge edge : state.tx.getEdges(INDEX_NAME, randomKey())) {
+			bh.consume(edge);
+		}
+	}
+
+	@Benchmark
+	public void indexGet(GraphState state, Blackhole bh) {
+		Collection<?> ids = (Collection<?>) state.index.get(randomKey());
+		for (Object id : ids) {
+			bh.consume(id);
+		}
+	}
+
+}
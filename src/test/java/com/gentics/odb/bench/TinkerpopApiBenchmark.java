@@ -0,0 +1,312 @@
+package com.gentics.odb.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tinkerpop.gremlin.orientdb.OrientEdge;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.gentics.odb.StorageProfile;
+import com.gentics.odb.Utils;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.index.OCompositeKey;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OClass.INDEX_TYPE;
+import com.orientechnologies.orient.core.metadata.schema.OSchema;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+
+/**
+ * Runs the same workloads through the Tinkerpop 2 Blueprints API ({@code tp2*}) and the Tinkerpop 3 Gremlin API ({@code tp3*}) of OrientDB
+ * to measure the overhead of the wrappers. Both APIs use their own database with the same schema and data: nodes with three
+ * {@code HAS_TEST_EDGE} edges which are indexed by {@code (out, branch, type, language)} like in the {@code IndexRegression*Test} tests.
+ *
+ * <ul>
+ * <li>create: Create a content vertex and an edge from a random node and commit</li>
+ * <li>indexLookup: Lookup the edges of a random node via the composite index</li>
+ * <li>traverse: Load the adjacent vertices of a random node</li>
+ * <li>readProperties: Load a random node and read its properties</li>
+ * </ul>
+ *
+ * Add the GC profiler to report the allocated bytes per operation ({@code gc.alloc.rate.norm}). Run it via
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="TinkerpopApiBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TinkerpopApiBenchmark {
+
+	public static final String NODE_TYPE = "NodeImpl";
+	public static final String CONTENT_TYPE = "ContentImpl";
+	public static final String EDGE_LABEL = "HAS_TEST_EDGE";
+	public static final String INDEX_NAME = "e." + EDGE_LABEL.toLowerCase() + "_branch_type_lang";
+
+	public static final String TYPE_KEY = "type";
+	public static final String LANGUAGE_KEY = "language";
+	public static final String BRANCH_KEY = "branch";
+	public static final String UUID_KEY = "uuid";
+	public static final String NAME_KEY = "name";
+
+	public static final String BRANCH_UUID = "branchUuidValue";
+	public static final String LANG_EN = "en";
+	public static final String[] TYPES = { "I", "D", "P" };
+
+	@Param({ "memory", "plocal" })
+	public String storage;
+
+	@Param({ "10000" })
+	public int nodeCount;
+
+	private StorageProfile profile;
+
+	private OrientGraphFactory tp2Factory;
+
+	private org.apache.tinkerpop.gremlin.orientdb.OrientGraphFactory tp3Factory;
+
+	private final List<Object> tp2NodeIds = new ArrayList<>();
+
+	private final List<Object> tp3NodeIds = new ArrayList<>();
+
+	@Setup(Level.Trial)
+	public void setupDB() {
+		profile = StorageProfile.parse(storage);
+		tp2Factory = profile.createFactory(dbName("tp2"));
+		OrientGraphNoTx noTx = tp2Factory.getNoTx();
+		try {
+			createSchema(noTx.getRawGraph());
+		} finally {
+			noTx.shutdown();
+		}
+		addTp2Graph();
+
+		profile.delete(dbName("tp3"));
+		tp3Factory = new org.apache.tinkerpop.gremlin.orientdb.OrientGraphFactory(profile.getUrl(dbName("tp3")));
+		try (org.apache.tinkerpop.gremlin.orientdb.OrientGraph tp3NoTx = tp3Factory.getNoTx()) {
+			createSchema(tp3NoTx.getRawDatabase());
+		}
+		addTp3Graph();
+	}
+
+	@TearDown(Level.Trial)
+	public void closeDB() {
+		tp2Factory.drop();
+		tp2Factory.close();
+		tp3Factory.close();
+		profile.delete(dbName("tp3"));
+	}
+
+	private String dbName(String api) {
+		return TinkerpopApiBenchmark.class.getSimpleName() + "-" + api;
+	}
+
+	private static void createSchema(ODatabaseDocument db) {
+		OSchema schema = db.getMetadata().getSchema();
+		OClass edgeClass = schema.createClass(EDGE_LABEL, schema.getClass("E"));
+		edgeClass.createProperty("out", OType.LINK);
+		edgeClass.createProperty(TYPE_KEY, OType.STRING);
+		edgeClass.createProperty(LANGUAGE_KEY, OType.STRING);
+		edgeClass.createProperty(BRANCH_KEY, OType.STRING);
+		String fields[] = { "out", BRANCH_KEY, TYPE_KEY, LANGUAGE_KEY };
+		ODocument meta = new ODocument().fields("ignoreNullValues", true);
+		edgeClass.createIndex(INDEX_NAME, INDEX_TYPE.NOTUNIQUE_HASH_INDEX.toString(), null, meta, fields);
+		schema.createClass(NODE_TYPE, schema.getClass("V"));
+		schema.createClass(CONTENT_TYPE, schema.getClass("V"));
+	}
+
+	private void addTp2Graph() {
+		OrientGraph tx = tp2Factory.getTx();
+		try {
+			List<Vertex> nodes = new ArrayList<>();
+			for (int i = 0; i < nodeCount; i++) {
+				Vertex node = tx.addVertex("class:" + NODE_TYPE);
+				node.setProperty(UUID_KEY, Utils.randomUUID());
+				node.setProperty(NAME_KEY, "node" + i);
+				for (String type : TYPES) {
+					tp2AddContent(tx, node, type);
+				}
+				nodes.add(node);
+				if (i % 1000 == 0) {
+					tx.commit();
+				}
+			}
+			tx.commit();
+			// Only persistent ids are valid lookup keys
+			for (Vertex node : nodes) {
+				tp2NodeIds.add(node.getId());
+			}
+		} finally {
+			tx.shutdown();
+		}
+	}
+
+	private void addTp3Graph() {
+		try (org.apache.tinkerpop.gremlin.orientdb.OrientGraph tx = tp3Factory.getTx()) {
+			List<org.apache.tinkerpop.gremlin.structure.Vertex> nodes = new ArrayList<>();
+			for (int i = 0; i < nodeCount; i++) {
+				org.apache.tinkerpop.gremlin.structure.Vertex node = tx.addVertex(T.label, NODE_TYPE, UUID_KEY, Utils.randomUUID(), NAME_KEY,
+					"node" + i);
+				for (String type : TYPES) {
+					tp3AddContent(tx, node, type);
+				}
+				nodes.add(node);
+				if (i % 1000 == 0) {
+					tx.commit();
+				}
+			}
+			tx.commit();
+			for (org.apache.tinkerpop.gremlin.structure.Vertex node : nodes) {
+				tp3NodeIds.add(node.id());
+			}
+		}
+	}
+
+	private static Edge tp2AddContent(OrientGraph tx, Vertex node, String type) {
+		Vertex content = tx.addVertex("class:" + CONTENT_TYPE);
+		Edge edge = node.addEdge(EDGE_LABEL, content);
+		edge.setProperty(TYPE_KEY, type);
+		edge.setProperty(LANGUAGE_KEY, LANG_EN);
+		edge.setProperty(BRANCH_KEY, BRANCH_UUID);
+		return edge;
+	}
+
+	private static org.apache.tinkerpop.gremlin.structure.Edge tp3AddContent(org.apache.tinkerpop.gremlin.orientdb.OrientGraph tx,
+		org.apache.tinkerpop.gremlin.structure.Vertex node, String type) {
+		org.apache.tinkerpop.gremlin.structure.Vertex content = tx.addVertex(T.label, CONTENT_TYPE);
+		return node.addEdge(EDGE_LABEL, content, TYPE_KEY, type, LANGUAGE_KEY, LANG_EN, BRANCH_KEY, BRANCH_UUID);
+	}
+
+	private static Object random(List<Object> ids) {
+		return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+	}
+
+	private static OCompositeKey randomKey(List<Object> ids) {
+		return new OCompositeKey(random(ids), BRANCH_UUID, TYPES[0], LANG_EN);
+	}
+
+	/**
+	 * Per thread Blueprints graph.
+	 */
+	@State(Scope.Thread)
+	public static class Tp2State {
+
+		OrientGraph tx;
+
+		@Setup(Level.Trial)
+		public void open(TinkerpopApiBenchmark benchmark) {
+			tx = benchmark.tp2Factory.getTx();
+		}
+
+		@TearDown(Level.Trial)
+		public void close() {
+			tx.shutdown();
+		}
+	}
+
+	/**
+	 * Per thread Gremlin graph.
+	 */
+	@State(Scope.Thread)
+	public static class Tp3State {
+
+		org.apache.tinkerpop.gremlin.orientdb.OrientGraph tx;
+
+		OIndex index;
+
+		@Setup(Level.Trial)
+		public void open(TinkerpopApiBenchmark benchmark) {
+			tx = benchmark.tp3Factory.getTx();
+			index = tx.getRawDatabase().getMetadata().getIndexManager().getIndex(INDEX_NAME);
+		}
+
+		@TearDown(Level.Trial)
+		public void close() {
+			tx.close();
+		}
+	}
+
+	@Benchmark
+	public Object tp2Create(Tp2State state) {
+		Vertex node = state.tx.getVertex(random(tp2NodeIds));
+		Edge edge = tp2AddContent(state.tx, node, TYPES[2]);
+		state.tx.commit();
+		return edge;
+	}
+
+	@Benchmark
+	public Object tp3Create(Tp3State state) {
+		org.apache.tinkerpop.gremlin.structure.Vertex node = state.tx.vertices(random(tp3NodeIds)).next();
+		org.apache.tinkerpop.gremlin.structure.Edge edge = tp3AddContent(state.tx, node, TYPES[2]);
+		state.tx.commit();
+		return edge;
+	}
+
+	@Benchmark
+	public void tp2IndexLookup(Tp2State state, Blackhole bh) {
+		for (Edge edge : state.tx.getEdges(INDEX_NAME, randomKey(tp2NodeIds))) {
+			bh.consume(edge);
+		}
+	}
+
+	@Benchmark
+	public void tp3IndexLookup(Tp3State state, Blackhole bh) {
+		Iterator<Object> keys = Collections.<Object>singleton(randomKey(tp3NodeIds)).iterator();
+		state.tx.getIndexedEdges(state.index, keys).forEach((OrientEdge edge) -> bh.consume(edge));
+	}
+
+	@Benchmark
+	public void tp2Traverse(Tp2State state, Blackhole bh) {
+		Vertex node = state.tx.getVertex(random(tp2NodeIds));
+		for (Vertex content : node.getVertices(Direction.OUT, EDGE_LABEL)) {
+			bh.consume(content);
+		}
+	}
+
+	@Benchmark
+	public void tp3Traverse(Tp3State state, Blackhole bh) {
+		org.apache.tinkerpop.gremlin.structure.Vertex node = state.tx.vertices(random(tp3NodeIds)).next();
+		node.vertices(org.apache.tinkerpop.gremlin.structure.Direction.OUT, EDGE_LABEL).forEachRemaining(bh::consume);
+	}
+
+	@Benchmark
+	public void tp2ReadProperties(Tp2State state, Blackhole bh) {
+		Vertex node = state.tx.getVertex(random(tp2NodeIds));
+		bh.consume(node.<String>getProperty(UUID_KEY));
+		bh.consume(node.<String>getProperty(NAME_KEY));
+	}
+
+	@Benchmark
+	public void tp3ReadProperties(Tp3State state, Blackhole bh) {
+		org.apache.tinkerpop.gremlin.structure.Vertex node = state.tx.vertices(random(tp3NodeIds)).next();
+		bh.consume(node.<String>value(UUID_KEY));
+		bh.consume(node.<String>value(NAME_KEY));
+	}
+
+}
@@ -0,0 +1,151 @@
+package com.gentics.odb.bench;
+
+import static com.gentics.odb.IndexRegression5Test.INDEX_NAME;
+import static com.gentics.odb.IndexRegression5Test.NODE_TYPE;
+import static com.gentics.odb.IndexRegression5Test.PARENTS_KEY;
+import static com.gentics.odb.IndexRegression5Test.UUID_KEY;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.gentics.odb.AbstractOrientTest;
+import com.gentics.odb.StorageProfile;
+import com.gentics.odb.TreeTraversal;
+import com.orientechnologies.orient.core.metadata.schema.OClass.INDEX_TYPE;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+
+/**
+ * Benchmarks the traversal of the parent tree of {@code IndexRegression5Test}. The recursion of the test, which does one lookup on the
+ * {@code NodeImpl_parents} index and one lookup on the uuid index per vertex, is compared with the level-batched {@link TreeTraversal}.
+ * Each invocation traverses the whole tree.
+ *
+ * Run it via {@code mvn -Pjmh test-compile exec:exec -Djmh.args=TreeTraversalBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TreeTraversalBenchmark extends AbstractOrientTest {
+
+	public static final String UUID_INDEX_NAME = NODE_TYPE + ".uuid";
+
+	private static final String ROOT = "R";
+
+	@Param({ "memory", "plocal" })
+	public String storage;
+
+	@Param({ "5" })
+	public int depth;
+
+	@Param({ "2", "8" })
+	public int fanout;
+
+	@Param({ "1000" })
+	public int batchSize;
+
+	private StorageProfile profile;
+
+	private OrientGraphFactory factory;
+
+	private OrientGraph tx;
+
+	private TreeTraversal traversal;
+
+	@Setup(Level.Trial)
+	public void setupDB() {
+		profile = StorageProfile.parse(storage);
+		factory = profile.createFactory(TreeTraversalBenchmark.class.getSimpleName());
+		addVertexType(factory::getNoTx, NODE_TYPE, null, type -> {
+			type.createProperty(UUID_KEY, OType.STRING);
+			type.createProperty(PARENTS_KEY, OType.EMBEDDEDSET, OType.STRING);
+			String fields[] = { PARENTS_KEY };
+			ODocument meta = new ODocument().fields("ignoreNullValues", true);
+			type.createIndex(INDEX_NAME, INDEX_TYPE.NOTUNIQUE_HASH_INDEX.toString(), null, meta, fields);
+			String uuidFields[] = { UUID_KEY };
+			type.createIndex(UUID_INDEX_NAME, INDEX_TYPE.UNIQUE_HASH_INDEX.toString(), null, null, uuidFields);
+		});
+		OrientGraph setupTx = factory.getTx();
+		try {
+			addTree(setupTx, ROOT, 0);
+			setupTx.commit();
+		} finally {
+			setupTx.shutdown();
+		}
+		tx = factory.getTx();
+		traversal = new TreeTraversal(INDEX_NAME, UUID_KEY).setBatchSize(batchSize);
+	}
+
+	@TearDown(Level.Trial)
+	public void closeDB() {
+		tx.shutdown();
+		profile.drop(factory);
+	}
+
+	private void addTree(OrientBaseGraph tx, String uuid, int level) {
+		if (level == depth) {
+			return;
+		}
+		for (int i = 0; i < fanout; i++) {
+			String childUuid = uuid + "_" + i;
+			Vertex child = tx.addVertex("class:" + NODE_TYPE);
+			child.setProperty(UUID_KEY, childUuid);
+			child.setProperty(PARENTS_KEY, Collections.singleton(uuid));
+			addTree(tx, childUuid, level + 1);
+		}
+	}
+
+	@Benchmark
+	public void recursive(Blackhole bh) {
+		recurse(ROOT, bh);
+	}
+
+	/**
+	 * Same access pattern as {@code IndexRegression5Test.delete()}.
+	 */
+	private void recurse(String uuid, Blackhole bh) {
+		String key[] = { PARENTS_KEY };
+		String value[] = { uuid };
+		List<String> children = new ArrayList<>();
+		for (Vertex child : tx.getVertices(NODE_TYPE, key, value)) {
+			children.add(child.getProperty(UUID_KEY));
+		}
+		for (String child : children) {
+			recurse(child, bh);
+		}
+		if (!ROOT.equals(uuid)) {
+			for (Vertex vertex : tx.getVertices(UUID_INDEX_NAME, uuid)) {
+				bh.consume(vertex);
+			}
+		}
+	}
+
+	@Benchmark
+	public long levelBatched(Blackhole bh) {
+		return traversal.traverse(tx, ROOT, (level, vertices) -> vertices.forEach(bh::consume));
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.gentics.odb.bench;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gentics.odb.UuidGenerator;
+
+/**
+ * Compares the former {@code Utils.randomUUID()} implementation, which is based on {@link UUID#randomUUID()} and string concatenation, with
+ * the {@link UuidGenerator}. Each variant runs with one and with four threads to show how the throughput scales.
+ *
+ * Add the GC profiler to report the allocated bytes per operation ({@code gc.alloc.rate.norm}). Run it via
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="UuidGeneratorBenchmark -prof gc"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UuidGeneratorBenchmark {
+
+	private final char[] buffer = new char[UuidGenerator.LENGTH];
+
+	@Benchmark
+	@Threads(1)
+	public String legacy() {
+		return legacyRandomUUID();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public String legacy4Threads() {
+		return legacyRandomUUID();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public String randomUuid() {
+		return UuidGenerator.randomUuid();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public String randomUuid4Threads() {
+		return UuidGenerator.randomUuid();
+	}
+
+	/**
+	 * Writes into a reused buffer and must not allocate at all.
+	 */
+	@Benchmark
+	@Threads(1)
+	public char[] writeRandomUuid() {
+		UuidGenerator.writeRandomUuid(buffer, 0);
+		return buffer;
+	}
+
+	@Benchmark
+	@Threads(4)
+	public char[] writeRandomUuid4Threads() {
+		UuidGenerator.writeRandomUuid(buffer, 0);
+		return buffer;
+	}
+
+	private static String legacyRandomUUID() {
+		final UUID uuid = UUID.randomUUID();
+		return (digits(uuid.getMostSignificantBits() >> 32, 8) + digits(uuid.getMostSignificantBits() >> 16, 4)
+			+ digits(uuid.getMostSignificantBits(), 4) + digits(uuid.getLeastSignificantBits() >> 48, 4)
+			+ digits(uuid.getLeastSignificantBits(), 12));
+	}
+
+	private static String digits(long val, int digits) {
+		long hi = 1L << (digits * 4);
+		return Long.toHexString(hi | (val & (hi - 1))).substring(1);
+	}
+
+}
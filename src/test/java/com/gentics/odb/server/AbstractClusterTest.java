@@ -4,7 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -18,7 +18,7 @@ import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Vertex;
 import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
-import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientVertex;
 import com.tinkerpop.blueprints.impls.orient.OrientVertexType;
 
 public abstract class AbstractClusterTest {
@@ -40,11 +40,25 @@ public abstract class AbstractClusterTest {
 
 	public static final String PRODUCT_INFO = "ProductInfo";
 
+	/**
+	 * System property which enables the {@link GraphMetrics} of the database.
+	 */
+	public static final String METRICS_PROPERTY = "metrics.enabled";
+
+	/**
+	 * Capacity of the reservoirs which are used by {@link #getRandomProduct(OrientBaseGraph)} and {@link #getRandomProductInfo(OrientBaseGraph)}.
+	 */
+	public static final int RESERVOIR_CAPACITY = 10_000;
+
 	protected Database db;
 
-	private final Random randr = new Random();
+	private TxExecutor txExecutor;
+
+	private final RandomVertexSampler sampler = new RandomVertexSampler();
+
+	private final RidReservoir productReservoir = new RidReservoir(RESERVOIR_CAPACITY);
 
-	public final List<Object> productIds = new ArrayList<>();
+	private final RidReservoir productInfoReservoir = new RidReservoir(RESERVOIR_CAPACITY);
 
 	public List<Object> categoryIds = new ArrayList<>();
 
@@ -60,24 +74,38 @@ public abstract class AbstractClusterTest {
 		OGlobalConfiguration.RID_BAG_EMBEDDED_TO_SBTREEBONSAI_THRESHOLD.setValue(Integer.MAX_VALUE);
 		OGlobalConfiguration.DISTRIBUTED_BACKUP_DIRECTORY.setValue("target/backup_" + name);
 		db = new Database(name, graphDbBasePath, httpPort, binPort);
+		if (Boolean.getBoolean(METRICS_PROPERTY)) {
+			db.enableMetrics();
+		}
 	}
 
+	/**
+	 * Execute the handler in a transaction. Transactions which fail with a retryable conflict are retried by the {@link #getTxExecutor()}.
+	 * The handler may therefore run more than once and must not have side effects outside of the transaction. Return the created elements
+	 * instead and record their ids once this method returned.
+	 */
 	public <T> T tx(Function<OrientBaseGraph, T> handler) {
-		OrientGraph tx = db.getTx();
 		try {
-			try {
-				T result = handler.apply(tx);
-				tx.commit();
-				return result;
-			} catch (Exception e) {
-				e.printStackTrace();
-				// Explicitly invoke rollback as suggested by luigidellaquila
-				tx.rollback();
-				throw e;
+			return getTxExecutor().execute(handler);
+		} catch (Exception e) {
+			e.printStackTrace();
+			throw e;
+		}
+	}
+
+	/**
+	 * Return the executor which runs the transactions of {@link #tx(Function)} and records their latencies and conflicts.
+	 *
+	 * @return
+	 */
+	public synchronized TxExecutor getTxExecutor() {
+		if (txExecutor == null) {
+			txExecutor = new TxExecutor(db::getTx);
+			if (db.getMetrics() != null) {
+				db.getMetrics().setTxExecutor(txExecutor);
 			}
-		} finally {
-			tx.shutdown();
 		}
+		return txExecutor;
 	}
 
 	public void tx(Consumer<OrientBaseGraph> handler) {
@@ -87,6 +115,16 @@ public abstract class AbstractClusterTest {
 		});
 	}
 
+	/**
+	 * Execute the handler asynchronously in a transaction on the {@link Database#getAsyncExecutor()}.
+	 *
+	 * @param handler
+	 * @return
+	 */
+	public <T> CompletableFuture<T> txAsync(Function<OrientBaseGraph, T> handler) {
+		return db.getAsyncExecutor().execute(handler);
+	}
+
 	public Vertex createProduct(OrientBaseGraph tx, String uuid) {
 		Vertex v = tx.addVertex("class:" + PRODUCT);
 		v.setProperty("uuid", uuid);
@@ -101,7 +139,11 @@ public abstract class AbstractClusterTest {
 		return v;
 	}
 
-	public Vertex insertProduct(OrientBaseGraph tx, String productUuid, String infoUuid) {
+	/**
+	 * Create the product with its info vertex. The created vertices are added to the list. Their ids are only valid once the transaction was
+	 * committed, so pass the list to {@link #offerProducts(List)} afterwards.
+	 */
+	public Vertex insertProduct(OrientBaseGraph tx, String productUuid, String infoUuid, List<Vertex> created) {
 		Vertex product = createProduct(tx, productUuid);
 		Vertex info = createProductInfo(tx, infoUuid);
 		Edge edge = product.addEdge(HAS_INFO, info);
@@ -110,31 +152,44 @@ public abstract class AbstractClusterTest {
 		// for (Vertex category : tx.getVertices("@class", CATEGORY)) {
 		// category.addEdge(HAS_PRODUCT, product);
 		// }
-		productIds.add(product.getId());
+		created.add(product);
+		created.add(info);
 		return product;
 	}
 
-	public Vertex getRandomProduct(OrientBaseGraph tx) {
-		Iterable<Vertex> it = tx.getVerticesOfClass(AbstractClusterTest.PRODUCT);
-		List<Vertex> vertices = new ArrayList<>();
-		it.forEach(v -> {
-			vertices.add(v);
-		});
-
-		return vertices.get(randr.nextInt(vertices.size()));
+	/**
+	 * Create the product with its info vertex without offering the ids to the reservoirs.
+	 */
+	public Vertex addProduct(OrientBaseGraph tx, String productUuid, String infoUuid) {
+		return insertProduct(tx, productUuid, infoUuid, new ArrayList<>());
 	}
 
-	public Vertex getRandomProductInfo(OrientBaseGraph tx) {
-		Iterable<Vertex> it = tx.getVerticesOfClass(AbstractClusterTest.PRODUCT_INFO);
-		List<Vertex> vertices = new ArrayList<>();
-		it.forEach(v -> {
-			vertices.add(v);
-		});
-		if (vertices.isEmpty()) {
-			return null;
+	/**
+	 * Offer the ids of the committed products and product infos to the reservoirs.
+	 *
+	 * @param created
+	 *            Vertices which were collected by {@link #insertProduct(OrientBaseGraph, String, String, List)}
+	 */
+	public void offerProducts(List<Vertex> created) {
+		for (Vertex vertex : created) {
+			OrientVertex orientVertex = (OrientVertex) vertex;
+			RidReservoir reservoir = PRODUCT.equals(orientVertex.getLabel()) ? productReservoir : productInfoReservoir;
+			reservoir.offer(orientVertex.getIdentity());
 		}
+	}
+
+	/**
+	 * Pick a random product from the reservoir. Products which were not offered to the reservoir (e.g. by
+	 * {@link #insertProducts(long, int, int)}) are picked by sampling the clusters once the reservoir is empty.
+	 */
+	public Vertex getRandomProduct(OrientBaseGraph tx) {
+		Vertex product = sampler.pick(tx, productReservoir);
+		return product != null ? product : sampler.pick(tx, AbstractClusterTest.PRODUCT);
+	}
 
-		return vertices.get(randr.nextInt(vertices.size()));
+	public Vertex getRandomProductInfo(OrientBaseGraph tx) {
+		Vertex info = sampler.pick(tx, productInfoReservoir);
+		return info != null ? info : sampler.pick(tx, AbstractClusterTest.PRODUCT_INFO);
 	}
 
 	public void deleteAllProductInfos(OrientBaseGraph tx) {
@@ -142,10 +197,64 @@ public abstract class AbstractClusterTest {
 		it.forEach(v -> {
 			v.remove();
 		});
+		// Ids which remain after a rollback are dropped by the sampler
+		productInfoReservoir.clear();
 	}
 
+	/**
+	 * Delete all product infos in batches. Each batch is committed in its own transaction.
+	 *
+	 * @param batchSize
+	 * @return Amount of deleted product infos
+	 */
+	public long deleteAllProductInfos(int batchSize) {
+		long deleted = new ClassScan(db::getTx, PRODUCT_INFO).setBatchSize(batchSize).run(ClassScan.DELETE);
+		productInfoReservoir.clear();
+		return deleted;
+	}
 
 
+
+	/**
+	 * Create the product types of the replication workloads.
+	 *
+	 * @param node
+	 */
+	public void createProductSchema(Database node) {
+		node.addVertexType(node::getNoTx, PRODUCT, null, uuidTypeModifier());
+		node.addVertexType(node::getNoTx, PRODUCT_INFO, null, uuidTypeModifier());
+		node.addEdgeType(node::getNoTx, HAS_INFO, null);
+	}
+
+	/**
+	 * Return a replication workload which inserts a product with its info per transaction and looks the products up via the uuid index.
+	 *
+	 * @param cluster
+	 * @return
+	 */
+	public ReplicationWorkload productWorkload(LocalCluster cluster) {
+		return new ReplicationWorkload(cluster)
+			.setWriter((tx, uuid) -> addProduct(tx, uuid, uuid))
+			.setLookup((graph, uuid) -> graph.getVertices(PRODUCT + ".uuid", uuid).iterator().hasNext());
+	}
+
+	/**
+	 * Parse the comma separated values of the system property.
+	 *
+	 * @param property
+	 * @param defaultValue
+	 *            Comma separated default values
+	 * @param parser
+	 * @return
+	 */
+	public static <T> List<T> listProperty(String property, String defaultValue, Function<String, T> parser) {
+		List<T> values = new ArrayList<>();
+		for (String value : System.getProperty(property, defaultValue).split(",")) {
+			values.add(parser.apply(value.trim()));
+		}
+		return values;
+	}
+
 	public Consumer<OrientVertexType> nameTypeModifier() {
 		return (vertexType) -> {
 			String typeName = vertexType.getName();
@@ -160,15 +269,17 @@ public abstract class AbstractClusterTest {
 	}
 
 	public Consumer<OrientVertexType> uuidTypeModifier() {
-		return (vertexType) -> {
-			String typeName = vertexType.getName();
-			String fieldKey = "uuid";
-			vertexType.createProperty(fieldKey, OType.STRING);
-			String indexName = typeName + "_uuid";
-			vertexType.createIndex(indexName.toLowerCase(),
-				OClass.INDEX_TYPE.UNIQUE_HASH_INDEX.toString(),
-				null, new ODocument().fields("ignoreNullValues", true), new String[] { fieldKey });
-		};
+		return UuidKeys.stringUuidTypeModifier();
+	}
+
+	/**
+	 * Return the modifier which indexes the uuid as two longs instead of a string.
+	 *
+	 * @return
+	 * @see UuidKeys
+	 */
+	public Consumer<OrientVertexType> binaryUuidTypeModifier() {
+		return UuidKeys.binaryUuidTypeModifier();
 	}
 
 	protected void waitAndShutdown() throws IOException {
@@ -180,24 +291,44 @@ public abstract class AbstractClusterTest {
 	}
 
 	public void insertProducts(long nProducts) {
-		tx(tx -> {
+		List<Vertex> created = tx(tx -> {
+			List<Vertex> vertices = new ArrayList<>();
 			for (int i = 0; i < nProducts; i++) {
-				insertProduct(tx, Utils.randomUUID(), Utils.randomUUID());
+				insertProduct(tx, Utils.randomUUID(), Utils.randomUUID(), vertices);
 			}
-			return null;
+			return vertices;
 		});
+		// Only the vertices of the committed attempt are offered since the handler may have been retried
+		offerProducts(created);
+		System.out.println("Inserted " + nProducts + " products..");
+	}
+
+	/**
+	 * Insert the products in parallel. Each worker commits every batchSize products. The ids of the products are not offered to the
+	 * reservoirs.
+	 *
+	 * @param nProducts
+	 * @param threads
+	 * @param batchSize
+	 */
+	public void insertProducts(long nProducts, int threads, int batchSize) {
+		BulkLoader loader = new BulkLoader(db::getTx, threads, batchSize);
+		loader.load(nProducts, (tx, i) -> addProduct(tx, Utils.randomUUID(), Utils.randomUUID()));
 		System.out.println("Inserted " + nProducts + " products..");
 	}
 
 	public void createCategories(long nCategories) {
-		tx(tx -> {
+		List<Vertex> categories = tx(tx -> {
+			List<Vertex> vertices = new ArrayList<>();
 			for (int i = 0; i < nCategories; i++) {
-				Object id = tx.addVertex("class:" + CATEGORY).getId();
-				categoryIds.add(id);
-				System.out.println("Create category " + id);
+				vertices.add(tx.addVertex("class:" + CATEGORY));
 			}
-			return null;
+			return vertices;
 		});
+		for (Vertex category : categories) {
+			categoryIds.add(category.getId());
+			System.out.println("Create category " + category.getId());
+		}
 		System.out.println("Created " + nCategories + " categories...");
 	}
 
@@ -0,0 +1,199 @@
+package com.gentics.odb.server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.gentics.odb.LatencyHistogram;
+import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+
+/**
+ * Runs graph transactions on a bounded thread pool and returns futures, so that the calling threads don't block on the database. The
+ * amount of threads limits the database concurrency and should not exceed the size of the session pool. Transactions which don't fit into
+ * the bounded queue are rejected with a {@link RejectedExecutionException}.
+ *
+ * The transactions are executed by a {@link TxExecutor} which retries conflicts. The executor records the time which the transactions
+ * waited in the queue, the execution time of the handlers and the commit time.
+ */
+public class AsyncTxExecutor implements AutoCloseable {
+
+	private final TxExecutor txExecutor;
+
+	private final ThreadPoolExecutor pool;
+
+	private final LongAdder submitted = new LongAdder();
+
+	private final LongAdder rejected = new LongAdder();
+
+	private final AtomicInteger maxQueued = new AtomicInteger();
+
+	private final LatencyHistogram queueWait = new LatencyHistogram();
+
+	private final LatencyHistogram execution = new LatencyHistogram();
+
+	/**
+	 * Create the executor.
+	 *
+	 * @param txProvider
+	 * @param threads
+	 *            Maximum amount of concurrently executed transactions
+	 * @param queueCapacity
+	 *            Maximum amount of waiting transactions
+	 */
+	public AsyncTxExecutor(Supplier<OrientGraph> txProvider, int threads, int queueCapacity) {
+		this.txExecutor = new TxExecutor(txProvider);
+		AtomicInteger threadCount = new AtomicInteger();
+		this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), r -> {
+			Thread thread = new Thread(r, "async-tx-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Return the executor which runs the transactions. It can be used to configure the retries.
+	 *
+	 * @return
+	 */
+	public TxExecutor getTxExecutor() {
+		return txExecutor;
+	}
+
+	/**
+	 * Execute the handler asynchronously in a transaction.
+	 *
+	 * @param handler
+	 * @return Future which completes with the result of the handler after the commit
+	 */
+	public <T> CompletableFuture<T> execute(Function<OrientBaseGraph, T> handler) {
+		return execute(TxExecutor.DEFAULT_NAME, handler);
+	}
+
+	/**
+	 * Execute the handler asynchronously in a transaction.
+	 *
+	 * @param handler
+	 * @return Future which completes after the commit
+	 */
+	public CompletableFuture<Void> run(Consumer<OrientBaseGraph> handler) {
+		return run(TxExecutor.DEFAULT_NAME, handler);
+	}
+
+	/**
+	 * Execute the handler asynchronously in a transaction. The latency is recorded for the given transaction name.
+	 *
+	 * @param name
+	 * @param handler
+	 * @return Future which completes after the commit
+	 */
+	public CompletableFuture<Void> run(String name, Consumer<OrientBaseGraph> handler) {
+		return execute(name, tx -> {
+			handler.accept(tx);
+			return null;
+		});
+	}
+
+	/**
+	 * Execute the handler asynchronously in a transaction. The latency is recorded for the given transaction name. The returned future fails
+	 * with a {@link RejectedExecutionException} when the queue is full.
+	 *
+	 * @param name
+	 * @param handler
+	 * @return Future which completes with the result of the handler after the commit
+	 */
+	public <T> CompletableFuture<T> execute(String name, Function<OrientBaseGraph, T> handler) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		long enqueued = System.nanoTime();
+		try {
+			pool.execute(() -> {
+				queueWait.recordSince(enqueued);
+				try {
+					future.complete(txExecutor.execute(name, tx -> {
+						long start = System.nanoTime();
+						try {
+							return handler.apply(tx);
+						} finally {
+							execution.recordSince(start);
+						}
+					}));
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				}
+			});
+			submitted.increment();
+			maxQueued.accumulateAndGet(pool.getQueue().size(), Math::max);
+		} catch (RejectedExecutionException e) {
+			rejected.increment();
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * Stop accepting transactions and wait until the queued transactions were executed.
+	 */
+	@Override
+	public void close() throws InterruptedException {
+		pool.shutdown();
+		if (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+			pool.shutdownNow();
+		}
+	}
+
+	public int getThreads() {
+		return pool.getMaximumPoolSize();
+	}
+
+	public int getQueued() {
+		return pool.getQueue().size();
+	}
+
+	public int getMaxQueued() {
+		return maxQueued.get();
+	}
+
+	public long getSubmitted() {
+		return submitted.sum();
+	}
+
+	public long getRejected() {
+		return rejected.sum();
+	}
+
+	/**
+	 * Return the time between the submit and the start of the execution.
+	 *
+	 * @return
+	 */
+	public LatencyHistogram getQueueWait() {
+		return queueWait;
+	}
+
+	/**
+	 * Return the execution time of the handlers. Each attempt is recorded separately.
+	 *
+	 * @return
+	 */
+	public LatencyHistogram getExecution() {
+		return execution;
+	}
+
+	public LatencyHistogram getCommit() {
+		return txExecutor.getCommitLatency();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Async transactions: %d submitted, %d rejected, %d threads, max %d queued%n  queue wait %s%n  execution  %s%n  commit     %s",
+			getSubmitted(), getRejected(), getThreads(), getMaxQueued(), queueWait, execution, getCommit());
+	}
+
+}
@@ -0,0 +1,135 @@
+package com.gentics.odb.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gentics.odb.AbstractOrientTest;
+import com.gentics.odb.StorageProfile;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+
+public class AsyncTxExecutorTest extends AbstractOrientTest {
+
+	private static final String ITEM = "Item";
+
+	private OrientGraphFactory factory;
+
+	@Before
+	public void setupDB() {
+		factory = StorageProfile.current().createFactory("tinkerpop" + System.currentTimeMillis());
+		addVertexType(factory::getNoTx, ITEM, null, null);
+	}
+
+	@After
+	public void closeDB() {
+		StorageProfile.current().drop(factory);
+	}
+
+	@Test
+	public void testBoundedConcurrency() throws Exception {
+		int threads = 4;
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		List<CompletableFuture<Object>> futures = new ArrayList<>();
+		try (AsyncTxExecutor executor = new AsyncTxExecutor(factory::getTx, threads, 1_000)) {
+			for (int i = 0; i < 200; i++) {
+				int index = i;
+				futures.add(executor.execute("insert", tx -> {
+					maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+					try {
+						Vertex v = tx.addVertex("class:" + ITEM);
+						v.setProperty("index", index);
+						return v.getProperty("index");
+					} finally {
+						running.decrementAndGet();
+					}
+				}));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				assertEquals(i, futures.get(i).get(30, TimeUnit.SECONDS));
+			}
+			System.out.println(executor);
+			assertTrue("At most " + threads + " transactions may run in parallel", maxRunning.get() <= threads);
+			assertEquals(200, executor.getSubmitted());
+			assertEquals(0, executor.getRejected());
+			assertEquals(200, executor.getQueueWait().getCount());
+			assertEquals(200, executor.getExecution().getCount());
+			assertEquals(200, executor.getCommit().getCount());
+			assertEquals(200, executor.getTxExecutor().getLatencies().get("insert").getCount());
+		}
+		assertEquals(200, count(ITEM));
+	}
+
+	@Test
+	public void testRejection() throws Exception {
+		CountDownLatch blocked = new CountDownLatch(1);
+		try (AsyncTxExecutor executor = new AsyncTxExecutor(factory::getTx, 1, 2)) {
+			List<CompletableFuture<Void>> futures = new ArrayList<>();
+			for (int i = 0; i < 5; i++) {
+				futures.add(executor.run(tx -> {
+					try {
+						blocked.await(10, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}));
+			}
+			// One running and two queued transactions fit into the executor
+			assertEquals(2, executor.getRejected());
+			assertTrue(futures.get(4).isCompletedExceptionally());
+			try {
+				futures.get(3).get();
+				fail("The transaction should have been rejected");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof RejectedExecutionException);
+			}
+			blocked.countDown();
+			for (CompletableFuture<Void> future : futures.subList(0, 3)) {
+				future.get(10, TimeUnit.SECONDS);
+			}
+		}
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		try (AsyncTxExecutor executor = new AsyncTxExecutor(factory::getTx, 2, 10)) {
+			CompletableFuture<Void> future = executor.run(tx -> {
+				tx.addVertex("class:" + ITEM);
+				throw new IllegalStateException("failure");
+			});
+			try {
+				future.get(10, TimeUnit.SECONDS);
+				fail("The future should fail");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof IllegalStateException);
+			}
+			assertEquals(1, executor.getTxExecutor().getFailures());
+		}
+		assertEquals(0, count(ITEM));
+	}
+
+	private long count(String className) {
+		OrientGraphNoTx noTx = factory.getNoTx();
+		try {
+			return noTx.getRawGraph().countClass(className);
+		} finally {
+			noTx.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+package com.gentics.odb.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+
+/**
+ * Loader which splits the creation of elements across multiple worker threads. Each worker uses its own transaction which gets committed every
+ * {@link #batchSize} elements. The loader does not retain any created element or id.
+ */
+public class BulkLoader {
+
+	private final Supplier<OrientGraph> txProvider;
+
+	private final int threads;
+
+	private final int batchSize;
+
+	private final AtomicLong written = new AtomicLong();
+
+	public BulkLoader(Supplier<OrientGraph> txProvider, int threads, int batchSize) {
+		if (threads < 1 || batchSize < 1) {
+			throw new IllegalArgumentException("Thread count and batch size must be positive");
+		}
+		this.txProvider = txProvider;
+		this.threads = threads;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Invoke the writer for the given amount of elements and wait until all workers have committed their last batch.
+	 *
+	 * @param nElements
+	 *            Total amount of elements to be written
+	 * @param writer
+	 *            Writer which gets the transaction and the global index of the element that should be written
+	 * @return Amount of committed elements
+	 */
+	public long load(long nElements, BiConsumer<OrientBaseGraph, Long> writer) {
+		written.set(0);
+		long start = System.currentTimeMillis();
+		AtomicInteger workerCounter = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threads, r -> new Thread(r, "bulk-loader-" + workerCounter.getAndIncrement()));
+		try {
+			List<Future<Long>> futures = new ArrayList<>();
+			long perWorker = nElements / threads;
+			for (int i = 0; i < threads; i++) {
+				long from = i * perWorker;
+				// The last worker also handles the remainder
+				long to = i == threads - 1 ? nElements : from + perWorker;
+				futures.add(executor.submit(() -> work(from, to, writer)));
+			}
+			long total = 0;
+			for (Future<Long> future : futures) {
+				total += future.get();
+			}
+			long duration = Math.max(1, System.currentTimeMillis() - start);
+			System.out.println("Loaded " + total + " elements with " + threads + " threads in " + duration + " ms ("
+				+ rate(total, duration) + " elements/sec)");
+			return total;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Loading was interrupted", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Loading failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private long work(long from, long to, BiConsumer<OrientBaseGraph, Long> writer) {
+		String name = Thread.currentThread().getName();
+		long start = System.currentTimeMillis();
+		long count = 0;
+		OrientGraph tx = txProvider.get();
+		try {
+			for (long i = from; i < to; i++) {
+				writer.accept(tx, i);
+				count++;
+				if (count % batchSize == 0) {
+					tx.commit();
+					long total = written.addAndGet(batchSize);
+					long duration = Math.max(1, System.currentTimeMillis() - start);
+					System.out.println("[" + name + "] committed " + count + " elements (" + rate(count, duration) + " elements/sec), total "
+						+ total);
+				}
+			}
+			tx.commit();
+			written.addAndGet(count % batchSize);
+			return count;
+		} catch (Exception e) {
+			e.printStackTrace();
+			tx.rollback();
+			throw e;
+		} finally {
+			tx.shutdown();
+		}
+	}
+
+	/**
+	 * Return the amount of elements which have been committed so far.
+	 *
+	 * @return
+	 */
+	public long getWritten() {
+		return written.get();
+	}
+
+	private static long rate(long count, long durationMs) {
+		return count * 1000 / durationMs;
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.gentics.odb.server;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gentics.odb.AbstractOrientTest;
+import com.gentics.odb.StorageProfile;
+import com.gentics.odb.Utils;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+
+public class BulkLoaderTest extends AbstractOrientTest {
+
+	private static final int PRODUCT_COUNT = 10_000;
+
+	private OrientGraphFactory factory;
+
+	@Before
+	public void setupDB() {
+		factory = StorageProfile.current().createFactory("tinkerpop" + System.currentTimeMillis());
+		addVertexType(factory::getNoTx, AbstractClusterTest.PRODUCT, null, null);
+	}
+
+	@After
+	public void closeDB() {
+		StorageProfile.current().drop(factory);
+	}
+
+	@Test
+	public void testParallelLoad() {
+		BulkLoader loader = new BulkLoader(factory::getTx, 4, 1_000);
+		long loaded = loader.load(PRODUCT_COUNT, (tx, i) -> {
+			Vertex v = tx.addVertex("class:" + AbstractClusterTest.PRODUCT);
+			v.setProperty("uuid", Utils.randomUUID());
+		});
+		assertEquals(PRODUCT_COUNT, loaded);
+		assertEquals(PRODUCT_COUNT, loader.getWritten());
+
+		OrientGraphNoTx noTx = factory.getNoTx();
+		try {
+			assertEquals(PRODUCT_COUNT, noTx.countVertices(AbstractClusterTest.PRODUCT));
+		} finally {
+			noTx.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,287 @@
+package com.gentics.odb.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.iterator.ORecordIteratorCluster;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+
+/**
+ * Scans all records of a class cluster by cluster and applies an operation to them. Each batch of {@link #setBatchSize(int)} records is
+ * read and processed in its own transaction, so that the memory usage does not depend on the size of the class. The id of the last record
+ * of each committed batch is kept as checkpoint. A scan which failed can be resumed from the checkpoint via {@link #setResumeAfter(ORID)}.
+ */
+public class ClassScan {
+
+	/**
+	 * Operation which deletes the elements.
+	 */
+	public static final Operation DELETE = (tx, element) -> element.remove();
+
+	private final Supplier<OrientGraph> txProvider;
+
+	private final String className;
+
+	private int batchSize = 1_000;
+
+	private boolean polymorphic = true;
+
+	private ORID resumeAfter;
+
+	private Consumer<Progress> progressListener = System.out::println;
+
+	private volatile ORID checkpoint;
+
+	private volatile long processed;
+
+	public ClassScan(Supplier<OrientGraph> txProvider, String className) {
+		this.txProvider = txProvider;
+		this.className = className;
+	}
+
+	/**
+	 * Set the amount of records which are processed per transaction.
+	 *
+	 * @param batchSize
+	 * @return Fluent API
+	 */
+	public ClassScan setBatchSize(int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("The batch size must be positive");
+		}
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * Set whether the records of the sub classes are scanned as well (default: true).
+	 *
+	 * @param polymorphic
+	 * @return Fluent API
+	 */
+	public ClassScan setPolymorphic(boolean polymorphic) {
+		this.polymorphic = polymorphic;
+		return this;
+	}
+
+	/**
+	 * Skip all records up to and including the given record. Use the checkpoint of a failed scan to resume it.
+	 *
+	 * @param rid
+	 * @return Fluent API
+	 */
+	public ClassScan setResumeAfter(ORID rid) {
+		this.resumeAfter = rid;
+		return this;
+	}
+
+	/**
+	 * Set the listener which is informed after each committed batch. By default the progress is printed.
+	 *
+	 * @param progressListener
+	 * @return Fluent API
+	 */
+	public ClassScan setProgressListener(Consumer<Progress> progressListener) {
+		this.progressListener = progressListener;
+		return this;
+	}
+
+	/**
+	 * Apply the operation to all records of the class. When a batch fails, it is rolled back and the exception is thrown. The records of the
+	 * previous batches stay committed and the scan can be resumed after the {@link #getCheckpoint()}.
+	 *
+	 * @param operation
+	 * @return Amount of processed records
+	 */
+	public long run(Operation operation) {
+		processed = 0;
+		checkpoint = resumeAfter;
+		long start = System.currentTimeMillis();
+		long total = countRecords();
+		for (int clusterId : getClusterIds()) {
+			if (resumeAfter != null && clusterId < resumeAfter.getClusterId()) {
+				continue;
+			}
+			long position = resumeAfter != null && clusterId == resumeAfter.getClusterId() ? resumeAfter.getClusterPosition() + 1 : 0;
+			while (true) {
+				List<ORID> batch = nextBatch(clusterId, position);
+				if (batch.isEmpty()) {
+					break;
+				}
+				apply(batch, operation);
+				ORID last = batch.get(batch.size() - 1);
+				checkpoint = last;
+				processed += batch.size();
+				position = last.getClusterPosition() + 1;
+				progressListener.accept(new Progress(className, last, processed, total, System.currentTimeMillis() - start));
+				if (batch.size() < batchSize) {
+					break;
+				}
+			}
+		}
+		return processed;
+	}
+
+	private int[] getClusterIds() {
+		OrientGraph tx = txProvider.get();
+		try {
+			OClass clazz = tx.getRawGraph().getMetadata().getSchema().getClass(className);
+			if (clazz == null) {
+				throw new IllegalArgumentException("Class {" + className + "} not found");
+			}
+			int[] clusterIds = polymorphic ? clazz.getPolymorphicClusterIds() : clazz.getClusterIds();
+			int[] sorted = Arrays.copyOf(clusterIds, clusterIds.length);
+			Arrays.sort(sorted);
+			return sorted;
+		} finally {
+			tx.shutdown();
+		}
+	}
+
+	private long countRecords() {
+		OrientGraph tx = txProvider.get();
+		try {
+			return tx.getRawGraph().countClass(className, polymorphic);
+		} finally {
+			tx.shutdown();
+		}
+	}
+
+	/**
+	 * Read the ids of the next batch of the cluster.
+	 */
+	private List<ORID> nextBatch(int clusterId, long fromPosition) {
+		List<ORID> batch = new ArrayList<>(batchSize);
+		OrientGraph tx = txProvider.get();
+		try {
+			ODatabaseDocument db = tx.getRawGraph();
+			String clusterName = db.getClusterNameById(clusterId);
+			ORecordIteratorCluster<ODocument> it = db.browseCluster(clusterName, ODocument.class, fromPosition, -1);
+			while (it.hasNext() && batch.size() < batchSize) {
+				batch.add(it.next().getIdentity().copy());
+			}
+		} finally {
+			tx.shutdown();
+		}
+		return batch;
+	}
+
+	private void apply(List<ORID> batch, Operation operation) {
+		OrientGraph tx = txProvider.get();
+		try {
+			for (ORID rid : batch) {
+				Element element = tx.getElement(rid);
+				// The record may have been deleted since the batch was read
+				if (element != null) {
+					operation.apply(tx, element);
+				}
+			}
+			tx.commit();
+		} catch (RuntimeException e) {
+			tx.rollback();
+			throw new RuntimeException("Scan of {" + className + "} failed. The last committed record is {" + checkpoint + "}", e);
+		} finally {
+			tx.shutdown();
+		}
+	}
+
+	/**
+	 * Return the id of the last record of the last committed batch.
+	 *
+	 * @return Id or null when no batch has been committed
+	 */
+	public ORID getCheckpoint() {
+		return checkpoint;
+	}
+
+	/**
+	 * Return the amount of records which have been processed and committed in the current run.
+	 *
+	 * @return
+	 */
+	public long getProcessed() {
+		return processed;
+	}
+
+	/**
+	 * Operation which is applied to each record of the scan.
+	 */
+	@FunctionalInterface
+	public interface Operation {
+
+		/**
+		 * Apply the operation to the element.
+		 *
+		 * @param tx
+		 *            Transaction of the current batch
+		 * @param element
+		 */
+		void apply(OrientBaseGraph tx, Element element);
+	}
+
+	/**
+	 * Progress after a committed batch.
+	 */
+	public static class Progress {
+
+		private final String className;
+
+		private final ORID checkpoint;
+
+		private final long processed;
+
+		private final long total;
+
+		private final long durationMs;
+
+		public Progress(String className, ORID checkpoint, long processed, long total, long durationMs) {
+			this.className = className;
+			this.checkpoint = checkpoint;
+			this.processed = processed;
+			this.total = total;
+			this.durationMs = durationMs;
+		}
+
+		public ORID getCheckpoint() {
+			return checkpoint;
+		}
+
+		public long getProcessed() {
+			return processed;
+		}
+
+		/**
+		 * Return the amount of records of the class when the scan was started.
+		 *
+		 * @return
+		 */
+		public long getTotal() {
+			return total;
+		}
+
+		public long getDurationMs() {
+			return durationMs;
+		}
+
+		public long getRecordsPerSecond() {
+			return processed * 1000 / Math.max(1, durationMs);
+		}
+
+		@Override
+		public String toString() {
+			double percent = total == 0 ? 100 : processed * 100d / total;
+			return String.format("[scan %s] %d/%d records (%.1f%%), %d records/sec, checkpoint %s", className, processed, total, percent,
+				getRecordsPerSecond(), checkpoint);
+		}
+	}
+
+}
@@ -0,0 +1,110 @@
+package com.gentics.odb.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gentics.odb.AbstractOrientTest;
+import com.gentics.odb.StorageProfile;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+
+public class ClassScanTest extends AbstractOrientTest {
+
+	private static final String INFO = "ProductInfo";
+
+	private static final String SPECIAL_INFO = "SpecialProductInfo";
+
+	private static final int RECORDS = 2_500;
+
+	private OrientGraphFactory factory;
+
+	@Before
+	public void setupDB() {
+		factory = StorageProfile.current().createFactory("tinkerpop" + System.currentTimeMillis());
+		addVertexType(factory::getNoTx, INFO, null, null);
+		addVertexType(factory::getNoTx, SPECIAL_INFO, INFO, null);
+		new BulkLoader(factory::getTx, 2, 500).load(RECORDS, (tx, i) -> {
+			tx.addVertex("class:" + (i % 10 == 0 ? SPECIAL_INFO : INFO)).setProperty("index", i);
+		});
+	}
+
+	@After
+	public void closeDB() {
+		StorageProfile.current().drop(factory);
+	}
+
+	@Test
+	public void testDelete() {
+		List<ClassScan.Progress> progress = new ArrayList<>();
+		long deleted = new ClassScan(factory::getTx, INFO).setBatchSize(300).setProgressListener(progress::add).run(ClassScan.DELETE);
+		assertEquals(RECORDS, deleted);
+		assertEquals(0, count(INFO));
+		assertTrue("Each batch must be reported", progress.size() >= RECORDS / 300);
+		ClassScan.Progress last = progress.get(progress.size() - 1);
+		assertEquals(RECORDS, last.getProcessed());
+		assertEquals(RECORDS, last.getTotal());
+	}
+
+	@Test
+	public void testUpdateNonPolymorphic() {
+		long updated = new ClassScan(factory::getTx, SPECIAL_INFO).setPolymorphic(false).setBatchSize(100).run((tx, element) -> {
+			element.setProperty("special", true);
+		});
+		assertEquals(RECORDS / 10, updated);
+		OrientGraphNoTx noTx = factory.getNoTx();
+		try {
+			List<?> flagged = noTx.getRawGraph().query(new OSQLSynchQuery<>("SELECT FROM " + INFO + " WHERE special = true"));
+			assertEquals(RECORDS / 10, flagged.size());
+		} finally {
+			noTx.shutdown();
+		}
+	}
+
+	@Test
+	public void testResume() {
+		AtomicInteger visited = new AtomicInteger();
+		ClassScan scan = new ClassScan(factory::getTx, INFO).setBatchSize(200).setProgressListener(p -> {
+		});
+		try {
+			scan.run((tx, element) -> {
+				if (visited.incrementAndGet() == 1_000) {
+					throw new IllegalStateException("failure");
+				}
+				element.remove();
+			});
+			fail("The scan should fail");
+		} catch (RuntimeException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		ORID checkpoint = scan.getCheckpoint();
+		assertNotNull(checkpoint);
+		long committed = scan.getProcessed();
+		assertEquals("The failed batch must be rolled back", RECORDS - committed, count(INFO));
+
+		long resumed = new ClassScan(factory::getTx, INFO).setBatchSize(200).setResumeAfter(checkpoint).run(ClassScan.DELETE);
+		assertEquals(RECORDS, committed + resumed);
+		assertEquals(0, count(INFO));
+	}
+
+	private long count(String className) {
+		OrientGraphNoTx noTx = factory.getNoTx();
+		try {
+			return noTx.getRawGraph().countClass(className);
+		} finally {
+			noTx.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,44 @@
+package com.gentics.odb.server;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Starts a local cluster and prints the duration of the startup phases of each node. Use {@code -Dcluster.fastJoin=false} to compare the
+ * fast join with the join settings of config/hazelcast.xml.
+ */
+public class ClusterStartupTest {
+
+	private static final int NODES = Integer.getInteger("cluster.nodes", 3);
+	private static final boolean FAST_JOIN = Boolean.parseBoolean(System.getProperty("cluster.fastJoin", "true"));
+
+	private LocalCluster cluster;
+
+	@After
+	public void stopCluster() {
+		if (cluster != null) {
+			cluster.close();
+		}
+	}
+
+	@Test
+	public void testStartupPhases() throws Exception {
+		long start = System.currentTimeMillis();
+		cluster = new LocalCluster(ClusterStartupTest.class.getSimpleName(), NODES).setFastJoin(FAST_JOIN).start();
+		long duration = System.currentTimeMillis() - start;
+		System.out.println(cluster.getStartupReport());
+		System.out.println("Started " + NODES + " nodes in " + duration + " ms");
+
+		for (Database node : cluster.getNodes()) {
+			Map<String, Long> phases = node.getStartupProfiler().getPhaseDurationsMs();
+			assertTrue(phases.containsKey(StartupProfiler.CONFIG));
+			assertTrue("The join of {" + node.getNodeName() + "} was not recorded", phases.containsKey(StartupProfiler.HAZELCAST_JOIN));
+			assertTrue(phases.containsKey(StartupProfiler.ONLINE));
+		}
+	}
+
+}
@@ -0,0 +1,210 @@
+package com.gentics.odb.server;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.gentics.odb.LatencyHistogram;
+import com.gentics.odb.SampleReport;
+
+/**
+ * Runs the same replication workload against a series of freshly started local clusters which differ in their configuration. The results
+ * of all variants are collected in one report.
+ */
+public class ClusterSweep {
+
+	private final String name;
+
+	private final Consumer<Database> setup;
+
+	private final Function<LocalCluster, ReplicationWorkload> workloadFactory;
+
+	private final List<Variant> variants = new ArrayList<>();
+
+	/**
+	 * Create the sweep.
+	 *
+	 * @param name
+	 *            Name of the sweep which is used for the cluster directory and the report
+	 * @param setup
+	 *            Creates the schema on the first node
+	 * @param workloadFactory
+	 *            Creates the workload for a started cluster
+	 */
+	public ClusterSweep(String name, Consumer<Database> setup, Function<LocalCluster, ReplicationWorkload> workloadFactory) {
+		this.name = name;
+		this.setup = setup;
+		this.workloadFactory = workloadFactory;
+	}
+
+	public ClusterSweep addVariant(Variant variant) {
+		variants.add(variant);
+		return this;
+	}
+
+	public List<Variant> getVariants() {
+		return Collections.unmodifiableList(variants);
+	}
+
+	/**
+	 * Run the workload for all variants. The report is printed and written to target/&lt;name&gt;.csv.
+	 *
+	 * @return
+	 * @throws Exception
+	 */
+	public List<Row> run() throws Exception {
+		List<Row> rows = new ArrayList<>();
+		for (Variant variant : variants) {
+			System.out.println("Running variant " + variant);
+			LocalCluster cluster = new LocalCluster(name, variant.getNodes()).setSetup(setup);
+			variant.getConfigurer().accept(cluster);
+			try {
+				cluster.start();
+				ReplicationWorkload.Result result = workloadFactory.apply(cluster).run();
+				System.out.println(result);
+				rows.add(new Row(variant, result));
+			} finally {
+				cluster.close();
+			}
+		}
+		SampleReport report = report(rows);
+		System.out.println(report.toTable());
+		report.writeCsv(new File("target", name + ".csv"));
+		return rows;
+	}
+
+	/**
+	 * Create the report for the rows. The parameters of the variants are added as columns.
+	 *
+	 * @param rows
+	 * @return
+	 */
+	public static SampleReport report(List<Row> rows) {
+		SampleReport report = new SampleReport()
+			.addColumn("variant", "%-40s")
+			.addColumn("nodes", "%12d");
+		if (!rows.isEmpty()) {
+			for (String parameter : rows.get(0).getVariant().getParameters().keySet()) {
+				report.addColumn(parameter, "%12s");
+			}
+		}
+		report.addColumn("tx/sec", "%12.2f")
+			.addColumn("commit p50", "%12.2f")
+			.addColumn("commit p99", "%12.2f")
+			.addColumn("lag p50", "%12.2f")
+			.addColumn("lag p99", "%12.2f")
+			.addColumn("lag max", "%12.2f")
+			.addColumn("timeouts", "%12d");
+		for (Row row : rows) {
+			ReplicationWorkload.Result result = row.getResult();
+			LatencyHistogram commit = result.getCommitLatency();
+			LatencyHistogram lag = result.getLag();
+			List<Object> values = new ArrayList<>();
+			values.add(row.getVariant().getName());
+			values.add(row.getVariant().getNodes());
+			values.addAll(row.getVariant().getParameters().values());
+			values.add(result.getTxPerSecond());
+			values.add(commit.getPercentileMs(50));
+			values.add(commit.getPercentileMs(99));
+			values.add(lag.getPercentileMs(50));
+			values.add(lag.getPercentileMs(99));
+			values.add(LatencyHistogram.toMs(lag.getMax()));
+			values.add(result.getTimeouts());
+			report.addRow(values.toArray());
+		}
+		return report;
+	}
+
+	/**
+	 * Cluster configuration which is measured.
+	 */
+	public static class Variant {
+
+		private final String name;
+
+		private final int nodes;
+
+		private final Map<String, Object> parameters = new LinkedHashMap<>();
+
+		private Consumer<LocalCluster> configurer = cluster -> {
+		};
+
+		public Variant(String name, int nodes) {
+			this.name = name;
+			this.nodes = nodes;
+		}
+
+		/**
+		 * Add a parameter which is listed in the report.
+		 *
+		 * @param key
+		 * @param value
+		 * @return Fluent API
+		 */
+		public Variant setParameter(String key, Object value) {
+			parameters.put(key, value);
+			return this;
+		}
+
+		/**
+		 * Set the handler which applies the configuration to the cluster before it is started.
+		 *
+		 * @param configurer
+		 * @return Fluent API
+		 */
+		public Variant setConfigurer(Consumer<LocalCluster> configurer) {
+			this.configurer = configurer;
+			return this;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getNodes() {
+			return nodes;
+		}
+
+		public Map<String, Object> getParameters() {
+			return parameters;
+		}
+
+		public Consumer<LocalCluster> getConfigurer() {
+			return configurer;
+		}
+
+		@Override
+		public String toString() {
+			return name + " (" + nodes + " nodes) " + parameters;
+		}
+	}
+
+	/**
+	 * Result of a variant.
+	 */
+	public static class Row {
+
+		private final Variant variant;
+
+		private final ReplicationWorkload.Result result;
+
+		public Row(Variant variant, ReplicationWorkload.Result result) {
+			this.variant = variant;
+			this.result = result;
+		}
+
+		public Variant getVariant() {
+			return variant;
+		}
+
+		public ReplicationWorkload.Result getResult() {
+			return result;
+		}
+	}
+
+}
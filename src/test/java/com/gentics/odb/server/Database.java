@@ -16,9 +16,12 @@ import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
+import javax.management.JMException;
+
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringEscapeUtils;
 
+import com.gentics.odb.StorageProfile;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.ILock;
 import com.orientechnologies.orient.core.command.OCommandOutputListener;
@@ -51,7 +54,18 @@ public class Database {
 	private OrientGraphFactory factory;
 	private String httpPort;
 	private String binPort;
+	private File configDirectory = new File("config");
+	private String hazelcastConfigName = "hazelcast.xml";
+	private boolean shutdownEngineOnExit = true;
+	private final StartupProfiler startupProfiler;
 	private LatchingDistributedLifecycleListener listener;
+	private SessionPool sessionPool;
+	private int poolMinSize = 1;
+	private int poolMaxSize = 64;
+	private long poolAcquireTimeoutMs = 30_000;
+	private AsyncTxExecutor asyncExecutor;
+	private int asyncQueueCapacity = 1_000;
+	private GraphMetrics metrics;
 	// private HazelcastInstance hazelcastInstance;
 
 	public Database(String nodeName, String basePath, String httpPort, String binPort) {
@@ -59,12 +73,61 @@ public class Database {
 		this.basePath = basePath;
 		this.httpPort = httpPort;
 		this.binPort = binPort;
+		this.startupProfiler = new StartupProfiler(nodeName);
 	}
 
 	public OServer getServer() {
 		return server;
 	}
 
+	public String getNodeName() {
+		return nodeName;
+	}
+
+	/**
+	 * Set the directory which contains the hazelcast.xml and default-distributed-db-config.json of this node.
+	 *
+	 * @param configDirectory
+	 * @return Fluent API
+	 */
+	public Database setConfigDirectory(File configDirectory) {
+		this.configDirectory = configDirectory;
+		return this;
+	}
+
+	/**
+	 * Use the config/hazelcast-fast-join.xml which discovers the other nodes on the loopback interface via TCP-IP instead of multicast and
+	 * joins without the initial wait.
+	 *
+	 * @param fastJoin
+	 * @return Fluent API
+	 */
+	public Database setFastJoin(boolean fastJoin) {
+		this.hazelcastConfigName = fastJoin ? "hazelcast-fast-join.xml" : "hazelcast.xml";
+		return this;
+	}
+
+	/**
+	 * Return the profiler which contains the phases of the last server startup.
+	 *
+	 * @return
+	 */
+	public StartupProfiler getStartupProfiler() {
+		return startupProfiler;
+	}
+
+	/**
+	 * Set whether the shutdown of the server should also shutdown the OrientDB engines. Must be disabled when multiple servers are running
+	 * in the same JVM.
+	 *
+	 * @param shutdownEngineOnExit
+	 * @return Fluent API
+	 */
+	public Database setShutdownEngineOnExit(boolean shutdownEngineOnExit) {
+		this.shutdownEngineOnExit = shutdownEngineOnExit;
+		return this;
+	}
+
 	private String getOrientServerConfig() throws IOException {
 		InputStream configIns = getClass().getResourceAsStream("/config/orientdb-server-config.xml");
 		StringWriter writer = new StringWriter();
@@ -75,11 +138,14 @@ public class Database {
 		System.setProperty("ORIENTDB_PLUGIN_DIR", "orient-plugins");
 		System.setProperty("plugin.directory", "plugins");
 		System.setProperty("ORIENTDB_CONFDIR_NAME", "config");
-		System.setProperty("ORIENTDB_CONFDIR_PATH", new File("config").getAbsolutePath());
+		System.setProperty("ORIENTDB_CONFDIR_PATH", configDirectory.getAbsolutePath());
+		System.setProperty("ORIENTDB_HAZELCAST_CONFIG", hazelcastConfigName);
 		System.setProperty("ORIENTDB_NODE_NAME", nodeName);
 		System.setProperty("ORIENTDB_DISTRIBUTED", "true");
 		System.setProperty("ORIENTDB_DB_PATH", escapePath(basePath));
 		System.setProperty("ORIENTDB_HOME", new File(".").getAbsolutePath());
+		// The JAXB optimizer of the server config loader can't inject classes on newer JVMs
+		System.setProperty("com.sun.xml.bind.v2.bytecode.ClassTailor.noOptimize", "true");
 		configString = PropertyUtil.resolve(configString);
 		return configString;
 	}
@@ -89,39 +155,48 @@ public class Database {
 	}
 
 	public OServer startOrientServer(boolean waitForDB) throws Exception {
-
-		String orientdbHome = new File("").getAbsolutePath();
-		System.setProperty("ORIENTDB_HOME", orientdbHome);
-		if (server == null) {
-			this.server = OServerMain.create();
-		}
-		server.startup(getOrientServerConfig());
-		startHazelcast();
-
-		// ILock lock = hazelcastInstance.getLock(TX_LOCK_KEY);
-		// lock.lock();
+		startupProfiler.start();
 		try {
-			OServerPluginManager manager = new OServerPluginManager();
-			manager.config(server);
-			server.activate();
-			ODistributedServerManager distributedManager = server.getDistributedManager();
-			this.listener = new LatchingDistributedLifecycleListener(nodeName);
-			distributedManager.registerLifecycleListener(listener);
-
-			manager.startup();
-			postStartupDBEventHandling();
-			System.out.println("Server startup done");
-
-			// Replication may occur directly or we need to wait.
-			if (waitForDB) {
-				waitForDB();
+			String orientdbHome = new File("").getAbsolutePath();
+			System.setProperty("ORIENTDB_HOME", orientdbHome);
+			if (server == null) {
+				this.server = OServerMain.create(shutdownEngineOnExit);
 			}
+			server.startup(getOrientServerConfig());
+			startupProfiler.mark(StartupProfiler.CONFIG);
+			server.registerLifecycleListener(startupProfiler);
+			startHazelcast();
+
+			// ILock lock = hazelcastInstance.getLock(TX_LOCK_KEY);
+			// lock.lock();
+			try {
+				OServerPluginManager manager = new OServerPluginManager();
+				manager.config(server);
+				server.activate();
+				ODistributedServerManager distributedManager = server.getDistributedManager();
+				this.listener = new LatchingDistributedLifecycleListener(nodeName, startupProfiler);
+				distributedManager.registerLifecycleListener(listener);
+
+				manager.startup();
+				startupProfiler.mark(StartupProfiler.PLUGINS);
+				postStartupDBEventHandling();
+				System.out.println("Server startup done");
+
+				// Replication may occur directly or we need to wait.
+				if (waitForDB) {
+					waitForDB();
+				}
 
+			} finally {
+				System.out.println("Releasing lock");
+				// lock.unlock();
+			}
+			startupProfiler.mark(StartupProfiler.ONLINE);
+			System.out.println(startupProfiler);
+			return server;
 		} finally {
-			System.out.println("Releasing lock");
-			// lock.unlock();
+			startupProfiler.stop();
 		}
-		return server;
 	}
 
 	public void startHazelcast() throws FileNotFoundException {
@@ -188,17 +263,25 @@ public class Database {
 	}
 
 	private void waitForDB() throws InterruptedException {
+		// The database may already be online when the listener gets registered
+		if (server.getDistributedManager().getDatabaseStatus(nodeName, "storage") == DB_STATUS.ONLINE) {
+			startupProfiler.mark(StartupProfiler.DATABASE_SYNC);
+			System.out.println("Database is already online");
+			return;
+		}
 		System.out.println("Waiting for database");
-		listener.waitForMainGraphDB(20, TimeUnit.SECONDS);
-		System.out.println("Found database");
+		if (listener.waitForMainGraphDB(20, TimeUnit.SECONDS)) {
+			System.out.println("Found database");
+		} else {
+			System.out.println("Database did not come online within 20 seconds");
+		}
 	}
 
 	public OrientGraph getTx() {
 		if (factory != null) {
-			return factory.getTx();
+			return metrics != null ? metrics.getTx(factory) : factory.getTx();
 		} else {
-			ODatabaseSession db = server.getContext().open("storage", "admin", "admin");
-			return (OrientGraph) OrientGraphFactory.getTxGraphImplFactory().getGraph((ODatabaseDocumentInternal) db);
+			return getSessionPool().getTx();
 		}
 	}
 
@@ -206,25 +289,144 @@ public class Database {
 		if (factory != null) {
 			return factory.getNoTx();
 		} else {
-			ODatabaseSession db = server.getContext().open("storage", "admin", "admin");
-			return (OrientGraphNoTx) OrientGraphFactory.getNoTxGraphImplFactory().getGraph((ODatabaseDocumentInternal) db);
+			return getSessionPool().getNoTx();
 		}
 	}
 
+	/**
+	 * Configure the pool which provides the sessions of {@link #getTx()} and {@link #getNoTx()} when the server is used. Must be called before
+	 * the first graph is requested.
+	 *
+	 * @param minSize
+	 * @param maxSize
+	 * @param acquireTimeoutMs
+	 * @return Fluent API
+	 */
+	public Database setupSessionPool(int minSize, int maxSize, long acquireTimeoutMs) {
+		this.poolMinSize = minSize;
+		this.poolMaxSize = maxSize;
+		this.poolAcquireTimeoutMs = acquireTimeoutMs;
+		return this;
+	}
+
+	/**
+	 * Return the session pool for the server database. The pool is created on first use.
+	 *
+	 * @return
+	 */
+	public synchronized SessionPool getSessionPool() {
+		if (sessionPool == null) {
+			sessionPool = new SessionPool(server.getContext(), "storage", "admin", "admin", poolMinSize, poolMaxSize, poolAcquireTimeoutMs);
+			if (metrics != null) {
+				sessionPool.setMetrics(metrics);
+			}
+		}
+		return sessionPool;
+	}
+
+	/**
+	 * Record the metrics of the graphs which are returned by {@link #getTx()}. The metrics are registered as MBean and written to
+	 * target/metrics-&lt;nodeName&gt;.json when the database is closed. Must be called before the first graph is requested.
+	 *
+	 * @return Fluent API
+	 * @see GraphMetrics
+	 */
+	public synchronized Database enableMetrics() {
+		if (metrics == null) {
+			metrics = new GraphMetrics();
+			try {
+				metrics.registerMBean(nodeName);
+			} catch (JMException e) {
+				throw new RuntimeException("Could not register the metrics MBean", e);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Return the metrics or null when they were not enabled.
+	 *
+	 * @return
+	 */
+	public synchronized GraphMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Set the amount of transactions which can wait for the {@link #getAsyncExecutor()}. Must be called before the executor is used.
+	 *
+	 * @param queueCapacity
+	 * @return Fluent API
+	 */
+	public Database setupAsyncExecutor(int queueCapacity) {
+		this.asyncQueueCapacity = queueCapacity;
+		return this;
+	}
+
+	/**
+	 * Return the executor for asynchronous transactions. The executor is created on first use and runs as many transactions in parallel as
+	 * the session pool provides sessions.
+	 *
+	 * @return
+	 */
+	public synchronized AsyncTxExecutor getAsyncExecutor() {
+		if (asyncExecutor == null) {
+			asyncExecutor = new AsyncTxExecutor(this::getTx, poolMaxSize, asyncQueueCapacity);
+		}
+		return asyncExecutor;
+	}
+
 	public void create(String name) {
 		server.createDatabase(name, ODatabaseType.PLOCAL, OrientDBConfig.defaultConfig());
 	}
 
 	public void openLocally(String name) {
-		File base = new File("/media/ext4/db", nodeName);
-		factory = new OrientGraphFactory("plocal:" + new File(base, name).getAbsolutePath()).setupPool(16, 100);
+		openLocally(name, StorageProfile.plocal(new File("/media/ext4/db", nodeName)));
+	}
+
+	/**
+	 * Open the database locally without the server using the given storage profile.
+	 *
+	 * @param name
+	 * @param profile
+	 */
+	public void openLocally(String name, StorageProfile profile) {
+		factory = profile.openFactory(name);
 	}
 
 	public void close() {
+		synchronized (this) {
+			if (asyncExecutor != null) {
+				System.out.println(asyncExecutor);
+				try {
+					asyncExecutor.close();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				asyncExecutor = null;
+			}
+		}
 		if (factory != null) {
 			factory.close();
 			factory = null;
 		}
+		synchronized (this) {
+			if (sessionPool != null) {
+				System.out.println(sessionPool);
+				sessionPool.close();
+				sessionPool = null;
+			}
+			if (metrics != null) {
+				System.out.println(metrics);
+				try {
+					metrics.writeJson(new File("target", "metrics-" + nodeName + ".json"));
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+				metrics.unregisterMBean();
+				metrics = null;
+			}
+		}
 		if (server != null) {
 			server.shutdown();
 		}
@@ -255,4 +457,20 @@ public class Database {
 		}
 	}
 
+	/**
+	 * Create an incremental backup in target/backups/incremental. Only the blocks of the storage files which changed since the previous backup
+	 * are written. Use {@link IncrementalBackup#restore(File, File)} to restore the chain of backups.
+	 *
+	 * @return Result of the backup
+	 * @throws IOException
+	 */
+	public IncrementalBackup.Result backupIncremental() throws IOException {
+		ODatabaseSession db = server.getContext().open("storage", "admin", "admin");
+		try {
+			return new IncrementalBackup(new File("target/backups/incremental")).backup((ODatabaseDocumentInternal) db);
+		} finally {
+			db.close();
+		}
+	}
+
 }
@@ -0,0 +1,40 @@
+package com.gentics.odb.server;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Helper to derive distributed database configs from the default-distributed-db-config.json template.
+ */
+public final class DistributedDbConfigs {
+
+	private DistributedDbConfigs() {
+	}
+
+	/**
+	 * Set the value of a top level setting of the config. Numbers and booleans are written as is while all other values are written as
+	 * strings.
+	 *
+	 * @param json
+	 * @param key
+	 *            Setting e.g. writeQuorum, readQuorum, readYourWrites or executionMode
+	 * @param value
+	 * @return Modified config
+	 */
+	public static String set(String json, String key, Object value) {
+		String text = String.valueOf(value);
+		boolean literal = value instanceof Number || value instanceof Boolean || text.matches("-?\\d+|true|false");
+		String formatted = literal ? text : "\"" + text + "\"";
+		Pattern pattern = Pattern.compile("(\"" + Pattern.quote(key) + "\"\\s*:\\s*)(\"[^\"]*\"|[^,\\s}]+)");
+		Matcher m = pattern.matcher(json);
+		if (m.find()) {
+			return m.replaceFirst(Matcher.quoteReplacement(m.group(1) + formatted));
+		}
+		int start = json.indexOf('{');
+		if (start < 0) {
+			throw new IllegalArgumentException("The distributed database config is no JSON object");
+		}
+		return json.substring(0, start + 1) + "\n  \"" + key + "\": " + formatted + "," + json.substring(start + 1);
+	}
+
+}
@@ -0,0 +1,604 @@
+package com.gentics.odb.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import org.apache.commons.io.FileUtils;
+
+import com.gentics.odb.LatencyHistogram;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.hook.ORecordHook;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientConfigurableGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientConfigurableGraph.Settings;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+
+/**
+ * Metrics of the hot path of the graph access. The graphs which are created via {@link #getTx(OrientGraphFactory)} or a {@link SessionPool}
+ * with metrics record the latency of the transaction begin, commit and rollback, the latency of the index lookups per lookup key and the
+ * amount of records which were loaded per transaction. The pool acquire wait is recorded by the {@link SessionPool} or when the factory
+ * provides the session. The metrics of an attached {@link SessionPool} and {@link TxExecutor} are included in the snapshots.
+ *
+ * Snapshots are flat maps of metric names to values which can be written as JSON or CSV or read via JMX after
+ * {@link #registerMBean(String)}.
+ */
+public class GraphMetrics {
+
+	public static final String JMX_DOMAIN = "com.gentics.odb";
+
+	/**
+	 * The factory neither exposes its graph settings nor the initialization of its graphs, so both are accessed directly.
+	 */
+	private static final Field FACTORY_SETTINGS;
+
+	private static final Method FACTORY_INIT_GRAPH;
+
+	static {
+		try {
+			FACTORY_SETTINGS = OrientConfigurableGraph.class.getDeclaredField("settings");
+			FACTORY_SETTINGS.setAccessible(true);
+			FACTORY_INIT_GRAPH = OrientGraphFactory.class.getDeclaredMethod("initGraph", OrientBaseGraph.class);
+			FACTORY_INIT_GRAPH.setAccessible(true);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private final LatencyHistogram acquire = new LatencyHistogram();
+
+	private final LatencyHistogram begin = new LatencyHistogram();
+
+	private final LatencyHistogram commit = new LatencyHistogram();
+
+	private final LatencyHistogram rollback = new LatencyHistogram();
+
+	/**
+	 * The histogram is used for the amount of records and not for nanoseconds.
+	 */
+	private final LatencyHistogram recordsLoaded = new LatencyHistogram();
+
+	private final Map<String, LatencyHistogram> lookups = new ConcurrentHashMap<>();
+
+	/**
+	 * Records which were loaded by the current transaction of the thread.
+	 */
+	private final ThreadLocal<long[]> loaded = ThreadLocal.withInitial(() -> new long[1]);
+
+	private final LoadHook loadHook = new LoadHook();
+
+	private volatile SessionPool sessionPool;
+
+	private volatile TxExecutor txExecutor;
+
+	private ObjectName objectName;
+
+	/**
+	 * Include the metrics of the pool in the snapshots.
+	 *
+	 * @param sessionPool
+	 * @return Fluent API
+	 */
+	public GraphMetrics setSessionPool(SessionPool sessionPool) {
+		this.sessionPool = sessionPool;
+		return this;
+	}
+
+	/**
+	 * Include the metrics of the executor in the snapshots.
+	 *
+	 * @param txExecutor
+	 * @return Fluent API
+	 */
+	public GraphMetrics setTxExecutor(TxExecutor txExecutor) {
+		this.txExecutor = txExecutor;
+		return this;
+	}
+
+	/**
+	 * Acquire a session from the factory pool and return a metered transactional graph. The graph is configured and initialized by the
+	 * factory like the graphs of {@link OrientGraphFactory#getTx()}.
+	 *
+	 * @param factory
+	 * @return
+	 */
+	public OrientGraph getTx(OrientGraphFactory factory) {
+		long start = System.nanoTime();
+		ODatabaseDocumentInternal db = factory.getDatabase();
+		acquire.recordSince(start);
+		try {
+			OrientGraph graph = createTx(db, (Settings) FACTORY_SETTINGS.get(factory), null);
+			FACTORY_INIT_GRAPH.invoke(factory, graph);
+			return graph;
+		} catch (ReflectiveOperationException e) {
+			db.close();
+			throw new RuntimeException("Could not create the graph of the factory", e);
+		}
+	}
+
+	/**
+	 * Create a metered transactional graph for the session. The creation starts the first transaction and is recorded as begin.
+	 *
+	 * @param db
+	 * @param onShutdown
+	 *            Invoked once before the session is closed or null
+	 * @return
+	 */
+	public OrientGraph createTx(ODatabaseDocumentInternal db, Runnable onShutdown) {
+		return createTx(db, null, onShutdown);
+	}
+
+	private OrientGraph createTx(ODatabaseDocumentInternal db, Settings settings, Runnable onShutdown) {
+		if (!db.getHooks().containsKey(loadHook)) {
+			db.registerHook(loadHook);
+		}
+		long start = System.nanoTime();
+		OrientGraph graph = settings == null ? new MeteredGraph(db, onShutdown) : new MeteredGraph(db, settings, onShutdown);
+		begin.recordSince(start);
+		loaded.get()[0] = 0;
+		return graph;
+	}
+
+	/**
+	 * Record the time which was spent waiting for a pooled session.
+	 *
+	 * @param nanos
+	 */
+	public void recordAcquire(long nanos) {
+		acquire.record(nanos);
+	}
+
+	/**
+	 * Record an index lookup which was not executed via a metered graph, e.g. a direct {@code OIndex#get(Object)}.
+	 *
+	 * @param indexName
+	 * @param nanos
+	 */
+	public void recordLookup(String indexName, long nanos) {
+		lookups.computeIfAbsent(indexName, k -> new LatencyHistogram()).record(nanos);
+	}
+
+	private void endTx() {
+		long[] count = loaded.get();
+		recordsLoaded.record(count[0]);
+		count[0] = 0;
+	}
+
+	public LatencyHistogram getAcquireLatency() {
+		return acquire;
+	}
+
+	public LatencyHistogram getBeginLatency() {
+		return begin;
+	}
+
+	public LatencyHistogram getCommitLatency() {
+		return commit;
+	}
+
+	public LatencyHistogram getRollbackLatency() {
+		return rollback;
+	}
+
+	/**
+	 * Return the distribution of the amount of records which were loaded per transaction.
+	 *
+	 * @return
+	 */
+	public LatencyHistogram getRecordsLoaded() {
+		return recordsLoaded;
+	}
+
+	/**
+	 * Return the lookup latencies per index name.
+	 *
+	 * @return
+	 */
+	public Map<String, LatencyHistogram> getLookups() {
+		return new TreeMap<>(lookups);
+	}
+
+	/**
+	 * Reset the recorded metrics. The metrics of the attached pool and executor are not reset.
+	 */
+	public void reset() {
+		acquire.reset();
+		begin.reset();
+		commit.reset();
+		rollback.reset();
+		recordsLoaded.reset();
+		lookups.clear();
+	}
+
+	/**
+	 * Return the current values sorted by metric name. Latencies are in milliseconds.
+	 *
+	 * @return
+	 */
+	public Map<String, Number> snapshot() {
+		Map<String, Number> values = new TreeMap<>();
+		putLatency(values, "pool.acquire", acquire);
+		putLatency(values, "tx.begin", begin);
+		putLatency(values, "tx.commit", commit);
+		putLatency(values, "tx.rollback", rollback);
+		values.put("tx.recordsLoaded.count", recordsLoaded.getCount());
+		values.put("tx.recordsLoaded.mean", recordsLoaded.getMean());
+		values.put("tx.recordsLoaded.p50", recordsLoaded.getPercentile(50));
+		values.put("tx.recordsLoaded.p99", recordsLoaded.getPercentile(99));
+		values.put("tx.recordsLoaded.max", recordsLoaded.getMax());
+		lookups.forEach((name, histogram) -> putLatency(values, "index." + name, histogram));
+
+		SessionPool pool = sessionPool;
+		if (pool != null) {
+			values.put("pool.inUse", pool.getInUse());
+			values.put("pool.maxInUse", pool.getMaxInUse());
+			values.put("pool.acquired", pool.getAcquired());
+			values.put("pool.timeouts", pool.getTimeouts());
+		}
+		TxExecutor executor = txExecutor;
+		if (executor != null) {
+			values.put("executor.commits", executor.getCommits());
+			values.put("executor.retries", executor.getRetries());
+			values.put("executor.failures", executor.getFailures());
+			executor.getLatencies().forEach((name, histogram) -> putLatency(values, "executor.tx." + name, histogram));
+			executor.getConflicts().forEach((clazz, count) -> values.put("executor.conflicts." + clazz, count));
+		}
+		return values;
+	}
+
+	private static void putLatency(Map<String, Number> values, String prefix, LatencyHistogram histogram) {
+		values.put(prefix + ".count", histogram.getCount());
+		values.put(prefix + ".meanMs", LatencyHistogram.toMs(histogram.getMean()));
+		values.put(prefix + ".p50Ms", histogram.getPercentileMs(50));
+		values.put(prefix + ".p99Ms", histogram.getPercentileMs(99));
+		values.put(prefix + ".maxMs", LatencyHistogram.toMs(histogram.getMax()));
+	}
+
+	/**
+	 * Format a snapshot as JSON object.
+	 *
+	 * @return
+	 */
+	public String toJson() {
+		StringBuilder builder = new StringBuilder("{\n  \"timestamp\": ").append(System.currentTimeMillis());
+		snapshot().forEach((name, value) -> {
+			builder.append(",\n  \"").append(name.replace("\\", "\\\\").replace("\"", "\\\"")).append("\": ").append(value);
+		});
+		return builder.append("\n}\n").toString();
+	}
+
+	/**
+	 * Format a snapshot as CSV rows without header.
+	 *
+	 * @return
+	 */
+	public String toCsv() {
+		long timestamp = System.currentTimeMillis();
+		StringBuilder builder = new StringBuilder();
+		snapshot().forEach((name, value) -> builder.append(timestamp).append(',').append(name).append(',').append(value).append('\n'));
+		return builder.toString();
+	}
+
+	/**
+	 * Write a snapshot as JSON file.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void writeJson(File file) throws IOException {
+		FileUtils.writeStringToFile(file, toJson(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Append a snapshot to the CSV file. The header is written when the file does not exist yet.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void appendCsv(File file) throws IOException {
+		String header = file.exists() ? "" : "timestamp,metric,value\n";
+		FileUtils.writeStringToFile(file, header + toCsv(), StandardCharsets.UTF_8, true);
+	}
+
+	/**
+	 * Register the metrics as MBean {@code com.gentics.odb:type=GraphMetrics,name=<name>}. Each metric of the snapshot is a read-only
+	 * attribute.
+	 *
+	 * @param name
+	 * @return Fluent API
+	 * @throws JMException
+	 */
+	public synchronized GraphMetrics registerMBean(String name) throws JMException {
+		unregisterMBean();
+		ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=GraphMetrics,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(), objectName);
+		this.objectName = objectName;
+		return this;
+	}
+
+	/**
+	 * Remove the MBean if it was registered.
+	 */
+	public synchronized void unregisterMBean() {
+		if (objectName == null) {
+			return;
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+		objectName = null;
+	}
+
+	public synchronized ObjectName getObjectName() {
+		return objectName;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("Graph metrics:\n");
+		builder.append(String.format("  %-30s %s%n", "pool acquire", acquire));
+		builder.append(String.format("  %-30s %s%n", "tx begin", begin));
+		builder.append(String.format("  %-30s %s%n", "tx commit", commit));
+		builder.append(String.format("  %-30s %s%n", "tx rollback", rollback));
+		builder.append(String.format("  %-30s count=%d mean=%.1f p50=%d p99=%d max=%d%n", "records loaded per tx", recordsLoaded.getCount(),
+			recordsLoaded.getMean(), recordsLoaded.getPercentile(50), recordsLoaded.getPercentile(99), recordsLoaded.getMax()));
+		getLookups().forEach((name, histogram) -> builder.append(String.format("  %-30s %s%n", "index " + name, histogram)));
+		return builder.toString();
+	}
+
+	/**
+	 * Graph which records its transactions and lookups. The loaded records are counted by the {@link LoadHook} of the session.
+	 */
+	private class MeteredGraph extends OrientGraph {
+
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		/**
+		 * Whether the last transaction was ended by a commit or rollback and no new transaction was started since.
+		 */
+		private boolean ended;
+
+		private final Runnable onShutdown;
+
+		MeteredGraph(ODatabaseDocumentInternal db, Runnable onShutdown) {
+			super(db);
+			this.onShutdown = onShutdown;
+		}
+
+		MeteredGraph(ODatabaseDocumentInternal db, Settings settings, Runnable onShutdown) {
+			super(db, null, null, settings);
+			this.onShutdown = onShutdown;
+		}
+
+		@Override
+		public void begin() {
+			super.begin();
+			ended = false;
+		}
+
+		@Override
+		protected void autoStartTransaction() {
+			super.autoStartTransaction();
+			ended = false;
+		}
+
+		@Override
+		public void commit() {
+			long start = System.nanoTime();
+			try {
+				super.commit();
+			} finally {
+				commit.recordSince(start);
+				endTx();
+				ended = true;
+			}
+		}
+
+		@Override
+		public void rollback() {
+			long start = System.nanoTime();
+			try {
+				super.rollback();
+			} finally {
+				rollback.recordSince(start);
+				endTx();
+				ended = true;
+			}
+		}
+
+		@Override
+		public Iterable<Vertex> getVertices(String key, Object value) {
+			return lookup(key, () -> super.getVertices(key, value));
+		}
+
+		@Override
+		public Iterable<Vertex> getVertices(String label, String[] keys, Object[] values) {
+			return lookup(label + "." + String.join(",", keys), () -> super.getVertices(label, keys, values));
+		}
+
+		@Override
+		public Iterable<Edge> getEdges(String key, Object value) {
+			return lookup(key, () -> super.getEdges(key, value));
+		}
+
+		@Override
+		public void shutdown(boolean closeDb, boolean commitTx) {
+			if (closeDb && closed.compareAndSet(false, true)) {
+				// Transactions which were not committed or rolled back end with the shutdown, even when they did not load any record
+				if (!ended || loaded.get()[0] > 0) {
+					endTx();
+				}
+				if (onShutdown != null) {
+					onShutdown.run();
+				}
+			}
+			super.shutdown(closeDb, commitTx);
+		}
+	}
+
+	/**
+	 * Record the lookup. Lookups without an index of the given name are executed lazily as query, so the first {@code hasNext()} or
+	 * {@code next()} of the result is included and the lookup is recorded once the result is iterated.
+	 *
+	 * @param indexName
+	 * @param lookup
+	 * @return
+	 */
+	private <T> Iterable<T> lookup(String indexName, Supplier<Iterable<T>> lookup) {
+		long start = System.nanoTime();
+		Iterable<T> result = lookup.get();
+		long callNanos = System.nanoTime() - start;
+		AtomicBoolean recorded = new AtomicBoolean();
+		return () -> {
+			Iterator<T> it = result.iterator();
+			if (recorded.get()) {
+				return it;
+			}
+			return new Iterator<T>() {
+				@Override
+				public boolean hasNext() {
+					return record(it::hasNext);
+				}
+
+				@Override
+				public T next() {
+					return record(it::next);
+				}
+
+				private <R> R record(Supplier<R> step) {
+					if (recorded.get()) {
+						return step.get();
+					}
+					long stepStart = System.nanoTime();
+					R value = step.get();
+					if (recorded.compareAndSet(false, true)) {
+						recordLookup(indexName, callNanos + System.nanoTime() - stepStart);
+					}
+					return value;
+				}
+			};
+		};
+	}
+
+	/**
+	 * Counts the loaded records of the current thread.
+	 */
+	private class LoadHook implements ORecordHook {
+
+		@Override
+		public RESULT onTrigger(TYPE type, ORecord record) {
+			if (type == TYPE.AFTER_READ) {
+				loaded.get()[0]++;
+			}
+			return RESULT.RECORD_NOT_CHANGED;
+		}
+
+		@Override
+		public SCOPE[] getScopes() {
+			return new SCOPE[] { SCOPE.READ };
+		}
+
+		@Override
+		public DISTRIBUTED_EXECUTION_MODE getDistributedExecutionMode() {
+			return DISTRIBUTED_EXECUTION_MODE.SOURCE_NODE;
+		}
+
+		@Override
+		public void onUnregister() {
+		}
+	}
+
+	/**
+	 * Exposes the snapshot values as read-only attributes.
+	 */
+	private class MetricsMBean implements DynamicMBean {
+
+		@Override
+		public Object getAttribute(String attribute) throws AttributeNotFoundException {
+			Number value = snapshot().get(attribute);
+			if (value == null) {
+				throw new AttributeNotFoundException(attribute);
+			}
+			return value;
+		}
+
+		@Override
+		public AttributeList getAttributes(String[] attributes) {
+			Map<String, Number> values = snapshot();
+			AttributeList list = new AttributeList();
+			for (String attribute : attributes) {
+				Number value = values.get(attribute);
+				if (value != null) {
+					list.add(new Attribute(attribute, value));
+				}
+			}
+			return list;
+		}
+
+		@Override
+		public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+			throw new AttributeNotFoundException("The metrics are read-only");
+		}
+
+		@Override
+		public AttributeList setAttributes(AttributeList attributes) {
+			return new AttributeList();
+		}
+
+		@Override
+		public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+			if ("reset".equals(actionName)) {
+				reset();
+				return null;
+			}
+			throw new ReflectionException(new NoSuchMethodException(actionName));
+		}
+
+		@Override
+		public MBeanInfo getMBeanInfo() {
+			// The attributes change when new indexes or transaction names are recorded
+			Map<String, Number> values = snapshot();
+			MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[values.size()];
+			int i = 0;
+			for (Map.Entry<String, Number> entry : values.entrySet()) {
+				attributes[i++] = new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(), entry.getKey(), true, false, false);
+			}
+			MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Reset the metrics", new MBeanParameterInfo[0], "void",
+				MBeanOperationInfo.ACTION);
+			return new MBeanInfo(GraphMetrics.class.getName(), "Graph hot path metrics", attributes, null, new MBeanOperationInfo[] { reset },
+				null);
+		}
+	}
+
+}
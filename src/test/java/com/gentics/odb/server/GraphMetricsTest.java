@@ -0,0 +1,205 @@
+package com.gentics.odb.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.ReflectionException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gentics.odb.AbstractOrientTest;
+import com.gentics.odb.StorageProfile;
+import com.gentics.odb.Utils;
+import com.orientechnologies.orient.core.db.ODatabaseType;
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+
+public class GraphMetricsTest extends AbstractOrientTest {
+
+	private static final String PRODUCT = "Product";
+
+	private OrientGraphFactory factory;
+
+	private GraphMetrics metrics;
+
+	@Before
+	public void setupDB() {
+		factory = StorageProfile.current().createFactory("tinkerpop" + System.currentTimeMillis());
+		addVertexType(factory::getNoTx, PRODUCT, null, UuidKeys.stringUuidTypeModifier());
+		metrics = new GraphMetrics();
+	}
+
+	@After
+	public void closeDB() {
+		metrics.unregisterMBean();
+		StorageProfile.current().drop(factory);
+	}
+
+	@Test
+	public void testTransactions() {
+		TxExecutor executor = new TxExecutor(() -> metrics.getTx(factory));
+		metrics.setTxExecutor(executor);
+		List<String> uuids = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			String uuid = Utils.randomUUID();
+			uuids.add(uuid);
+			executor.run("create", tx -> tx.addVertex("class:" + PRODUCT).setProperty(UuidKeys.UUID_KEY, uuid));
+		}
+		for (String uuid : uuids) {
+			executor.run("read", tx -> {
+				Vertex product = tx.getVertices(PRODUCT + ".uuid", uuid).iterator().next();
+				assertEquals(uuid, product.getProperty(UuidKeys.UUID_KEY));
+			});
+		}
+		OrientGraph tx = metrics.getTx(factory);
+		try {
+			tx.addVertex("class:" + PRODUCT);
+			tx.rollback();
+		} finally {
+			tx.shutdown();
+		}
+
+		assertEquals(41, metrics.getBeginLatency().getCount());
+		assertEquals(41, metrics.getAcquireLatency().getCount());
+		assertEquals(40, metrics.getCommitLatency().getCount());
+		assertEquals(1, metrics.getRollbackLatency().getCount());
+		assertEquals(20, metrics.getLookups().get(PRODUCT + ".uuid").getCount());
+		assertTrue("Each read must load the product", metrics.getRecordsLoaded().getMax() >= 1);
+
+		Map<String, Number> snapshot = metrics.snapshot();
+		assertEquals(40L, snapshot.get("tx.commit.count"));
+		assertEquals(20L, snapshot.get("index." + PRODUCT + ".uuid.count"));
+		assertEquals(20L, snapshot.get("executor.tx.read.count"));
+		assertEquals(40L, snapshot.get("executor.commits"));
+		System.out.println(metrics);
+	}
+
+	@Test
+	public void testUnusedLookupIsNotRecorded() {
+		OrientGraph tx = metrics.getTx(factory);
+		try {
+			tx.getVertices(PRODUCT + ".uuid", Utils.randomUUID());
+			assertTrue(metrics.getLookups().isEmpty());
+			assertFalse(tx.getVertices(PRODUCT + ".uuid", Utils.randomUUID()).iterator().hasNext());
+			assertEquals(1, metrics.getLookups().get(PRODUCT + ".uuid").getCount());
+		} finally {
+			tx.shutdown();
+		}
+		assertEquals("The transaction ended with the shutdown", 1, metrics.getRecordsLoaded().getCount());
+	}
+
+	@Test
+	public void testUnusedTransaction() {
+		metrics.getTx(factory).shutdown();
+		assertEquals("Transactions without loads must also be recorded", 1, metrics.getRecordsLoaded().getCount());
+		assertEquals(0, metrics.getRecordsLoaded().getMax());
+
+		OrientGraph tx = metrics.getTx(factory);
+		try {
+			tx.addVertex("class:" + PRODUCT);
+			tx.commit();
+		} finally {
+			tx.shutdown();
+		}
+		assertEquals("The committed transaction must only be recorded once", 2, metrics.getRecordsLoaded().getCount());
+
+		tx = metrics.getTx(factory);
+		try {
+			tx.addVertex("class:" + PRODUCT);
+			tx.commit();
+			tx.addVertex("class:" + PRODUCT);
+		} finally {
+			tx.shutdown();
+		}
+		assertEquals("The transaction after the commit must be recorded", 4, metrics.getRecordsLoaded().getCount());
+	}
+
+	@Test
+	public void testFactorySettings() {
+		factory.setMaxRetries(7);
+		factory.setStandardElementConstraints(false);
+		OrientGraph tx = metrics.getTx(factory);
+		try {
+			assertEquals(7, tx.getMaxRetries());
+			assertFalse(tx.isStandardElementConstraints());
+		} finally {
+			tx.shutdown();
+		}
+	}
+
+	@Test
+	public void testSessionPool() {
+		OrientDB context = new OrientDB("embedded:", OrientDBConfig.defaultConfig());
+		context.create("storage", ODatabaseType.MEMORY);
+		try (SessionPool pool = new SessionPool(context, "storage", "admin", "admin", 1, 2, 10_000).setMetrics(metrics)) {
+			for (int i = 0; i < 5; i++) {
+				OrientGraph tx = pool.getTx();
+				try {
+					tx.addVertex(null);
+					tx.commit();
+				} finally {
+					tx.shutdown();
+				}
+			}
+			assertEquals(0, pool.getInUse());
+			assertEquals(5, metrics.getAcquireLatency().getCount());
+			assertEquals(5, metrics.getCommitLatency().getCount());
+			assertEquals(5L, metrics.snapshot().get("pool.acquired"));
+		} finally {
+			context.close();
+		}
+	}
+
+	@Test
+	public void testExport() throws Exception {
+		OrientGraph tx = metrics.getTx(factory);
+		try {
+			tx.addVertex("class:" + PRODUCT).setProperty(UuidKeys.UUID_KEY, Utils.randomUUID());
+			tx.commit();
+		} finally {
+			tx.shutdown();
+		}
+
+		File json = new File("target", "GraphMetricsTest.json");
+		metrics.writeJson(json);
+		String content = FileUtils.readFileToString(json, StandardCharsets.UTF_8);
+		assertTrue(content, content.contains("\"tx.commit.count\": 1"));
+
+		File csv = new File("target", "GraphMetricsTest.csv");
+		FileUtils.deleteQuietly(csv);
+		metrics.appendCsv(csv);
+		metrics.appendCsv(csv);
+		List<String> lines = FileUtils.readLines(csv, StandardCharsets.UTF_8);
+		assertEquals("timestamp,metric,value", lines.get(0));
+		assertEquals("The header must only be written once", 1, lines.stream().filter(l -> l.startsWith("timestamp")).count());
+
+		metrics.registerMBean("GraphMetricsTest");
+		assertNotNull(metrics.getObjectName());
+		assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(metrics.getObjectName(), "tx.commit.count"));
+		ManagementFactory.getPlatformMBeanServer().invoke(metrics.getObjectName(), "reset", null, null);
+		assertEquals(0L, ManagementFactory.getPlatformMBeanServer().getAttribute(metrics.getObjectName(), "tx.commit.count"));
+		try {
+			ManagementFactory.getPlatformMBeanServer().invoke(metrics.getObjectName(), "unknown", null, null);
+			fail("Unknown operations must be rejected");
+		} catch (ReflectionException e) {
+			assertTrue(e.getCause() instanceof NoSuchMethodException);
+		}
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.gentics.odb.server;
+
+import java.util.Collection;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Helper to derive Hazelcast configs from the hazelcast.xml template.
+ */
+public final class HazelcastConfigs {
+
+	private static final Pattern JOIN = Pattern.compile("<join>.*?</join>", Pattern.DOTALL);
+
+	private static final Pattern PORT = Pattern.compile("<port auto-increment=\"\\w+\">\\d+</port>");
+
+	private static final Pattern PROPERTIES_END = Pattern.compile("</properties>");
+
+	private static final Pattern EXECUTOR_POOL_SIZE = Pattern.compile("<pool-size>\\d+</pool-size>");
+
+	private HazelcastConfigs() {
+	}
+
+	/**
+	 * Set the Hazelcast property. Existing values will be replaced.
+	 *
+	 * @param xml
+	 * @param name
+	 * @param value
+	 * @return Modified config
+	 */
+	public static String setProperty(String xml, String name, Object value) {
+		Pattern existing = Pattern.compile("<property name=\"" + Pattern.quote(name) + "\">[^<]*</property>");
+		String property = "<property name=\"" + name + "\">" + value + "</property>";
+		Matcher m = existing.matcher(xml);
+		if (m.find()) {
+			return m.replaceFirst(Matcher.quoteReplacement(property));
+		}
+		return replace(PROPERTIES_END, xml, "\t" + property + "\n\t</properties>");
+	}
+
+	/**
+	 * Set the port of the node and disable the auto increment.
+	 *
+	 * @param xml
+	 * @param port
+	 * @return Modified config
+	 */
+	public static String setPort(String xml, int port) {
+		return replace(PORT, xml, "<port auto-increment=\"false\">" + port + "</port>");
+	}
+
+	/**
+	 * Replace the multicast discovery with a TCP-IP member list on the loopback interface and join without the initial wait.
+	 *
+	 * @param xml
+	 * @param ports
+	 *            Hazelcast ports of all members
+	 * @return Modified config
+	 */
+	public static String useLoopbackTcpIpJoin(String xml, Collection<Integer> ports) {
+		StringBuilder join = new StringBuilder();
+		join.append("<join>\n");
+		join.append("\t\t\t<multicast enabled=\"false\"/>\n");
+		join.append("\t\t\t<tcp-ip enabled=\"true\">\n");
+		for (int port : ports) {
+			join.append("\t\t\t\t<member>127.0.0.1:" + port + "</member>\n");
+		}
+		join.append("\t\t\t</tcp-ip>\n");
+		join.append("\t\t</join>\n");
+		join.append("\t\t<interfaces enabled=\"true\">\n");
+		join.append("\t\t\t<interface>127.0.0.1</interface>\n");
+		join.append("\t\t</interfaces>");
+		String config = replace(JOIN, xml, join.toString());
+		config = setProperty(config, "hazelcast.wait.seconds.before.join", 0);
+		return setProperty(config, "hazelcast.socket.bind.any", false);
+	}
+
+	/**
+	 * Set the pool size of the default executor service.
+	 *
+	 * @param xml
+	 * @param poolSize
+	 * @return Modified config
+	 */
+	public static String setExecutorPoolSize(String xml, int poolSize) {
+		return replace(EXECUTOR_POOL_SIZE, xml, "<pool-size>" + poolSize + "</pool-size>");
+	}
+
+	/**
+	 * Register the Hazelcast listener class.
+	 *
+	 * @param xml
+	 * @param listenerClass
+	 * @return Modified config
+	 */
+	public static String addListener(String xml, Class<?> listenerClass) {
+		String listener = "<listener>" + listenerClass.getName() + "</listener>";
+		if (xml.contains("<listeners>")) {
+			return xml.replace("<listeners>", "<listeners>\n\t\t" + listener);
+		}
+		return xml.replace("</hazelcast>", "\t<listeners>\n\t\t" + listener + "\n\t</listeners>\n</hazelcast>");
+	}
+
+	private static String replace(Pattern pattern, String xml, String replacement) {
+		Matcher m = pattern.matcher(xml);
+		if (!m.find()) {
+			throw new IllegalArgumentException("Could not find {" + pattern + "} in the Hazelcast config");
+		}
+		return m.replaceFirst(Matcher.quoteReplacement(replacement));
+	}
+
+}
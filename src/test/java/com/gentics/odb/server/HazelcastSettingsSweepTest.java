@@ -0,0 +1,86 @@
+package com.gentics.odb.server;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Runs the distributed product insert workload with Hazelcast configs which are generated from a parameter grid. The report is written to
+ * target/HazelcastSettingsSweepTest.csv.
+ *
+ * The grid can be configured via system properties. Each property accepts a comma separated list of values:
+ * <ul>
+ * <li>{@code sweep.operationThreads} - hazelcast.operation.thread.count</li>
+ * <li>{@code sweep.genericThreads} - hazelcast.operation.generic.thread.count</li>
+ * <li>{@code sweep.ioThreads} - hazelcast.io.thread.count</li>
+ * <li>{@code sweep.eventThreads} - hazelcast.event.thread.count and hazelcast.client.event.thread.count</li>
+ * <li>{@code sweep.heartbeatSeconds} - hazelcast.heartbeat.interval.seconds</li>
+ * <li>{@code sweep.executorPoolSize} - Pool size of the executor service</li>
+ * </ul>
+ * The workload is configured via {@code cluster.nodes}, {@code cluster.threads}, {@code cluster.warmup} and {@code cluster.transactions}.
+ */
+public class HazelcastSettingsSweepTest extends AbstractClusterTest {
+
+	private static final int NODES = Integer.getInteger("cluster.nodes", 2);
+	private static final int THREADS = Integer.getInteger("cluster.threads", 4);
+	private static final long WARMUP = Long.getLong("cluster.warmup", 100);
+	private static final long TRANSACTIONS = Long.getLong("cluster.transactions", 500);
+
+	private static final List<Integer> OPERATION_THREADS = listProperty("sweep.operationThreads", "1,4", Integer::valueOf);
+	private static final List<Integer> GENERIC_THREADS = listProperty("sweep.genericThreads", "1", Integer::valueOf);
+	private static final List<Integer> IO_THREADS = listProperty("sweep.ioThreads", "1", Integer::valueOf);
+	private static final List<Integer> EVENT_THREADS = listProperty("sweep.eventThreads", "1", Integer::valueOf);
+	private static final List<Integer> HEARTBEAT_SECONDS = listProperty("sweep.heartbeatSeconds", "5", Integer::valueOf);
+	private static final List<Integer> EXECUTOR_POOL_SIZE = listProperty("sweep.executorPoolSize", "16", Integer::valueOf);
+
+	@Test
+	public void testSweep() throws Exception {
+		ClusterSweep sweep = new ClusterSweep(HazelcastSettingsSweepTest.class.getSimpleName(), this::createProductSchema,
+			cluster -> productWorkload(cluster)
+				.setThreads(THREADS)
+				.setWarmupTransactions(WARMUP)
+				.setTransactions(TRANSACTIONS));
+
+		for (int operation : OPERATION_THREADS) {
+			for (int generic : GENERIC_THREADS) {
+				for (int io : IO_THREADS) {
+					for (int event : EVENT_THREADS) {
+						for (int heartbeat : HEARTBEAT_SECONDS) {
+							for (int poolSize : EXECUTOR_POOL_SIZE) {
+								String name = "op" + operation + "-gen" + generic + "-io" + io + "-ev" + event + "-hb" + heartbeat + "-pool" + poolSize;
+								sweep.addVariant(new ClusterSweep.Variant(name, NODES)
+									.setParameter("operation", operation)
+									.setParameter("generic", generic)
+									.setParameter("io", io)
+									.setParameter("event", event)
+									.setParameter("heartbeat", heartbeat)
+									.setParameter("pool", poolSize)
+									.setConfigurer(cluster -> {
+										String config = cluster.getHazelcastConfig();
+										config = HazelcastConfigs.setProperty(config, "hazelcast.operation.thread.count", operation);
+										config = HazelcastConfigs.setProperty(config, "hazelcast.operation.generic.thread.count", generic);
+										config = HazelcastConfigs.setProperty(config, "hazelcast.io.thread.count", io);
+										config = HazelcastConfigs.setProperty(config, "hazelcast.event.thread.count", event);
+										config = HazelcastConfigs.setProperty(config, "hazelcast.client.event.thread.count", event);
+										config = HazelcastConfigs.setProperty(config, "hazelcast.heartbeat.interval.seconds", heartbeat);
+										config = HazelcastConfigs.setExecutorPoolSize(config, poolSize);
+										cluster.setHazelcastConfig(config);
+									}));
+							}
+						}
+					}
+				}
+			}
+		}
+
+		List<ClusterSweep.Row> rows = sweep.run();
+		assertEquals(sweep.getVariants().size(), rows.size());
+		for (ClusterSweep.Row row : rows) {
+			assertEquals(TRANSACTIONS, row.getResult().getCommitted());
+			assertEquals(0, row.getResult().getTimeouts());
+		}
+	}
+
+}
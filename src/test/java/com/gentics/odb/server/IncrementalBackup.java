@@ -0,0 +1,525 @@
+package com.gentics.odb.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.disk.OLocalPaginatedStorage;
+
+/**
+ * Block level incremental backup of a plocal storage. The files of the storage are split into blocks of the page size. A backup only contains
+ * the blocks whose checksum differs from the checksum which was recorded by the previous backup. Each backup directory contains a manifest
+ * with the length and the block checksums of all files and the changed blocks which are compressed in parallel.
+ *
+ * <p>
+ * The files are read while the database is frozen, thus the time of the backup still depends on the size of the database, but the amount of
+ * compressed and written data only depends on the amount of changes. A restore applies the last full backup and all following incremental
+ * backups.
+ */
+public class IncrementalBackup {
+
+	private static final String MANIFEST = "manifest.bin";
+
+	private static final int MANIFEST_VERSION = 1;
+
+	private static final String FULL_SUFFIX = "-full";
+
+	private static final String INCREMENTAL_SUFFIX = "-incremental";
+
+	private final File backupDirectory;
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	private int blockSize = OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * 1024;
+
+	/**
+	 * Amount of blocks which are compressed by a single task.
+	 */
+	private int blocksPerTask = 256;
+
+	public IncrementalBackup(File backupDirectory) {
+		this.backupDirectory = backupDirectory;
+	}
+
+	/**
+	 * Set the amount of threads which read and compress the blocks.
+	 *
+	 * @param threads
+	 * @return Fluent API
+	 */
+	public IncrementalBackup setThreads(int threads) {
+		this.threads = threads;
+		return this;
+	}
+
+	public IncrementalBackup setBlockSize(int blockSize) {
+		this.blockSize = blockSize;
+		return this;
+	}
+
+	public IncrementalBackup setBlocksPerTask(int blocksPerTask) {
+		this.blocksPerTask = blocksPerTask;
+		return this;
+	}
+
+	/**
+	 * Create an incremental backup. A full backup is created if no previous backup exists.
+	 *
+	 * @param db
+	 * @return
+	 * @throws IOException
+	 */
+	public Result backup(ODatabaseDocumentInternal db) throws IOException {
+		return backup(db, false);
+	}
+
+	/**
+	 * Create a backup.
+	 *
+	 * @param db
+	 * @param full
+	 *            Whether all blocks should be written
+	 * @return
+	 * @throws IOException
+	 */
+	public Result backup(ODatabaseDocumentInternal db, boolean full) throws IOException {
+		OStorage storage = db.getStorage().getUnderlying();
+		if (!(storage instanceof OLocalPaginatedStorage)) {
+			throw new IllegalArgumentException("Incremental backups are only supported for plocal storages, got {" + storage.getType() + "}");
+		}
+		OLocalPaginatedStorage localStorage = (OLocalPaginatedStorage) storage;
+
+		List<File> backups = listBackups(backupDirectory);
+		Manifest previous = full || backups.isEmpty() ? null : Manifest.read(new File(backups.get(backups.size() - 1), MANIFEST));
+		full = previous == null || previous.blockSize != blockSize;
+		File target = new File(backupDirectory, String.format("%06d", backups.size()) + (full ? FULL_SUFFIX : INCREMENTAL_SUFFIX));
+		File blocksDir = new File(target, "blocks");
+		// Remove the leftovers of a failed backup
+		FileUtils.deleteDirectory(target);
+		blocksDir.mkdirs();
+
+		long start = System.currentTimeMillis();
+		db.freeze(false);
+		long frozen = System.currentTimeMillis();
+		Manifest manifest = new Manifest(blockSize, new LinkedHashMap<>());
+		long scannedBytes = 0;
+		List<ChunkResult> chunks;
+		try {
+			List<ChunkTask> tasks = new ArrayList<>();
+			for (File file : listFiles(localStorage)) {
+				long length = file.length();
+				int blockCount = (int) ((length + blockSize - 1) / blockSize);
+				FileEntry entry = new FileEntry(length, new long[blockCount]);
+				manifest.files.put(file.getName(), entry);
+				long[] oldChecksums = previous == null || !previous.files.containsKey(file.getName()) ? null
+					: previous.files.get(file.getName()).checksums;
+				for (int from = 0; from < blockCount; from += blocksPerTask) {
+					int to = Math.min(blockCount, from + blocksPerTask);
+					File chunkFile = new File(blocksDir, tasks.size() + ".gz");
+					int firstBlock = from;
+					tasks.add(() -> writeChunk(file, entry, oldChecksums, firstBlock, to, chunkFile));
+				}
+				scannedBytes += length;
+			}
+			chunks = execute(tasks);
+			for (ChunkResult chunk : chunks) {
+				if (chunk.removedFile != null) {
+					// Temporary files like the double write log may be removed during the backup
+					manifest.files.remove(chunk.removedFile);
+				}
+			}
+		} finally {
+			db.release();
+		}
+		long released = System.currentTimeMillis();
+		manifest.write(new File(target, MANIFEST));
+
+		long changedBlocks = 0;
+		long writtenBytes = 0;
+		for (ChunkResult chunk : chunks) {
+			changedBlocks += chunk.blocks;
+			writtenBytes += chunk.bytes;
+		}
+		Result result = new Result(target.getName(), full, scannedBytes, changedBlocks, writtenBytes, released - frozen,
+			Math.max(1, System.currentTimeMillis() - start));
+		System.out.println(result);
+		return result;
+	}
+
+	/**
+	 * List the files of the storage. The WAL files are included when the WAL is located in a separate directory.
+	 */
+	private static List<File> listFiles(OLocalPaginatedStorage storage) throws IOException {
+		File storageDir = storage.getStoragePath().toFile();
+		File[] files = storageDir.listFiles(File::isFile);
+		if (files == null) {
+			throw new IOException("Could not list the files of {" + storageDir + "}");
+		}
+		List<File> result = new ArrayList<>(Arrays.asList(files));
+		String walLocation = storage.getConfiguration().getContextConfiguration().getValueAsString(OGlobalConfiguration.WAL_LOCATION);
+		if (walLocation != null) {
+			File walDir = new File(walLocation);
+			if (!walDir.getCanonicalFile().equals(storageDir.getCanonicalFile())) {
+				// The WAL directory may be shared with other storages
+				File[] walFiles = walDir.listFiles(file -> file.isFile() && file.getName().startsWith(storage.getName() + "."));
+				if (walFiles == null) {
+					throw new IOException("Could not list the WAL files of {" + walDir + "}");
+				}
+				result.addAll(Arrays.asList(walFiles));
+			}
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	/**
+	 * Read the blocks of the file, record their checksums and write the changed blocks to the chunk file.
+	 */
+	private ChunkResult writeChunk(File file, FileEntry entry, long[] oldChecksums, int from, int to, File chunkFile) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(blockSize);
+		int changed = 0;
+		DataOutputStream out = null;
+		FileChannel channel;
+		try {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		} catch (NoSuchFileException e) {
+			return new ChunkResult(0, 0, file.getName());
+		}
+		try {
+			for (int block = from; block < to; block++) {
+				buffer.clear();
+				long position = (long) block * blockSize;
+				int length = (int) Math.min(blockSize, entry.length - position);
+				buffer.limit(length);
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer, position + buffer.position()) < 0) {
+						break;
+					}
+				}
+				long checksum = checksum(buffer.array(), buffer.position());
+				entry.checksums[block] = checksum;
+				if (oldChecksums != null && block < oldChecksums.length && oldChecksums[block] == checksum) {
+					continue;
+				}
+				if (out == null) {
+					out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(chunkFile)), 64 * 1024));
+				}
+				out.writeUTF(file.getName());
+				out.writeInt(block);
+				out.writeInt(buffer.position());
+				out.write(buffer.array(), 0, buffer.position());
+				changed++;
+			}
+		} finally {
+			channel.close();
+			if (out != null) {
+				out.close();
+			}
+		}
+		return new ChunkResult(changed, changed == 0 ? 0 : chunkFile.length(), null);
+	}
+
+	/**
+	 * 64 bit checksum which is built from the CRC32 and Adler32 checksums of the block.
+	 */
+	private static long checksum(byte[] data, int length) {
+		CRC32 crc32 = new CRC32();
+		crc32.update(data, 0, length);
+		Adler32 adler32 = new Adler32();
+		adler32.update(data, 0, length);
+		return crc32.getValue() << 32 | adler32.getValue();
+	}
+
+	private List<ChunkResult> execute(List<ChunkTask> tasks) throws IOException {
+		AtomicInteger counter = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threads, r -> new Thread(r, "incremental-backup-" + counter.getAndIncrement()));
+		try {
+			List<Future<ChunkResult>> futures = new ArrayList<>();
+			for (ChunkTask task : tasks) {
+				futures.add(executor.submit(task::call));
+			}
+			List<ChunkResult> results = new ArrayList<>();
+			for (Future<ChunkResult> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Backup was interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Backup failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Restore the files of the storage by applying the last full backup and all following incremental backups. The database must not be open.
+	 * WAL files which were backed up from a separate WAL directory are restored into the storage directory, which is the default WAL
+	 * location.
+	 *
+	 * @param backupDirectory
+	 * @param storageDir
+	 *            Directory of the storage which will be replaced. The name of the directory must match the name of the backed up database since
+	 *            the WAL files are named after the database.
+	 * @throws IOException
+	 */
+	public static void restore(File backupDirectory, File storageDir) throws IOException {
+		List<File> backups = listBackups(backupDirectory);
+		int first = -1;
+		for (int i = 0; i < backups.size(); i++) {
+			if (backups.get(i).getName().endsWith(FULL_SUFFIX)) {
+				first = i;
+			}
+		}
+		if (first < 0) {
+			throw new IOException("No full backup found in {" + backupDirectory + "}");
+		}
+		FileUtils.deleteDirectory(storageDir);
+		storageDir.mkdirs();
+		for (File backup : backups.subList(first, backups.size())) {
+			System.out.println("Applying backup {" + backup.getName() + "}");
+			Manifest manifest = Manifest.read(new File(backup, MANIFEST));
+			Map<String, RandomAccessFile> files = new HashMap<>();
+			try {
+				for (Map.Entry<String, FileEntry> entry : manifest.files.entrySet()) {
+					RandomAccessFile file = new RandomAccessFile(new File(storageDir, entry.getKey()), "rw");
+					files.put(entry.getKey(), file);
+					file.setLength(entry.getValue().length);
+				}
+				File[] chunks = new File(backup, "blocks").listFiles();
+				for (File chunk : chunks == null ? new File[0] : chunks) {
+					applyChunk(chunk, manifest.blockSize, files);
+				}
+			} finally {
+				for (RandomAccessFile file : files.values()) {
+					file.close();
+				}
+			}
+			// Remove the files which did no longer exist when the backup was created
+			File[] existing = storageDir.listFiles();
+			for (File file : existing == null ? new File[0] : existing) {
+				if (!manifest.files.containsKey(file.getName())) {
+					FileUtils.forceDelete(file);
+				}
+			}
+		}
+	}
+
+	private static void applyChunk(File chunk, int blockSize, Map<String, RandomAccessFile> files) throws IOException {
+		try (DataInputStream in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(chunk)), 64 * 1024))) {
+			byte[] data = new byte[0];
+			while (true) {
+				String name;
+				try {
+					name = in.readUTF();
+				} catch (EOFException e) {
+					return;
+				}
+				int block = in.readInt();
+				int length = in.readInt();
+				if (data.length < length) {
+					data = new byte[length];
+				}
+				in.readFully(data, 0, length);
+				RandomAccessFile file = Objects.requireNonNull(files.get(name), "File {" + name + "} is not part of the manifest");
+				file.seek((long) block * blockSize);
+				file.write(data, 0, length);
+			}
+		}
+	}
+
+	/**
+	 * Return the backup directories in the order in which they were created.
+	 */
+	private static List<File> listBackups(File backupDirectory) {
+		File[] dirs = backupDirectory.listFiles(f -> f.isDirectory() && new File(f, MANIFEST).exists());
+		if (dirs == null) {
+			return Collections.emptyList();
+		}
+		List<File> backups = new ArrayList<>(Arrays.asList(dirs));
+		Collections.sort(backups);
+		return backups;
+	}
+
+	@FunctionalInterface
+	private interface ChunkTask {
+		ChunkResult call() throws IOException;
+	}
+
+	private static class ChunkResult {
+		final long blocks;
+		final long bytes;
+		final String removedFile;
+
+		ChunkResult(long blocks, long bytes, String removedFile) {
+			this.blocks = blocks;
+			this.bytes = bytes;
+			this.removedFile = removedFile;
+		}
+	}
+
+	private static class FileEntry {
+		final long length;
+		final long[] checksums;
+
+		FileEntry(long length, long[] checksums) {
+			this.length = length;
+			this.checksums = checksums;
+		}
+	}
+
+	/**
+	 * Length and block checksums of the files of the storage at the time of the backup.
+	 */
+	private static class Manifest {
+		final int blockSize;
+		final Map<String, FileEntry> files;
+
+		Manifest(int blockSize, Map<String, FileEntry> files) {
+			this.blockSize = blockSize;
+			this.files = files;
+		}
+
+		void write(File file) throws IOException {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+				out.writeInt(MANIFEST_VERSION);
+				out.writeInt(blockSize);
+				out.writeInt(files.size());
+				for (Map.Entry<String, FileEntry> entry : files.entrySet()) {
+					out.writeUTF(entry.getKey());
+					out.writeLong(entry.getValue().length);
+					out.writeInt(entry.getValue().checksums.length);
+					for (long checksum : entry.getValue().checksums) {
+						out.writeLong(checksum);
+					}
+				}
+			}
+		}
+
+		static Manifest read(File file) throws IOException {
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+				int version = in.readInt();
+				if (version != MANIFEST_VERSION) {
+					throw new IOException("Unsupported manifest version {" + version + "} in {" + file + "}");
+				}
+				int blockSize = in.readInt();
+				int count = in.readInt();
+				Map<String, FileEntry> files = new LinkedHashMap<>();
+				for (int i = 0; i < count; i++) {
+					String name = in.readUTF();
+					long length = in.readLong();
+					long[] checksums = new long[in.readInt()];
+					for (int b = 0; b < checksums.length; b++) {
+						checksums[b] = in.readLong();
+					}
+					files.put(name, new FileEntry(length, checksums));
+				}
+				return new Manifest(blockSize, files);
+			}
+		}
+	}
+
+	public static class Result {
+		private final String name;
+		private final boolean full;
+		private final long scannedBytes;
+		private final long changedBlocks;
+		private final long writtenBytes;
+		private final long frozenMs;
+		private final long durationMs;
+
+		public Result(String name, boolean full, long scannedBytes, long changedBlocks, long writtenBytes, long frozenMs, long durationMs) {
+			this.name = name;
+			this.full = full;
+			this.scannedBytes = scannedBytes;
+			this.changedBlocks = changedBlocks;
+			this.writtenBytes = writtenBytes;
+			this.frozenMs = frozenMs;
+			this.durationMs = durationMs;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public boolean isFull() {
+			return full;
+		}
+
+		/**
+		 * Return the size of the files which were read.
+		 *
+		 * @return
+		 */
+		public long getScannedBytes() {
+			return scannedBytes;
+		}
+
+		public long getChangedBlocks() {
+			return changedBlocks;
+		}
+
+		/**
+		 * Return the compressed size of the changed blocks.
+		 *
+		 * @return
+		 */
+		public long getWrittenBytes() {
+			return writtenBytes;
+		}
+
+		/**
+		 * Return the time in which the database was frozen.
+		 *
+		 * @return
+		 */
+		public long getFrozenMs() {
+			return frozenMs;
+		}
+
+		public long getDurationMs() {
+			return durationMs;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Backup %s (%s): scanned %d bytes, wrote %d changed blocks with %d bytes in %d ms (frozen for %d ms)", name,
+				full ? "full" : "incremental", scannedBytes, changedBlocks, writtenBytes, durationMs, frozenMs);
+		}
+	}
+
+}
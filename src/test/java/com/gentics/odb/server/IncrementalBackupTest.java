@@ -0,0 +1,131 @@
+package com.gentics.odb.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gentics.odb.AbstractOrientTest;
+import com.gentics.odb.StorageProfile;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+import com.tinkerpop.blueprints.impls.orient.OrientVertex;
+
+public class IncrementalBackupTest extends AbstractOrientTest {
+
+	private static final String CONTENT_TYPE = "ContentImpl";
+	private static final File BASE = new File("target", IncrementalBackupTest.class.getSimpleName());
+	private static final File DB_FOLDER = new File(BASE, "db");
+	private static final File BACKUP_FOLDER = new File(BASE, "backups");
+	// The WAL files contain the name of the database thus the restored database must have the same name
+	private static final File RESTORE_FOLDER = new File(new File(BASE, "restored"), "db");
+
+	private OrientGraphFactory factory;
+
+	@Before
+	public void setupDB() throws IOException {
+		FileUtils.deleteDirectory(BASE);
+		factory = new OrientGraphFactory("plocal:" + DB_FOLDER.getAbsolutePath()).setupPool(16, 100);
+		addVertexType(factory::getNoTx, CONTENT_TYPE, null, null);
+	}
+
+	@After
+	public void closeDB() {
+		factory.drop();
+		factory.close();
+	}
+
+	@Test
+	public void testBackupAndRestore() throws IOException {
+		IncrementalBackup backup = new IncrementalBackup(BACKUP_FOLDER).setThreads(4);
+		insert(2000, 1024);
+		IncrementalBackup.Result full = backup(backup);
+		assertTrue(full.isFull());
+		assertTrue(full.getChangedBlocks() > 0);
+
+		IncrementalBackup.Result unchanged = backup(backup);
+		assertFalse(unchanged.isFull());
+		// Freezing the database writes a few WAL entries
+		assertTrue("Only a few blocks should have changed", unchanged.getChangedBlocks() < 5);
+
+		insert(10, 1024);
+		IncrementalBackup.Result incremental = backup(backup);
+		assertFalse(incremental.isFull());
+		assertTrue(incremental.getChangedBlocks() > 0);
+		assertTrue("The incremental backup should be smaller than the full backup", incremental.getWrittenBytes() < full.getWrittenBytes());
+
+		factory.drop();
+		factory.close();
+		IncrementalBackup.restore(BACKUP_FOLDER, RESTORE_FOLDER);
+		factory = new OrientGraphFactory("plocal:" + RESTORE_FOLDER.getAbsolutePath()).setupPool(16, 100);
+		OrientGraphNoTx noTx = factory.getNoTx();
+		try {
+			assertEquals(2010, noTx.countVertices(CONTENT_TYPE));
+		} finally {
+			noTx.shutdown();
+		}
+	}
+
+	@Test
+	public void testSeparateWal() throws IOException {
+		File walFolder = new File(BASE, "wal");
+		walFolder.mkdirs();
+		factory.drop();
+		factory.close();
+		OGlobalConfiguration.WAL_LOCATION.setValue(walFolder.getAbsolutePath());
+		try {
+			factory = new OrientGraphFactory("plocal:" + DB_FOLDER.getAbsolutePath()).setupPool(16, 100);
+			addVertexType(factory::getNoTx, CONTENT_TYPE, null, null);
+			insert(100, 1024);
+			backup(new IncrementalBackup(BACKUP_FOLDER));
+			factory.drop();
+			factory.close();
+		} finally {
+			StorageProfile.resetWalLocation();
+		}
+
+		IncrementalBackup.restore(BACKUP_FOLDER, RESTORE_FOLDER);
+		assertTrue("The WAL must be restored next to the storage", RESTORE_FOLDER.listFiles((dir, name) -> name.endsWith(".wal")).length > 0);
+		factory = new OrientGraphFactory("plocal:" + RESTORE_FOLDER.getAbsolutePath()).setupPool(16, 100);
+		OrientGraphNoTx noTx = factory.getNoTx();
+		try {
+			assertEquals(100, noTx.countVertices(CONTENT_TYPE));
+		} finally {
+			noTx.shutdown();
+		}
+	}
+
+	private IncrementalBackup.Result backup(IncrementalBackup backup) throws IOException {
+		ODatabaseDocumentTx db = factory.getDatabase();
+		try {
+			return backup.backup((ODatabaseDocumentInternal) db);
+		} finally {
+			db.close();
+		}
+	}
+
+	private void insert(int count, int size) {
+		OrientGraph tx = factory.getTx();
+		try {
+			for (int i = 0; i < count; i++) {
+				OrientVertex v = tx.addVertex("class:" + CONTENT_TYPE);
+				v.setProperty("text", FileUtils.byteCountToDisplaySize(i) + new String(new char[size]).replace('\0', 'x'));
+			}
+			tx.commit();
+		} finally {
+			tx.shutdown();
+		}
+	}
+
+}
@@ -12,10 +12,17 @@ public class LatchingDistributedLifecycleListener implements ODistributedLifecyc
 
 	private String selfNodeName;
 
+	private StartupProfiler profiler;
+
 	public LatchingDistributedLifecycleListener(String selfNodeName) {
 		this.selfNodeName = selfNodeName;
 	}
 
+	public LatchingDistributedLifecycleListener(String selfNodeName, StartupProfiler profiler) {
+		this.selfNodeName = selfNodeName;
+		this.profiler = profiler;
+	}
+
 	@Override
 	public boolean onNodeJoining(String iNode) {
 		// Lock lock = hz.getLock("TX_LOCK");
@@ -39,6 +46,9 @@ public class LatchingDistributedLifecycleListener implements ODistributedLifecyc
 
 		if ("storage".equals(iDatabaseName) && iNewStatus == DB_STATUS.ONLINE && iNode.equals(selfNodeName)) {
 			System.out.println("Database is now online on {" + iNode + "}");
+			if (profiler != null) {
+				profiler.mark(StartupProfiler.DATABASE_SYNC);
+			}
 			nodeJoinLatch.countDown();
 		}
 	}
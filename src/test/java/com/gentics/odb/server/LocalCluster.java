@@ -0,0 +1,224 @@
+package com.gentics.odb.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.commons.io.FileUtils;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+
+/**
+ * Starts multiple distributed OrientDB servers in the same JVM. Every node gets its own free ports, base path and config directory. The
+ * config files are generated from the templates in the config directory of the project. The first node creates the {@code storage}
+ * database which is then deployed to the other nodes when they join.
+ */
+public class LocalCluster implements AutoCloseable {
+
+	private static final File TEMPLATE_DIR = new File("config");
+
+	public static final String HAZELCAST_CONFIG = "hazelcast.xml";
+
+	public static final String DISTRIBUTED_DB_CONFIG = "default-distributed-db-config.json";
+
+	private final String name;
+
+	private final int nodeCount;
+
+	private final File baseDir;
+
+	private final List<Database> nodes = new ArrayList<>();
+
+	private String hazelcastConfig;
+
+	private String distributedDbConfig;
+
+	private Consumer<Database> setup;
+
+	private boolean fastJoin = true;
+
+	private final List<Integer> hazelcastPorts = new ArrayList<>();
+
+	public LocalCluster(String name, int nodeCount) {
+		if (nodeCount < 1) {
+			throw new IllegalArgumentException("The cluster needs at least one node");
+		}
+		this.name = name;
+		this.nodeCount = nodeCount;
+		this.baseDir = new File("target", name);
+		this.hazelcastConfig = readTemplate(HAZELCAST_CONFIG);
+		this.distributedDbConfig = readTemplate(DISTRIBUTED_DB_CONFIG);
+	}
+
+	/**
+	 * Set the hazelcast.xml content which is used for all nodes. The network port will be replaced with the port of the node and the
+	 * {@link StartupProfiler.HazelcastListener} will be registered.
+	 *
+	 * @param hazelcastConfig
+	 * @return Fluent API
+	 */
+	public LocalCluster setHazelcastConfig(String hazelcastConfig) {
+		this.hazelcastConfig = hazelcastConfig;
+		return this;
+	}
+
+	public String getHazelcastConfig() {
+		return hazelcastConfig;
+	}
+
+	/**
+	 * Set whether the nodes should discover each other via a TCP-IP member list on the loopback interface (default) or via the join
+	 * configuration of the Hazelcast config.
+	 *
+	 * @param fastJoin
+	 * @return Fluent API
+	 */
+	public LocalCluster setFastJoin(boolean fastJoin) {
+		this.fastJoin = fastJoin;
+		return this;
+	}
+
+	/**
+	 * Set the default-distributed-db-config.json content which is used for all nodes.
+	 *
+	 * @param distributedDbConfig
+	 * @return Fluent API
+	 */
+	public LocalCluster setDistributedDbConfig(String distributedDbConfig) {
+		this.distributedDbConfig = distributedDbConfig;
+		return this;
+	}
+
+	public String getDistributedDbConfig() {
+		return distributedDbConfig;
+	}
+
+	/**
+	 * Set the handler which creates the schema on the first node before the other nodes join.
+	 *
+	 * @param setup
+	 * @return Fluent API
+	 */
+	public LocalCluster setSetup(Consumer<Database> setup) {
+		this.setup = setup;
+		return this;
+	}
+
+	/**
+	 * Start all nodes one after another. The method returns when the database is online on all nodes.
+	 *
+	 * @return Fluent API
+	 * @throws Exception
+	 */
+	public LocalCluster start() throws Exception {
+		FileUtils.deleteDirectory(baseDir);
+		hazelcastPorts.clear();
+		for (int i = 0; i < nodeCount; i++) {
+			hazelcastPorts.add(freePort());
+		}
+		for (int i = 0; i < nodeCount; i++) {
+			startNode(i);
+		}
+		return this;
+	}
+
+	private Database startNode(int index) throws Exception {
+		String nodeName = name + "-node" + (index + 1);
+		File nodeDir = new File(baseDir, nodeName);
+		File configDir = new File(nodeDir, "config");
+		String nodeHazelcastConfig = HazelcastConfigs.setPort(hazelcastConfig, hazelcastPorts.get(index));
+		if (fastJoin) {
+			nodeHazelcastConfig = HazelcastConfigs.useLoopbackTcpIpJoin(nodeHazelcastConfig, hazelcastPorts);
+		}
+		nodeHazelcastConfig = HazelcastConfigs.addListener(nodeHazelcastConfig, StartupProfiler.HazelcastListener.class);
+		FileUtils.writeStringToFile(new File(configDir, HAZELCAST_CONFIG), nodeHazelcastConfig, StandardCharsets.UTF_8);
+		FileUtils.writeStringToFile(new File(configDir, DISTRIBUTED_DB_CONFIG), distributedDbConfig, StandardCharsets.UTF_8);
+
+		Database db = new Database(nodeName, new File(nodeDir, "databases").getPath(), String.valueOf(freePort()), String.valueOf(freePort()));
+		db.setConfigDirectory(configDir).setShutdownEngineOnExit(false);
+		OGlobalConfiguration.DISTRIBUTED_BACKUP_DIRECTORY.setValue(new File(nodeDir, "backup").getAbsolutePath());
+		nodes.add(db);
+		if (index == 0) {
+			db.startOrientServer(false);
+			db.create("storage");
+			if (setup != null) {
+				setup.accept(db);
+			}
+		} else {
+			db.startOrientServer(true);
+		}
+		return db;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	public Database getNode(int index) {
+		return nodes.get(index);
+	}
+
+	public List<Database> getNodes() {
+		return Collections.unmodifiableList(nodes);
+	}
+
+	/**
+	 * Return the startup phases of all nodes as a table.
+	 *
+	 * @return
+	 */
+	public String getStartupReport() {
+		StringBuilder builder = new StringBuilder();
+		for (Database node : nodes) {
+			builder.append(node.getStartupProfiler());
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Shutdown the nodes in reverse start order.
+	 */
+	@Override
+	public void close() {
+		for (int i = nodes.size() - 1; i >= 0; i--) {
+			try {
+				nodes.get(i).close();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		nodes.clear();
+	}
+
+	private static String readTemplate(String fileName) {
+		try {
+			return FileUtils.readFileToString(new File(TEMPLATE_DIR, fileName), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Return a port which is currently not in use.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	public static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			socket.setReuseAddress(true);
+			return socket.getLocalPort();
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.gentics.odb.server;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Measures the commit latency and throughput of the product insert transaction for different consistency settings of the distributed
+ * database config and cluster sizes. The comparison report is written to target/QuorumMatrixTest.csv.
+ *
+ * The matrix can be configured via system properties. Each property accepts a comma separated list of values:
+ * <ul>
+ * <li>{@code quorum.nodes} - Amount of nodes (1-5)</li>
+ * <li>{@code quorum.writeQuorum} - e.g. 1, 2, majority, all</li>
+ * <li>{@code quorum.readQuorum} - e.g. 1, majority, all</li>
+ * <li>{@code quorum.readYourWrites} - true, false</li>
+ * <li>{@code quorum.executionMode} - undefined, synchronous, asynchronous</li>
+ * </ul>
+ * The workload is configured via {@code cluster.threads}, {@code cluster.warmup} and {@code cluster.transactions}.
+ */
+public class QuorumMatrixTest extends AbstractClusterTest {
+
+	private static final int THREADS = Integer.getInteger("cluster.threads", 4);
+	private static final long WARMUP = Long.getLong("cluster.warmup", 100);
+	private static final long TRANSACTIONS = Long.getLong("cluster.transactions", 300);
+
+	private static final List<Integer> NODES = listProperty("quorum.nodes", "1,3", Integer::valueOf);
+	private static final List<String> WRITE_QUORUM = listProperty("quorum.writeQuorum", "1,majority", value -> value);
+	private static final List<String> READ_QUORUM = listProperty("quorum.readQuorum", "1", value -> value);
+	private static final List<String> READ_YOUR_WRITES = listProperty("quorum.readYourWrites", "true", value -> value);
+	private static final List<String> EXECUTION_MODE = listProperty("quorum.executionMode", "undefined", value -> value);
+
+	@Test
+	public void testMatrix() throws Exception {
+		ClusterSweep sweep = new ClusterSweep(QuorumMatrixTest.class.getSimpleName(), this::createProductSchema,
+			cluster -> productWorkload(cluster)
+				.setThreads(THREADS)
+				.setWarmupTransactions(WARMUP)
+				.setTransactions(TRANSACTIONS));
+
+		for (int nodes : NODES) {
+			for (String writeQuorum : WRITE_QUORUM) {
+				for (String readQuorum : READ_QUORUM) {
+					for (String readYourWrites : READ_YOUR_WRITES) {
+						for (String executionMode : EXECUTION_MODE) {
+							String name = "w=" + writeQuorum + " r=" + readQuorum + " ryw=" + readYourWrites + " " + executionMode;
+							sweep.addVariant(new ClusterSweep.Variant(name, nodes)
+								.setParameter("writeQuorum", writeQuorum)
+								.setParameter("readQuorum", readQuorum)
+								.setParameter("readYourWrites", readYourWrites)
+								.setParameter("executionMode", executionMode)
+								.setConfigurer(cluster -> {
+									String config = cluster.getDistributedDbConfig();
+									config = DistributedDbConfigs.set(config, "writeQuorum", writeQuorum);
+									config = DistributedDbConfigs.set(config, "readQuorum", readQuorum);
+									config = DistributedDbConfigs.set(config, "readYourWrites", readYourWrites);
+									config = DistributedDbConfigs.set(config, "executionMode", executionMode);
+									cluster.setDistributedDbConfig(config);
+								}));
+						}
+					}
+				}
+			}
+		}
+
+		List<ClusterSweep.Row> rows = sweep.run();
+		assertEquals(sweep.getVariants().size(), rows.size());
+		for (ClusterSweep.Row row : rows) {
+			assertEquals(TRANSACTIONS, row.getResult().getCommitted());
+		}
+	}
+
+}
@@ -0,0 +1,147 @@
+package com.gentics.odb.server;
+
+import java.util.Random;
+
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.storage.OPhysicalPosition;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
+
+/**
+ * Picks random vertices without iterating the class. A random position is chosen within the position ranges of the clusters of the class and
+ * the record at that position gets loaded. Positions of deleted records are retried. When no record was found within {@link #MAX_ATTEMPTS}
+ * attempts, the clusters are browsed from a random position on.
+ */
+public class RandomVertexSampler {
+
+	/**
+	 * Amount of positions which will be tried before giving up. Classes with many deleted records need more attempts.
+	 */
+	public static final int MAX_ATTEMPTS = 100;
+
+	/**
+	 * Amount of positions which will be loaded by the browse fallback before giving up.
+	 */
+	public static final int MAX_BROWSE = 10_000;
+
+	private final Random random;
+
+	public RandomVertexSampler() {
+		this(new Random());
+	}
+
+	public RandomVertexSampler(Random random) {
+		this.random = random;
+	}
+
+	/**
+	 * Pick a random vertex of the given class (including subclasses).
+	 *
+	 * @param tx
+	 * @param className
+	 * @return Random vertex or null if the class has no vertices
+	 */
+	public Vertex pick(OrientBaseGraph tx, String className) {
+		OClass clazz = tx.getRawGraph().getMetadata().getImmutableSchemaSnapshot().getClass(className);
+		if (clazz == null) {
+			return null;
+		}
+		OStorage storage = tx.getRawGraph().getStorage();
+		int[] clusterIds = clazz.getPolymorphicClusterIds();
+		long[] firstPositions = new long[clusterIds.length];
+		long[] rangeSizes = new long[clusterIds.length];
+		long total = 0;
+		for (int i = 0; i < clusterIds.length; i++) {
+			long[] range = storage.getClusterDataRange(clusterIds[i]);
+			if (range[0] < 0 || range[1] < range[0]) {
+				continue;
+			}
+			firstPositions[i] = range[0];
+			rangeSizes[i] = range[1] - range[0] + 1;
+			total += rangeSizes[i];
+		}
+		if (total == 0) {
+			return null;
+		}
+
+		for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+			// Weight the clusters by their range size to keep the pick uniform
+			long offset = (long) (random.nextDouble() * total);
+			int i = 0;
+			while (offset >= rangeSizes[i]) {
+				offset -= rangeSizes[i];
+				i++;
+			}
+			Vertex vertex = tx.getVertex(new ORecordId(clusterIds[i], firstPositions[i] + offset));
+			if (vertex != null) {
+				return vertex;
+			}
+		}
+		return browse(tx, storage, clusterIds, firstPositions, rangeSizes);
+	}
+
+	/**
+	 * Browse the existing positions of the clusters, starting at a random cluster and position, and return the first vertex. This handles
+	 * sparse clusters in which random positions mostly hit deleted records.
+	 */
+	private Vertex browse(OrientBaseGraph tx, OStorage storage, int[] clusterIds, long[] firstPositions, long[] rangeSizes) {
+		int start = random.nextInt(clusterIds.length);
+		int budget = MAX_BROWSE;
+		for (int n = 0; n < clusterIds.length && budget > 0; n++) {
+			int i = (start + n) % clusterIds.length;
+			if (rangeSizes[i] == 0) {
+				continue;
+			}
+			long from = firstPositions[i] + (long) (random.nextDouble() * rangeSizes[i]);
+			// Browse up to the end of the range, then wrap around to its start
+			long[][] segments = { { from, firstPositions[i] + rangeSizes[i] }, { firstPositions[i], from } };
+			for (long[] segment : segments) {
+				long position = segment[0];
+				while (position < segment[1] && budget > 0) {
+					OPhysicalPosition[] positions = storage.ceilingPhysicalPositions(clusterIds[i], new OPhysicalPosition(position));
+					if (positions.length == 0) {
+						break;
+					}
+					for (OPhysicalPosition physicalPosition : positions) {
+						position = physicalPosition.clusterPosition;
+						if (position >= segment[1] || budget-- <= 0) {
+							break;
+						}
+						Vertex vertex = tx.getVertex(new ORecordId(clusterIds[i], position));
+						if (vertex != null) {
+							return vertex;
+						}
+					}
+					position++;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Pick a random vertex from the reservoir. Ids of vertices which no longer exist get removed from the reservoir.
+	 *
+	 * @param tx
+	 * @param reservoir
+	 * @return Random vertex or null if no vertex could be found within {@link #MAX_ATTEMPTS} attempts
+	 */
+	public Vertex pick(OrientBaseGraph tx, RidReservoir reservoir) {
+		for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+			ORID rid = reservoir.sample();
+			if (rid == null) {
+				return null;
+			}
+			Vertex vertex = tx.getVertex(rid);
+			if (vertex != null) {
+				return vertex;
+			}
+			reservoir.remove(rid);
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.gentics.odb.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gentics.odb.AbstractOrientTest;
+import com.gentics.odb.StorageProfile;
+import com.orientechnologies.orient.core.id.ORID;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+import com.tinkerpop.blueprints.impls.orient.OrientVertex;
+
+public class RandomVertexSamplerTest extends AbstractOrientTest {
+
+	private static final int VERTEX_COUNT = 2_000;
+
+	private OrientGraphFactory factory;
+
+	private final List<ORID> ids = new ArrayList<>();
+
+	@Before
+	public void setupDB() {
+		factory = StorageProfile.current().createFactory("tinkerpop" + System.currentTimeMillis());
+		addVertexType(factory::getNoTx, AbstractClusterTest.PRODUCT, null, null);
+		addVertexType(factory::getNoTx, AbstractClusterTest.PRODUCT_INFO, null, null);
+
+		OrientGraph tx = factory.getTx();
+		try {
+			List<OrientVertex> vertices = new ArrayList<>();
+			for (int i = 0; i < VERTEX_COUNT; i++) {
+				vertices.add(tx.addVertex("class:" + AbstractClusterTest.PRODUCT));
+			}
+			tx.commit();
+			vertices.forEach(v -> ids.add(v.getIdentity()));
+		} finally {
+			tx.shutdown();
+		}
+	}
+
+	@After
+	public void closeDB() {
+		StorageProfile.current().drop(factory);
+	}
+
+	@Test
+	public void testPickWithHoles() {
+		// Delete every second vertex to create holes in the clusters
+		Set<ORID> deleted = new HashSet<>();
+		OrientGraph tx = factory.getTx();
+		try {
+			for (int i = 0; i < ids.size(); i += 2) {
+				tx.getVertex(ids.get(i)).remove();
+				deleted.add(ids.get(i));
+			}
+			tx.commit();
+		} finally {
+			tx.shutdown();
+		}
+
+		RandomVertexSampler sampler = new RandomVertexSampler();
+		tx = factory.getTx();
+		try {
+			Set<Object> picked = new HashSet<>();
+			for (int i = 0; i < 500; i++) {
+				Vertex v = sampler.pick(tx, AbstractClusterTest.PRODUCT);
+				assertNotNull("A vertex should have been picked", v);
+				assertFalse("Deleted vertices must not be picked", deleted.contains(v.getId()));
+				picked.add(v.getId());
+			}
+			assertTrue("The picks should be spread over the class", picked.size() > 100);
+			assertNull("Empty classes should not return a vertex", sampler.pick(tx, AbstractClusterTest.PRODUCT_INFO));
+		} finally {
+			tx.shutdown();
+		}
+	}
+
+	@Test
+	public void testPickSparse() {
+		// Only keep the first and the last vertex, thus the random positions mostly hit deleted records
+		Set<ORID> kept = new HashSet<>();
+		kept.add(ids.get(0));
+		kept.add(ids.get(ids.size() - 1));
+		OrientGraph tx = factory.getTx();
+		try {
+			for (ORID id : ids) {
+				if (!kept.contains(id)) {
+					tx.getVertex(id).remove();
+				}
+			}
+			tx.commit();
+		} finally {
+			tx.shutdown();
+		}
+
+		RandomVertexSampler sampler = new RandomVertexSampler();
+		tx = factory.getTx();
+		try {
+			for (int i = 0; i < 50; i++) {
+				Vertex v = sampler.pick(tx, AbstractClusterTest.PRODUCT);
+				assertNotNull("The remaining vertices should be found by the browse fallback", v);
+				assertTrue(kept.contains(v.getId()));
+			}
+		} finally {
+			tx.shutdown();
+		}
+	}
+
+	@Test
+	public void testReservoir() {
+		RidReservoir reservoir = new RidReservoir(100);
+		ids.forEach(reservoir::offer);
+		assertEquals(100, reservoir.size());
+
+		ORID sample = reservoir.sample();
+		assertTrue(ids.contains(sample));
+		assertTrue(reservoir.remove(sample));
+		assertEquals(99, reservoir.size());
+
+		// Delete all vertices. The sampler should drain the reservoir.
+		OrientGraph tx = factory.getTx();
+		try {
+			for (Vertex v : tx.getVerticesOfClass(AbstractClusterTest.PRODUCT)) {
+				v.remove();
+			}
+			tx.commit();
+			assertNull(new RandomVertexSampler().pick(tx, reservoir));
+			assertTrue(reservoir.size() < 99);
+		} finally {
+			tx.shutdown();
+		}
+	}
+
+}
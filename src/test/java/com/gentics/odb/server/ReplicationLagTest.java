@@ -0,0 +1,61 @@
+package com.gentics.odb.server;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gentics.odb.LatencyHistogram;
+
+/**
+ * Starts a cluster of multiple nodes within the JVM and measures how long it takes until a product which was committed on the first node
+ * is visible on the other nodes.
+ *
+ * The workload can be configured via system properties:
+ * <ul>
+ * <li>{@code cluster.nodes} - Amount of nodes</li>
+ * <li>{@code cluster.threads} - Amount of concurrent writers on the first node</li>
+ * <li>{@code cluster.transactions} - Amount of write transactions</li>
+ * <li>{@code cluster.sampleRate} - Only observe every n-th transaction</li>
+ * </ul>
+ */
+public class ReplicationLagTest extends AbstractClusterTest {
+
+	private static final int NODES = Integer.getInteger("cluster.nodes", 3);
+	private static final int THREADS = Integer.getInteger("cluster.threads", 4);
+	private static final long TRANSACTIONS = Long.getLong("cluster.transactions", 1_000);
+	private static final int SAMPLE_RATE = Integer.getInteger("cluster.sampleRate", 1);
+
+	private LocalCluster cluster;
+
+	@Before
+	public void setupCluster() throws Exception {
+		cluster = new LocalCluster(ReplicationLagTest.class.getSimpleName(), NODES).setSetup(this::createProductSchema).start();
+		db = cluster.getNode(0);
+	}
+
+	@After
+	public void stopCluster() {
+		cluster.close();
+	}
+
+	@Test
+	public void testReplicationLag() throws Exception {
+		ReplicationWorkload.Result result = productWorkload(cluster)
+			.setThreads(THREADS)
+			.setTransactions(TRANSACTIONS)
+			.setSampleRate(SAMPLE_RATE)
+			.run();
+		System.out.println(result);
+
+		long samples = (TRANSACTIONS + SAMPLE_RATE - 1) / SAMPLE_RATE;
+		assertEquals(TRANSACTIONS, result.getCommitted());
+		assertEquals(0, result.getTimeouts());
+		assertEquals(NODES - 1, result.getLagPerNode().size());
+		for (LatencyHistogram lag : result.getLagPerNode().values()) {
+			assertEquals(samples, lag.getCount());
+		}
+	}
+
+}
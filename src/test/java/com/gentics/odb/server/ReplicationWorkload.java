@@ -0,0 +1,342 @@
+package com.gentics.odb.server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.gentics.odb.LatencyHistogram;
+import com.gentics.odb.Utils;
+import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+
+/**
+ * Write workload which runs on one node of a cluster while the other nodes observe when the written data becomes visible. Every write
+ * transaction stores a record with a unique key. After the commit returned the key is handed to one observer per node which polls the
+ * node until the key can be found. The time between the commit and the first successful lookup is recorded as replication lag.
+ */
+public class ReplicationWorkload {
+
+	/**
+	 * Writes the data of a single transaction.
+	 */
+	@FunctionalInterface
+	public interface Writer {
+		void write(OrientBaseGraph tx, String key);
+	}
+
+	/**
+	 * Checks whether the data which was written for the key is visible.
+	 */
+	@FunctionalInterface
+	public interface Lookup {
+		boolean isVisible(OrientBaseGraph graph, String key);
+	}
+
+	private static final Probe END = new Probe(null, 0);
+
+	private final Database writerNode;
+
+	private final List<Database> observerNodes;
+
+	private Writer writer;
+
+	private Lookup lookup;
+
+	private int threads = 1;
+
+	private long transactions = 1_000;
+
+	private int sampleRate = 1;
+
+	private long visibilityTimeoutMs = 30_000;
+
+	private long warmupTransactions = 0;
+
+	public ReplicationWorkload(Database writerNode, List<Database> observerNodes) {
+		this.writerNode = writerNode;
+		this.observerNodes = observerNodes;
+	}
+
+	/**
+	 * Create a workload which writes to the first node of the cluster and observes all other nodes.
+	 *
+	 * @param cluster
+	 */
+	public ReplicationWorkload(LocalCluster cluster) {
+		this(cluster.getNode(0), cluster.getNodes().subList(1, cluster.getNodeCount()));
+	}
+
+	public ReplicationWorkload setWriter(Writer writer) {
+		this.writer = writer;
+		return this;
+	}
+
+	public ReplicationWorkload setLookup(Lookup lookup) {
+		this.lookup = lookup;
+		return this;
+	}
+
+	/**
+	 * Set the amount of concurrent writers.
+	 *
+	 * @param threads
+	 * @return Fluent API
+	 */
+	public ReplicationWorkload setThreads(int threads) {
+		this.threads = threads;
+		return this;
+	}
+
+	/**
+	 * Set the total amount of write transactions.
+	 *
+	 * @param transactions
+	 * @return Fluent API
+	 */
+	public ReplicationWorkload setTransactions(long transactions) {
+		this.transactions = transactions;
+		return this;
+	}
+
+	/**
+	 * Only every n-th transaction will be observed. Increase the rate when the observers can't keep up with the writers.
+	 *
+	 * @param sampleRate
+	 * @return Fluent API
+	 */
+	public ReplicationWorkload setSampleRate(int sampleRate) {
+		this.sampleRate = sampleRate;
+		return this;
+	}
+
+	/**
+	 * Set the time after which an observer gives up waiting for a key.
+	 *
+	 * @param visibilityTimeoutMs
+	 * @return Fluent API
+	 */
+	public ReplicationWorkload setVisibilityTimeoutMs(long visibilityTimeoutMs) {
+		this.visibilityTimeoutMs = visibilityTimeoutMs;
+		return this;
+	}
+
+	/**
+	 * Set the amount of transactions which are written before the measurement starts.
+	 *
+	 * @param warmupTransactions
+	 * @return Fluent API
+	 */
+	public ReplicationWorkload setWarmupTransactions(long warmupTransactions) {
+		this.warmupTransactions = warmupTransactions;
+		return this;
+	}
+
+	/**
+	 * Run the workload and wait until all observers are done.
+	 *
+	 * @return
+	 * @throws Exception
+	 */
+	public Result run() throws Exception {
+		if (writer == null || lookup == null) {
+			throw new IllegalStateException("Writer and lookup need to be set");
+		}
+		for (long i = 0; i < warmupTransactions; i++) {
+			OrientGraph tx = writerNode.getTx();
+			try {
+				writer.write(tx, Utils.randomUUID());
+				tx.commit();
+			} finally {
+				tx.shutdown();
+			}
+		}
+		Result result = new Result();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		List<BlockingQueue<Probe>> queues = new ArrayList<>();
+		List<Thread> observers = new ArrayList<>();
+		for (Database node : observerNodes) {
+			BlockingQueue<Probe> queue = new LinkedBlockingQueue<>();
+			LatencyHistogram lag = new LatencyHistogram();
+			result.lag.put(node.getNodeName(), lag);
+			queues.add(queue);
+			Thread observer = new Thread(() -> observe(node, queue, lag, result, failure), "observer-" + node.getNodeName());
+			observers.add(observer);
+			observer.start();
+		}
+
+		AtomicLong counter = new AtomicLong();
+		List<Thread> writers = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int t = 0; t < threads; t++) {
+			Thread thread = new Thread(() -> {
+				try {
+					long i;
+					while ((i = counter.getAndIncrement()) < transactions && failure.get() == null) {
+						String key = Utils.randomUUID();
+						long txStart = System.nanoTime();
+						OrientGraph tx = writerNode.getTx();
+						try {
+							writer.write(tx, key);
+							tx.commit();
+						} catch (RuntimeException e) {
+							tx.rollback();
+							throw e;
+						} finally {
+							tx.shutdown();
+						}
+						long committed = System.nanoTime();
+						result.commitLatency.record(committed - txStart);
+						result.committed.increment();
+						if (i % sampleRate == 0) {
+							for (BlockingQueue<Probe> queue : queues) {
+								queue.add(new Probe(key, committed));
+							}
+						}
+					}
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			}, "writer-" + t);
+			writers.add(thread);
+			thread.start();
+		}
+		for (Thread thread : writers) {
+			thread.join();
+		}
+		result.durationNanos = System.nanoTime() - start;
+		for (BlockingQueue<Probe> queue : queues) {
+			queue.add(END);
+		}
+		for (Thread observer : observers) {
+			observer.join();
+		}
+		if (failure.get() != null) {
+			throw new RuntimeException("Replication workload failed", failure.get());
+		}
+		return result;
+	}
+
+	private void observe(Database node, BlockingQueue<Probe> queue, LatencyHistogram lag, Result result, AtomicReference<Throwable> failure) {
+		OrientGraphNoTx graph = node.getNoTx();
+		try {
+			Probe probe;
+			while ((probe = queue.take()) != END) {
+				long deadline = probe.committed + TimeUnit.MILLISECONDS.toNanos(visibilityTimeoutMs);
+				boolean visible;
+				while (!(visible = lookup.isVisible(graph, probe.key)) && System.nanoTime() < deadline) {
+					Thread.yield();
+				}
+				if (visible) {
+					lag.recordSince(probe.committed);
+				} else {
+					result.timeouts.increment();
+				}
+			}
+		} catch (Throwable e) {
+			failure.compareAndSet(null, e);
+		} finally {
+			graph.shutdown();
+		}
+	}
+
+	private static class Probe {
+
+		private final String key;
+
+		private final long committed;
+
+		Probe(String key, long committed) {
+			this.key = key;
+			this.committed = committed;
+		}
+	}
+
+	/**
+	 * Result of the workload.
+	 */
+	public static class Result {
+
+		private final LongAdder committed = new LongAdder();
+
+		private final LongAdder timeouts = new LongAdder();
+
+		private final LatencyHistogram commitLatency = new LatencyHistogram();
+
+		private final Map<String, LatencyHistogram> lag = new LinkedHashMap<>();
+
+		private long durationNanos;
+
+		public long getCommitted() {
+			return committed.sum();
+		}
+
+		/**
+		 * Return the amount of keys which did not become visible within the timeout.
+		 *
+		 * @return
+		 */
+		public long getTimeouts() {
+			return timeouts.sum();
+		}
+
+		public long getDurationMs() {
+			return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+		}
+
+		/**
+		 * Return the amount of committed write transactions per second. Each transaction is applied on every node of the cluster.
+		 *
+		 * @return
+		 */
+		public double getTxPerSecond() {
+			return durationNanos == 0 ? 0 : getCommitted() / (durationNanos / 1_000_000_000d);
+		}
+
+		public LatencyHistogram getCommitLatency() {
+			return commitLatency;
+		}
+
+		/**
+		 * Return the commit-to-visible lag per observed node.
+		 *
+		 * @return
+		 */
+		public Map<String, LatencyHistogram> getLagPerNode() {
+			return lag;
+		}
+
+		/**
+		 * Return the commit-to-visible lag of all observed nodes.
+		 *
+		 * @return
+		 */
+		public LatencyHistogram getLag() {
+			LatencyHistogram total = new LatencyHistogram();
+			lag.values().forEach(total::add);
+			return total;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			builder.append(String.format("Committed %d transactions in %d ms (%.1f tx/sec), %d keys not visible within timeout%n", getCommitted(),
+				getDurationMs(), getTxPerSecond(), getTimeouts()));
+			builder.append(String.format("%-24s %s%n", "commit latency", commitLatency));
+			for (Map.Entry<String, LatencyHistogram> entry : lag.entrySet()) {
+				builder.append(String.format("%-24s %s%n", "lag " + entry.getKey(), entry.getValue()));
+			}
+			builder.append(String.format("%-24s %s", "lag total", getLag()));
+			return builder.toString();
+		}
+	}
+
+}
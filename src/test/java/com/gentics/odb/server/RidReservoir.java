@@ -0,0 +1,117 @@
+package com.gentics.odb.server;
+
+import java.util.Random;
+
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+/**
+ * Bounded reservoir of record ids. Each id is packed into a single long (16 bits cluster id, 48 bits cluster position) so that the memory usage
+ * only depends on the capacity and not on the amount of offered ids. Once the reservoir is full new ids replace existing ones with decreasing
+ * probability (reservoir sampling), thus the content stays a uniform sample of all offered ids.
+ */
+public class RidReservoir {
+
+	private static final long POSITION_MASK = (1L << 48) - 1;
+
+	private final long[] rids;
+
+	private final Random random;
+
+	private int size;
+
+	private long seen;
+
+	public RidReservoir(int capacity) {
+		this(capacity, new Random());
+	}
+
+	public RidReservoir(int capacity, Random random) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The capacity must be positive");
+		}
+		this.rids = new long[capacity];
+		this.random = random;
+	}
+
+	/**
+	 * Offer the id of a committed record to the reservoir.
+	 *
+	 * @param rid
+	 *            Persistent record id
+	 */
+	public synchronized void offer(ORID rid) {
+		if (!rid.isPersistent()) {
+			throw new IllegalArgumentException("Only ids of committed records can be added but got " + rid);
+		}
+		long packed = pack(rid);
+		seen++;
+		if (size < rids.length) {
+			rids[size++] = packed;
+		} else {
+			long slot = (long) (random.nextDouble() * seen);
+			if (slot < rids.length) {
+				rids[(int) slot] = packed;
+			}
+		}
+	}
+
+	/**
+	 * Remove the id from the reservoir. This is a linear scan over the reservoir. Ids of records which were deleted elsewhere are dropped by
+	 * {@link RandomVertexSampler} once they get sampled.
+	 *
+	 * @param rid
+	 * @return true if the id was found
+	 */
+	public synchronized boolean remove(ORID rid) {
+		long packed = pack(rid);
+		for (int i = 0; i < size; i++) {
+			if (rids[i] == packed) {
+				removeAt(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return a random id of the reservoir.
+	 *
+	 * @return Random id or null if the reservoir is empty
+	 */
+	public synchronized ORID sample() {
+		if (size == 0) {
+			return null;
+		}
+		return unpack(rids[random.nextInt(size)]);
+	}
+
+	/**
+	 * Remove all ids from the reservoir, e.g. after all records were deleted.
+	 */
+	public synchronized void clear() {
+		size = 0;
+		seen = 0;
+	}
+
+	private void removeAt(int index) {
+		rids[index] = rids[--size];
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return rids.length;
+	}
+
+	private static long pack(ORID rid) {
+		return ((long) rid.getClusterId() << 48) | (rid.getClusterPosition() & POSITION_MASK);
+	}
+
+	private static ORID unpack(long packed) {
+		return new ORecordId((int) (packed >>> 48), packed & POSITION_MASK);
+	}
+
+}
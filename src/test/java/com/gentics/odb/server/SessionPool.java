@@ -0,0 +1,204 @@
+package com.gentics.odb.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabasePool;
+import com.orientechnologies.orient.core.db.ODatabaseSession;
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.orientechnologies.orient.core.exception.OAcquireTimeoutException;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+
+/**
+ * Bounded pool of authenticated sessions which records how long callers had to wait for a session and how many sessions were in use. The
+ * sessions are returned to the pool when the graph is shut down.
+ */
+public class SessionPool implements AutoCloseable {
+
+	private final ODatabasePool pool;
+
+	private final int maxSize;
+
+	private final LongAdder acquired = new LongAdder();
+
+	private final LongAdder timeouts = new LongAdder();
+
+	private final LongAdder totalWaitNanos = new LongAdder();
+
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+
+	private final AtomicInteger inUse = new AtomicInteger();
+
+	private final AtomicInteger maxInUse = new AtomicInteger();
+
+	private GraphMetrics metrics;
+
+	/**
+	 * Create the pool.
+	 *
+	 * @param context
+	 * @param database
+	 * @param user
+	 * @param password
+	 * @param minSize
+	 *            Amount of sessions which are kept open
+	 * @param maxSize
+	 *            Maximum amount of sessions which can be acquired at the same time
+	 * @param acquireTimeoutMs
+	 *            Time to wait for a free session before an {@link OAcquireTimeoutException} is thrown
+	 */
+	public SessionPool(OrientDB context, String database, String user, String password, int minSize, int maxSize, long acquireTimeoutMs) {
+		if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+			throw new IllegalArgumentException("Invalid pool size {" + minSize + "-" + maxSize + "}");
+		}
+		OrientDBConfig config = OrientDBConfig.builder()
+			.addConfig(OGlobalConfiguration.DB_POOL_MIN, minSize)
+			.addConfig(OGlobalConfiguration.DB_POOL_MAX, maxSize)
+			.addConfig(OGlobalConfiguration.DB_POOL_ACQUIRE_TIMEOUT, acquireTimeoutMs)
+			.build();
+		this.pool = new ODatabasePool(context, database, user, password, config);
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Record the acquire wait in the metrics and return metered graphs from {@link #getTx()}. Must be set before the pool is used.
+	 *
+	 * @param metrics
+	 * @return Fluent API
+	 */
+	public SessionPool setMetrics(GraphMetrics metrics) {
+		this.metrics = metrics;
+		metrics.setSessionPool(this);
+		return this;
+	}
+
+	public OrientGraph getTx() {
+		ODatabaseDocumentInternal db = acquire();
+		AtomicBoolean released = new AtomicBoolean();
+		if (metrics != null) {
+			return metrics.createTx(db, () -> {
+				if (released.compareAndSet(false, true)) {
+					release();
+				}
+			});
+		}
+		return new OrientGraph(db) {
+			@Override
+			public void shutdown(boolean closeDb, boolean commitTx) {
+				// Count the release before the session is handed back to the pool
+				if (closeDb && released.compareAndSet(false, true)) {
+					release();
+				}
+				super.shutdown(closeDb, commitTx);
+			}
+		};
+	}
+
+	public OrientGraphNoTx getNoTx() {
+		ODatabaseDocumentInternal db = acquire();
+		AtomicBoolean released = new AtomicBoolean();
+		return new OrientGraphNoTx(db) {
+			@Override
+			public void shutdown(boolean closeDb, boolean commitTx) {
+				// Count the release before the session is handed back to the pool
+				if (closeDb && released.compareAndSet(false, true)) {
+					release();
+				}
+				super.shutdown(closeDb, commitTx);
+			}
+		};
+	}
+
+	/**
+	 * Acquire a session. The session is returned to the pool when it is closed, which must be preceded by {@link #release()}.
+	 *
+	 * @return
+	 */
+	private ODatabaseDocumentInternal acquire() {
+		long start = System.nanoTime();
+		ODatabaseSession db;
+		try {
+			db = pool.acquire();
+		} catch (OAcquireTimeoutException e) {
+			timeouts.increment();
+			throw e;
+		} finally {
+			long wait = System.nanoTime() - start;
+			totalWaitNanos.add(wait);
+			maxWaitNanos.accumulateAndGet(wait, Math::max);
+			if (metrics != null) {
+				metrics.recordAcquire(wait);
+			}
+		}
+		acquired.increment();
+		maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+		return (ODatabaseDocumentInternal) db;
+	}
+
+	private void release() {
+		inUse.decrementAndGet();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Return the amount of sessions which are currently in use.
+	 *
+	 * @return
+	 */
+	public int getInUse() {
+		return inUse.get();
+	}
+
+	/**
+	 * Return the highest amount of sessions which were in use at the same time.
+	 *
+	 * @return
+	 */
+	public int getMaxInUse() {
+		return maxInUse.get();
+	}
+
+	public long getAcquired() {
+		return acquired.sum();
+	}
+
+	public long getTimeouts() {
+		return timeouts.sum();
+	}
+
+	/**
+	 * Return the average time which was spent waiting for a session.
+	 *
+	 * @return
+	 */
+	public double getAverageWaitMs() {
+		long count = acquired.sum() + timeouts.sum();
+		return count == 0 ? 0 : totalWaitNanos.sum() / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	public double getMaxWaitMs() {
+		return maxWaitNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	@Override
+	public void close() {
+		pool.close();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Session pool: %d/%d in use (max %d), %d acquired, %d timeouts, wait avg %1.3f ms, max %1.3f ms", getInUse(), maxSize,
+			getMaxInUse(), getAcquired(), getTimeouts(), getAverageWaitMs(), getMaxWaitMs());
+	}
+
+}
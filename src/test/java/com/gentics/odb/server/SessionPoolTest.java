@@ -0,0 +1,119 @@
+package com.gentics.odb.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.orientechnologies.orient.core.db.ODatabaseType;
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.orientechnologies.orient.core.exception.OAcquireTimeoutException;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+
+public class SessionPoolTest {
+
+	private OrientDB context;
+
+	@Before
+	public void setup() {
+		context = new OrientDB("embedded:", OrientDBConfig.defaultConfig());
+		context.create("storage", ODatabaseType.MEMORY);
+	}
+
+	@After
+	public void tearDown() {
+		context.close();
+	}
+
+	@Test
+	public void testBoundedUsage() throws Exception {
+		try (SessionPool pool = new SessionPool(context, "storage", "admin", "admin", 1, 2, 10_000)) {
+			OrientGraphNoTx noTx = pool.getNoTx();
+			try {
+				noTx.createVertexType("Item");
+			} finally {
+				noTx.shutdown();
+			}
+
+			// Hold all sessions so that the callers have to wait for the pool
+			List<OrientGraph> held = new ArrayList<>();
+			held.add(pool.getTx());
+			held.add(pool.getTx());
+			ExecutorService executor = Executors.newFixedThreadPool(6);
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 60; i++) {
+				futures.add(executor.submit(() -> {
+					OrientGraph tx = pool.getTx();
+					try {
+						tx.addVertex("class:Item");
+						Thread.sleep(2);
+						tx.commit();
+					} catch (InterruptedException e) {
+						throw new RuntimeException(e);
+					} finally {
+						tx.shutdown();
+					}
+				}));
+			}
+			Thread.sleep(200);
+			for (Future<?> future : futures) {
+				assertFalse("No caller may get a session from the exhausted pool", future.isDone());
+			}
+			for (OrientGraph tx : held) {
+				tx.shutdown();
+			}
+			for (Future<?> future : futures) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+			executor.shutdown();
+			System.out.println(pool);
+
+			assertEquals(0, pool.getInUse());
+			assertEquals(63, pool.getAcquired());
+			assertEquals("The pool must hand out at most two sessions", 2, pool.getMaxInUse());
+			assertTrue("Callers must have waited for the held sessions", pool.getMaxWaitMs() >= 150);
+			noTx = pool.getNoTx();
+			try {
+				assertEquals(60, noTx.countVertices("Item"));
+			} finally {
+				noTx.shutdown();
+			}
+		}
+	}
+
+	@Test
+	public void testAcquireTimeout() {
+		try (SessionPool pool = new SessionPool(context, "storage", "admin", "admin", 1, 1, 200)) {
+			OrientGraph tx = pool.getTx();
+			try {
+				pool.getTx();
+				fail("The second acquire should time out");
+			} catch (OAcquireTimeoutException e) {
+				// expected
+			} finally {
+				tx.shutdown();
+			}
+			assertEquals(1, pool.getTimeouts());
+			assertTrue(pool.getMaxWaitMs() >= 150);
+
+			// Shutting down twice must not release the session twice
+			tx.shutdown();
+			assertEquals(0, pool.getInUse());
+			pool.getTx().shutdown();
+		}
+	}
+
+}
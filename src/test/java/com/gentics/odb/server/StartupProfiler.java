@@ -0,0 +1,148 @@
+package com.gentics.odb.server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.hazelcast.core.LifecycleEvent;
+import com.hazelcast.core.LifecycleListener;
+import com.orientechnologies.orient.server.OServerLifecycleListener;
+
+/**
+ * Records the timestamps of the phases of a server startup. Each phase ends with a mark. Marks which are recorded more than once only keep
+ * the first timestamp. The profiler is bound to the thread which starts the server so that the Hazelcast join can be timed via
+ * {@link HazelcastListener}, which is registered in the generated Hazelcast configs.
+ */
+public class StartupProfiler implements OServerLifecycleListener {
+
+	public static final String CONFIG = "config resolution";
+
+	public static final String SERVER_INIT = "server init";
+
+	public static final String HAZELCAST_JOIN = "hazelcast join";
+
+	/**
+	 * Ends when the server is activated. This includes opening the local storages and the deployment of the databases from the other nodes.
+	 */
+	public static final String STORAGE_OPEN = "storage open";
+
+	public static final String PLUGINS = "plugin startup";
+
+	public static final String DATABASE_SYNC = "database sync";
+
+	public static final String ONLINE = "wait for online";
+
+	private static final ThreadLocal<StartupProfiler> CURRENT = new ThreadLocal<>();
+
+	private final String nodeName;
+
+	private final Map<String, Long> marks = new LinkedHashMap<>();
+
+	private long start;
+
+	public StartupProfiler(String nodeName) {
+		this.nodeName = nodeName;
+	}
+
+	/**
+	 * Reset the marks and bind the profiler to the current thread.
+	 */
+	public synchronized void start() {
+		marks.clear();
+		start = System.nanoTime();
+		CURRENT.set(this);
+	}
+
+	/**
+	 * Unbind the profiler from the current thread.
+	 */
+	public void stop() {
+		CURRENT.remove();
+	}
+
+	/**
+	 * Mark the end of the phase. Marks which are recorded after the {@link #ONLINE} mark are ignored.
+	 *
+	 * @param phase
+	 */
+	public synchronized void mark(String phase) {
+		if (!marks.containsKey(ONLINE)) {
+			marks.putIfAbsent(phase, System.nanoTime());
+		}
+	}
+
+	public synchronized boolean isMarked(String phase) {
+		return marks.containsKey(phase);
+	}
+
+	/**
+	 * Return the duration of each phase in the order in which the phases ended.
+	 *
+	 * @return
+	 */
+	public synchronized Map<String, Long> getPhaseDurationsMs() {
+		List<Map.Entry<String, Long>> entries = new ArrayList<>(marks.entrySet());
+		entries.sort(Map.Entry.comparingByValue());
+		Map<String, Long> durations = new LinkedHashMap<>();
+		long previous = start;
+		for (Map.Entry<String, Long> entry : entries) {
+			durations.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue() - previous));
+			previous = entry.getValue();
+		}
+		return durations;
+	}
+
+	/**
+	 * Return the time from the start until the last mark.
+	 *
+	 * @return
+	 */
+	public synchronized long getTotalMs() {
+		long last = marks.values().stream().mapToLong(Long::longValue).max().orElse(start);
+		return TimeUnit.NANOSECONDS.toMillis(last - start);
+	}
+
+	@Override
+	public void onAfterActivate() {
+		mark(STORAGE_OPEN);
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("Startup of {" + nodeName + "} took " + getTotalMs() + " ms\n");
+		long offset = 0;
+		for (Map.Entry<String, Long> entry : getPhaseDurationsMs().entrySet()) {
+			offset += entry.getValue();
+			builder.append(String.format("  %-20s %8d ms (at %d ms)%n", entry.getKey(), entry.getValue(), offset));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Hazelcast lifecycle listener which marks the join of the node. Hazelcast emits the events in the thread which starts the instance.
+	 */
+	public static class HazelcastListener implements LifecycleListener {
+
+		@Override
+		public void stateChanged(LifecycleEvent event) {
+			StartupProfiler profiler = CURRENT.get();
+			if (profiler == null) {
+				return;
+			}
+			switch (event.getState()) {
+			case STARTING:
+				profiler.mark(SERVER_INIT);
+				break;
+			case STARTED:
+				profiler.mark(HAZELCAST_JOIN);
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+}
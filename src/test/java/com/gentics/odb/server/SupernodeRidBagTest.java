@@ -0,0 +1,69 @@
+package com.gentics.odb.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.gentics.odb.SampleReport;
+import com.gentics.odb.StorageProfile;
+import com.gentics.odb.server.SupernodeWorkload.Result;
+import com.gentics.odb.server.SupernodeWorkload.RidBagMode;
+
+/**
+ * Compares the embedded, the tree-based and the adaptive ridbag for category supernodes. The report is written to
+ * target/SupernodeRidBagTest.csv.
+ *
+ * Tests can be configured with system properties:
+ * <ul>
+ * <li>{@code supernode.categories}: Amount of categories (default: 10)</li>
+ * <li>{@code supernode.products}: Amount of products which are linked to every category (default: 5000)</li>
+ * <li>{@code supernode.interval}: Products between two samples (default: 1000)</li>
+ * <li>{@code supernode.threshold}: Threshold of the adaptive mode (default: 40)</li>
+ * <li>{@code storage.profile}: See {@link StorageProfile}</li>
+ * </ul>
+ */
+public class SupernodeRidBagTest {
+
+	private static final int CATEGORIES = Integer.getInteger("supernode.categories", 10);
+
+	private static final int PRODUCTS = Integer.getInteger("supernode.products", 5_000);
+
+	private static final int INTERVAL = Integer.getInteger("supernode.interval", 1_000);
+
+	private static final int THRESHOLD = Integer.getInteger("supernode.threshold", 40);
+
+	@Test
+	public void testRidBagModes() throws Exception {
+		SupernodeWorkload workload = new SupernodeWorkload(StorageProfile.current(), SupernodeRidBagTest.class.getSimpleName())
+			.setCategories(CATEGORIES)
+			.setProducts(PRODUCTS)
+			.setSampleInterval(INTERVAL);
+
+		List<Result> results = new ArrayList<>();
+		for (RidBagMode mode : new RidBagMode[] { RidBagMode.embedded(), RidBagMode.sbtree(), RidBagMode.adaptive(THRESHOLD) }) {
+			results.add(workload.run(mode));
+		}
+		SampleReport report = SupernodeWorkload.report(results);
+		System.out.println(report.toTable());
+		report.writeCsv(new File("target", SupernodeRidBagTest.class.getSimpleName() + ".csv"));
+
+		for (Result result : results) {
+			assertEquals("Every product must be linked to the category", PRODUCTS, result.getFinalDegree());
+		}
+		long embeddedBytes = last(results.get(0)).getRecordBytes();
+		long sbtreeBytes = last(results.get(1)).getRecordBytes();
+		long adaptiveBytes = last(results.get(2)).getRecordBytes();
+		assertTrue("The embedded ridbag should grow the category record", embeddedBytes > sbtreeBytes * 10);
+		assertTrue("The adaptive ridbag should have switched to the tree", adaptiveBytes < embeddedBytes / 10);
+	}
+
+	private static SupernodeWorkload.Sample last(Result result) {
+		return result.getSamples().get(result.getSamples().size() - 1);
+	}
+
+}
@@ -0,0 +1,376 @@
+package com.gentics.odb.server;
+
+import static com.gentics.odb.server.AbstractClusterTest.CATEGORY;
+import static com.gentics.odb.server.AbstractClusterTest.HAS_PRODUCT;
+import static com.gentics.odb.server.AbstractClusterTest.PRODUCT;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.gentics.odb.LatencyHistogram;
+import com.gentics.odb.SampleReport;
+import com.gentics.odb.StorageProfile;
+import com.gentics.odb.Utils;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+import com.tinkerpop.blueprints.impls.orient.OrientVertex;
+
+/**
+ * Workload which links every product to every category, so that the categories become supernodes with one {@code HAS_PRODUCT} edge per
+ * product. The workload is run with different {@link RidBagMode}s. Every {@link #setSampleInterval(int)} products the insert latency of
+ * the interval, the serialized size of a category record, the used heap and the disk usage are sampled.
+ */
+public class SupernodeWorkload {
+
+	private final StorageProfile profile;
+
+	private final String dbName;
+
+	private int categories = 10;
+
+	private int products = 5_000;
+
+	private int sampleInterval = 1_000;
+
+	public SupernodeWorkload(StorageProfile profile, String dbName) {
+		this.profile = profile;
+		this.dbName = dbName;
+	}
+
+	/**
+	 * Set the amount of category vertices.
+	 *
+	 * @param categories
+	 * @return Fluent API
+	 */
+	public SupernodeWorkload setCategories(int categories) {
+		this.categories = categories;
+		return this;
+	}
+
+	/**
+	 * Set the amount of products, which is the final degree of each category.
+	 *
+	 * @param products
+	 * @return Fluent API
+	 */
+	public SupernodeWorkload setProducts(int products) {
+		this.products = products;
+		return this;
+	}
+
+	/**
+	 * Set the amount of products between two samples.
+	 *
+	 * @param sampleInterval
+	 * @return Fluent API
+	 */
+	public SupernodeWorkload setSampleInterval(int sampleInterval) {
+		this.sampleInterval = sampleInterval;
+		return this;
+	}
+
+	/**
+	 * Run the workload against a fresh database. The ridbag threshold is restored afterwards.
+	 *
+	 * @param mode
+	 * @return
+	 */
+	public Result run(RidBagMode mode) {
+		Object previousThreshold = OGlobalConfiguration.RID_BAG_EMBEDDED_TO_SBTREEBONSAI_THRESHOLD.getValue();
+		OGlobalConfiguration.RID_BAG_EMBEDDED_TO_SBTREEBONSAI_THRESHOLD.setValue(mode.getThreshold());
+		OrientGraphFactory factory = profile.createFactory(dbName);
+		try {
+			OrientGraphNoTx noTx = factory.getNoTx();
+			try {
+				noTx.createVertexType(CATEGORY);
+				noTx.createVertexType(PRODUCT);
+				noTx.createEdgeType(HAS_PRODUCT);
+			} finally {
+				noTx.shutdown();
+			}
+			List<Object> categoryIds = new ArrayList<>();
+			OrientGraph tx = factory.getTx();
+			try {
+				for (int i = 0; i < categories; i++) {
+					Vertex category = tx.addVertex("class:" + CATEGORY);
+					category.setProperty("name", "category" + i);
+					tx.commit();
+					categoryIds.add(category.getId());
+				}
+			} finally {
+				tx.shutdown();
+			}
+
+			Result result = new Result(mode);
+			LatencyHistogram latency = new LatencyHistogram();
+			long start = System.currentTimeMillis();
+			for (int i = 1; i <= products; i++) {
+				long txStart = System.nanoTime();
+				tx = factory.getTx();
+				try {
+					Vertex product = tx.addVertex("class:" + PRODUCT);
+					product.setProperty("uuid", Utils.randomUUID());
+					for (Object categoryId : categoryIds) {
+						tx.getVertex(categoryId).addEdge(HAS_PRODUCT, product);
+					}
+					tx.commit();
+				} finally {
+					tx.shutdown();
+				}
+				latency.recordSince(txStart);
+				if (i % sampleInterval == 0 || i == products) {
+					result.samples.add(sample(factory, categoryIds.get(0), i, latency));
+					latency = new LatencyHistogram();
+				}
+			}
+			result.durationMs = System.currentTimeMillis() - start;
+			result.finalDegree = degree(factory, categoryIds.get(0));
+			System.out.println(result);
+			return result;
+		} finally {
+			try {
+				profile.drop(factory);
+			} finally {
+				OGlobalConfiguration.RID_BAG_EMBEDDED_TO_SBTREEBONSAI_THRESHOLD.setValue(previousThreshold);
+			}
+		}
+	}
+
+	private Sample sample(OrientGraphFactory factory, Object categoryId, int degree, LatencyHistogram latency) {
+		OrientGraph tx = factory.getTx();
+		long recordBytes;
+		try {
+			ODocument record = ((OrientVertex) tx.getVertex(categoryId)).getRecord();
+			recordBytes = record.toStream().length;
+		} finally {
+			tx.shutdown();
+		}
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		long heapBytes = runtime.totalMemory() - runtime.freeMemory();
+		return new Sample(degree, latency.getPercentileMs(50), latency.getPercentileMs(99), LatencyHistogram.toMs(latency.getMax()), recordBytes,
+			heapBytes, profile.getDiskUsage(dbName));
+	}
+
+	private long degree(OrientGraphFactory factory, Object categoryId) {
+		OrientGraph tx = factory.getTx();
+		try {
+			return ((OrientVertex) tx.getVertex(categoryId)).countEdges(Direction.OUT, HAS_PRODUCT);
+		} finally {
+			tx.shutdown();
+		}
+	}
+
+	/**
+	 * Create the report of the samples of the results.
+	 *
+	 * @param results
+	 * @return
+	 */
+	public static SampleReport report(List<Result> results) {
+		SampleReport report = new SampleReport()
+			.addColumn("mode", "%-20s")
+			.addColumn("threshold", "%11d")
+			.addColumn("degree", "%10d")
+			.addColumn("p50 ms", "%10.2f")
+			.addColumn("p99 ms", "%10.2f")
+			.addColumn("max ms", "%10.2f")
+			.addColumn("record bytes", "%14d")
+			.addColumn("heap bytes", "%14d")
+			.addColumn("disk bytes", "%14d");
+		for (Result result : results) {
+			for (Sample sample : result.getSamples()) {
+				report.addRow(result.getMode().getName(), result.getMode().getThreshold(), sample.getDegree(), sample.getP50Ms(), sample.getP99Ms(),
+					sample.getMaxMs(), sample.getRecordBytes(), sample.getHeapBytes(), sample.getDiskBytes());
+			}
+		}
+		return report;
+	}
+
+	/**
+	 * Ridbag configuration of a run. OrientDB converts an embedded ridbag into a tree-based ridbag once its size exceeds the threshold. The
+	 * threshold is global, but since it applies to each ridbag individually a moderate threshold adapts to the degree of the vertices: low
+	 * degree vertices keep their edges embedded while the supernodes switch to the tree.
+	 */
+	public static class RidBagMode {
+
+		private final String name;
+
+		private final int threshold;
+
+		public RidBagMode(String name, int threshold) {
+			this.name = name;
+			this.threshold = threshold;
+		}
+
+		/**
+		 * Keep all edges embedded in the vertex record, like {@code AbstractClusterTest.initDB}.
+		 *
+		 * @return
+		 */
+		public static RidBagMode embedded() {
+			return new RidBagMode("embedded", Integer.MAX_VALUE);
+		}
+
+		/**
+		 * Always use the tree-based (SBTree bonsai) ridbag.
+		 *
+		 * @return
+		 */
+		public static RidBagMode sbtree() {
+			return new RidBagMode("sbtree", -1);
+		}
+
+		/**
+		 * Switch to the tree-based ridbag when a ridbag exceeds the threshold.
+		 *
+		 * @param threshold
+		 * @return
+		 */
+		public static RidBagMode adaptive(int threshold) {
+			return new RidBagMode("adaptive-" + threshold, threshold);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getThreshold() {
+			return threshold;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	/**
+	 * Measurement after a sample interval.
+	 */
+	public static class Sample {
+
+		private final int degree;
+
+		private final double p50Ms;
+
+		private final double p99Ms;
+
+		private final double maxMs;
+
+		private final long recordBytes;
+
+		private final long heapBytes;
+
+		private final long diskBytes;
+
+		public Sample(int degree, double p50Ms, double p99Ms, double maxMs, long recordBytes, long heapBytes, long diskBytes) {
+			this.degree = degree;
+			this.p50Ms = p50Ms;
+			this.p99Ms = p99Ms;
+			this.maxMs = maxMs;
+			this.recordBytes = recordBytes;
+			this.heapBytes = heapBytes;
+			this.diskBytes = diskBytes;
+		}
+
+		/**
+		 * Return the degree of the categories when the sample was taken.
+		 *
+		 * @return
+		 */
+		public int getDegree() {
+			return degree;
+		}
+
+		/**
+		 * Return the median latency of the product inserts of the interval.
+		 *
+		 * @return
+		 */
+		public double getP50Ms() {
+			return p50Ms;
+		}
+
+		public double getP99Ms() {
+			return p99Ms;
+		}
+
+		public double getMaxMs() {
+			return maxMs;
+		}
+
+		/**
+		 * Return the serialized size of a category record.
+		 *
+		 * @return
+		 */
+		public long getRecordBytes() {
+			return recordBytes;
+		}
+
+		/**
+		 * Return the used heap after a GC. The value is only an approximation.
+		 *
+		 * @return
+		 */
+		public long getHeapBytes() {
+			return heapBytes;
+		}
+
+		public long getDiskBytes() {
+			return diskBytes;
+		}
+	}
+
+	/**
+	 * Samples of a run.
+	 */
+	public static class Result {
+
+		private final RidBagMode mode;
+
+		private final List<Sample> samples = new ArrayList<>();
+
+		private long durationMs;
+
+		private long finalDegree;
+
+		public Result(RidBagMode mode) {
+			this.mode = mode;
+		}
+
+		public RidBagMode getMode() {
+			return mode;
+		}
+
+		public List<Sample> getSamples() {
+			return samples;
+		}
+
+		public long getDurationMs() {
+			return durationMs;
+		}
+
+		/**
+		 * Return the amount of edges of a category after the run.
+		 *
+		 * @return
+		 */
+		public long getFinalDegree() {
+			return finalDegree;
+		}
+
+		@Override
+		public String toString() {
+			return "Supernode workload with ridbag mode {" + mode + "} took " + durationMs + " ms, final degree " + finalDegree;
+		}
+	}
+
+}
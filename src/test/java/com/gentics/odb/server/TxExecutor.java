@@ -0,0 +1,244 @@
+package com.gentics.odb.server;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.gentics.odb.LatencyHistogram;
+import com.orientechnologies.common.concur.ONeedRetryException;
+import com.orientechnologies.orient.core.exception.OConcurrentCreateException;
+import com.orientechnologies.orient.core.exception.OConcurrentModificationException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+
+/**
+ * Executes graph transactions and retries them when the commit fails with a retryable conflict ({@link ONeedRetryException}). The retries
+ * are delayed by an exponential backoff with full jitter. The executor records the latency of each named transaction and counts the
+ * conflicts per class of the conflicting record.
+ */
+public class TxExecutor {
+
+	public static final String DEFAULT_NAME = "tx";
+
+	private static final String UNKNOWN_CLASS = "unknown";
+
+	private final Supplier<OrientGraph> txProvider;
+
+	private int maxRetries = 10;
+
+	private long baseBackoffMs = 1;
+
+	private long maxBackoffMs = 100;
+
+	private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+	private final Map<String, LongAdder> conflicts = new ConcurrentHashMap<>();
+
+	private final LongAdder commits = new LongAdder();
+
+	private final LongAdder retries = new LongAdder();
+
+	private final LongAdder failures = new LongAdder();
+
+	private final LatencyHistogram commitLatency = new LatencyHistogram();
+
+	public TxExecutor(Supplier<OrientGraph> txProvider) {
+		this.txProvider = txProvider;
+	}
+
+	/**
+	 * Set the amount of retries after the first attempt failed with a conflict.
+	 *
+	 * @param maxRetries
+	 * @return Fluent API
+	 */
+	public TxExecutor setMaxRetries(int maxRetries) {
+		this.maxRetries = maxRetries;
+		return this;
+	}
+
+	/**
+	 * Set the backoff range. The n-th retry waits a random time between 0 and min(maxBackoffMs, baseBackoffMs * 2^n).
+	 *
+	 * @param baseBackoffMs
+	 * @param maxBackoffMs
+	 * @return Fluent API
+	 */
+	public TxExecutor setBackoff(long baseBackoffMs, long maxBackoffMs) {
+		this.baseBackoffMs = baseBackoffMs;
+		this.maxBackoffMs = maxBackoffMs;
+		return this;
+	}
+
+	/**
+	 * Execute the handler in a transaction and return its result.
+	 *
+	 * @param handler
+	 * @return
+	 */
+	public <T> T execute(Function<OrientBaseGraph, T> handler) {
+		return execute(DEFAULT_NAME, handler);
+	}
+
+	/**
+	 * Execute the handler in a transaction.
+	 *
+	 * @param handler
+	 */
+	public void run(Consumer<OrientBaseGraph> handler) {
+		run(DEFAULT_NAME, handler);
+	}
+
+	/**
+	 * Execute the handler in a transaction. The latency is recorded for the given transaction name.
+	 *
+	 * @param name
+	 * @param handler
+	 */
+	public void run(String name, Consumer<OrientBaseGraph> handler) {
+		execute(name, tx -> {
+			handler.accept(tx);
+			return null;
+		});
+	}
+
+	/**
+	 * Execute the handler in a transaction and return its result. The handler will be invoked again in a new transaction when the commit
+	 * failed with a retryable conflict. The latency including all retries is recorded for the given transaction name.
+	 *
+	 * @param name
+	 * @param handler
+	 * @return
+	 */
+	public <T> T execute(String name, Function<OrientBaseGraph, T> handler) {
+		long start = System.nanoTime();
+		for (int attempt = 0;; attempt++) {
+			OrientGraph tx = txProvider.get();
+			try {
+				T result = handler.apply(tx);
+				long commitStart = System.nanoTime();
+				tx.commit();
+				commitLatency.recordSince(commitStart);
+				commits.increment();
+				latencies.computeIfAbsent(name, k -> new LatencyHistogram()).recordSince(start);
+				return result;
+			} catch (RuntimeException e) {
+				tx.rollback();
+				ONeedRetryException conflict = findRetryable(e);
+				if (conflict != null) {
+					conflicts.computeIfAbsent(conflictClass(tx, conflict), k -> new LongAdder()).increment();
+				}
+				if (conflict == null || attempt >= maxRetries) {
+					failures.increment();
+					throw e;
+				}
+			} finally {
+				tx.shutdown();
+			}
+			retries.increment();
+			backoff(attempt);
+		}
+	}
+
+	private void backoff(int attempt) {
+		long bound = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempt, 20));
+		if (bound <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for the retry", e);
+		}
+	}
+
+	private static ONeedRetryException findRetryable(Throwable e) {
+		for (Throwable t = e; t != null; t = t.getCause()) {
+			if (t instanceof ONeedRetryException) {
+				return (ONeedRetryException) t;
+			}
+			if (t.getCause() == t) {
+				break;
+			}
+		}
+		return null;
+	}
+
+	private static String conflictClass(OrientBaseGraph tx, ONeedRetryException conflict) {
+		ORID rid = null;
+		if (conflict instanceof OConcurrentModificationException) {
+			rid = ((OConcurrentModificationException) conflict).getRid();
+		} else if (conflict instanceof OConcurrentCreateException) {
+			rid = ((OConcurrentCreateException) conflict).getExpectedRid();
+		}
+		if (rid == null) {
+			return UNKNOWN_CLASS;
+		}
+		OClass clazz = tx.getRawGraph().getMetadata().getSchema().getClassByClusterId(rid.getClusterId());
+		return clazz == null ? UNKNOWN_CLASS : clazz.getName();
+	}
+
+	/**
+	 * Return the latency histograms per transaction name.
+	 *
+	 * @return
+	 */
+	public Map<String, LatencyHistogram> getLatencies() {
+		return new TreeMap<>(latencies);
+	}
+
+	/**
+	 * Return the amount of conflicts per class of the conflicting record.
+	 *
+	 * @return
+	 */
+	public Map<String, Long> getConflicts() {
+		Map<String, Long> result = new TreeMap<>();
+		conflicts.forEach((k, v) -> result.put(k, v.sum()));
+		return result;
+	}
+
+	/**
+	 * Return the latency of the successful commits without the execution of the handlers.
+	 *
+	 * @return
+	 */
+	public LatencyHistogram getCommitLatency() {
+		return commitLatency;
+	}
+
+	public long getCommits() {
+		return commits.sum();
+	}
+
+	public long getRetries() {
+		return retries.sum();
+	}
+
+	/**
+	 * Return the amount of transactions which failed with a non-retryable error or ran out of retries.
+	 *
+	 * @return
+	 */
+	public long getFailures() {
+		return failures.sum();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("Transactions: %d committed, %d retries, %d failed%n", getCommits(), getRetries(), getFailures()));
+		getLatencies().forEach((name, histogram) -> builder.append(String.format("  %-20s %s%n", name, histogram)));
+		builder.append("Conflicts per class: ").append(getConflicts());
+		return builder.toString();
+	}
+
+}
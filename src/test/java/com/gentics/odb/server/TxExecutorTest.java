@@ -0,0 +1,105 @@
+package com.gentics.odb.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gentics.odb.AbstractOrientTest;
+import com.gentics.odb.StorageProfile;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+
+public class TxExecutorTest extends AbstractOrientTest {
+
+	private static final String COUNTER = "Counter";
+
+	private static final int THREADS = 4;
+
+	private static final int INCREMENTS = 100;
+
+	private OrientGraphFactory factory;
+
+	private Object counterId;
+
+	@Before
+	public void setupDB() {
+		factory = StorageProfile.current().createFactory("tinkerpop" + System.currentTimeMillis());
+		addVertexType(factory::getNoTx, COUNTER, null, null);
+		counterId = new TxExecutor(factory::getTx).execute(tx -> {
+			Vertex v = tx.addVertex("class:" + COUNTER);
+			v.setProperty("value", 0);
+			return v.getId();
+		});
+	}
+
+	@After
+	public void closeDB() {
+		StorageProfile.current().drop(factory);
+	}
+
+	@Test
+	public void testRetryConflicts() throws Exception {
+		TxExecutor executor = new TxExecutor(factory::getTx).setMaxRetries(1_000).setBackoff(1, 10);
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			futures.add(pool.submit(() -> {
+				for (int i = 0; i < INCREMENTS; i++) {
+					executor.run("increment", tx -> {
+						Vertex counter = tx.getVertex(counterId);
+						int value = counter.getProperty("value");
+						// Widen the window between read and commit to provoke conflicts
+						Thread.yield();
+						counter.setProperty("value", value + 1);
+					});
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get(60, TimeUnit.SECONDS);
+		}
+		pool.shutdown();
+		System.out.println(executor);
+
+		int value = executor.execute(tx -> tx.getVertex(counterId).getProperty("value"));
+		assertEquals("No increment must be lost", THREADS * INCREMENTS, value);
+		assertEquals(THREADS * INCREMENTS + 1, executor.getCommits());
+		assertEquals(0, executor.getFailures());
+		assertEquals(THREADS * INCREMENTS, executor.getLatencies().get("increment").getCount());
+		long conflicts = executor.getConflicts().getOrDefault(COUNTER, 0L);
+		assertEquals(executor.getRetries(), conflicts);
+	}
+
+	@Test
+	public void testNoRetryForOtherErrors() {
+		TxExecutor executor = new TxExecutor(factory::getTx);
+		AtomicInteger attempts = new AtomicInteger();
+		try {
+			executor.run(tx -> {
+				attempts.incrementAndGet();
+				tx.getVertex(counterId).setProperty("value", -1);
+				throw new IllegalStateException("failure");
+			});
+			fail("The error should be thrown");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertEquals(1, attempts.get());
+		assertEquals(1, executor.getFailures());
+		assertEquals(0, executor.getRetries());
+		int value = executor.execute(tx -> tx.getVertex(counterId).getProperty("value"));
+		assertEquals("The change must be rolled back", 0, value);
+	}
+
+}
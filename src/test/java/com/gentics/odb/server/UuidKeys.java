@@ -0,0 +1,239 @@
+package com.gentics.odb.server;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.gentics.odb.UuidGenerator;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.index.OCompositeKey;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+import com.tinkerpop.blueprints.impls.orient.OrientVertexType;
+
+/**
+ * Binary uuid keys. Instead of the 32 character hex string of {@link AbstractClusterTest#uuidTypeModifier()}, the uuid is stored as two
+ * {@link OType#LONG} properties which are indexed by a composite unique hash index. The helpers accept and return the hex form, so callers
+ * keep working with the string ids.
+ */
+public final class UuidKeys {
+
+	public static final String UUID_KEY = "uuid";
+
+	public static final String MSB_KEY = "uuidMsb";
+
+	public static final String LSB_KEY = "uuidLsb";
+
+	private UuidKeys() {
+	}
+
+	/**
+	 * Return the name of the binary uuid index of the type.
+	 *
+	 * @param typeName
+	 * @return
+	 */
+	public static String indexName(String typeName) {
+		return (typeName + "_uuid_bin").toLowerCase();
+	}
+
+	/**
+	 * Return the name of the string uuid index which is created by {@link AbstractClusterTest#uuidTypeModifier()}.
+	 *
+	 * @param typeName
+	 * @return
+	 */
+	public static String stringIndexName(String typeName) {
+		return (typeName + "_uuid").toLowerCase();
+	}
+
+	/**
+	 * Return the modifier which adds the string uuid property and index to a vertex type.
+	 *
+	 * @return
+	 */
+	public static Consumer<OrientVertexType> stringUuidTypeModifier() {
+		return type -> {
+			type.createProperty(UUID_KEY, OType.STRING);
+			type.createIndex(stringIndexName(type.getName()), OClass.INDEX_TYPE.UNIQUE_HASH_INDEX.toString(), null,
+				new ODocument().fields("ignoreNullValues", true), new String[] { UUID_KEY });
+		};
+	}
+
+	/**
+	 * Return the modifier which adds the binary uuid properties and index to a vertex type.
+	 *
+	 * @return
+	 */
+	public static Consumer<OrientVertexType> binaryUuidTypeModifier() {
+		return type -> addBinaryUuid(type);
+	}
+
+	private static void addBinaryUuid(OClass type) {
+		if (type.getProperty(MSB_KEY) == null) {
+			type.createProperty(MSB_KEY, OType.LONG);
+		}
+		if (type.getProperty(LSB_KEY) == null) {
+			type.createProperty(LSB_KEY, OType.LONG);
+		}
+		if (type.getClassIndex(indexName(type.getName())) == null) {
+			type.createIndex(indexName(type.getName()), OClass.INDEX_TYPE.UNIQUE_HASH_INDEX.toString(), null,
+				new ODocument().fields("ignoreNullValues", true), new String[] { MSB_KEY, LSB_KEY });
+		}
+	}
+
+	/**
+	 * Set the binary uuid of the element.
+	 *
+	 * @param element
+	 * @param uuid
+	 *            Hex uuid
+	 */
+	public static void setUuid(Element element, String uuid) {
+		element.setProperty(MSB_KEY, parseMsb(uuid));
+		element.setProperty(LSB_KEY, parseLsb(uuid));
+	}
+
+	/**
+	 * Return the binary uuid of the element in the hex form.
+	 *
+	 * @param element
+	 * @return Hex uuid or null when the element has no binary uuid
+	 */
+	public static String getUuid(Element element) {
+		Long msb = element.getProperty(MSB_KEY);
+		Long lsb = element.getProperty(LSB_KEY);
+		if (msb == null || lsb == null) {
+			return null;
+		}
+		return toHex(msb, lsb);
+	}
+
+	/**
+	 * Lookup the vertex via the binary uuid index.
+	 *
+	 * @param tx
+	 * @param typeName
+	 * @param uuid
+	 *            Hex uuid
+	 * @return Vertex or null
+	 */
+	@SuppressWarnings("deprecation")
+	public static Vertex findByUuid(OrientBaseGraph tx, String typeName, String uuid) {
+		OIndex index = tx.getRawGraph().getMetadata().getIndexManager().getIndex(indexName(typeName));
+		if (index == null) {
+			throw new IllegalArgumentException("Type {" + typeName + "} has no binary uuid index");
+		}
+		Object id = index.get(new OCompositeKey(parseMsb(uuid), parseLsb(uuid)));
+		return id == null ? null : tx.getVertex(((OIdentifiable) id).getIdentity());
+	}
+
+	/**
+	 * Return the most significant bits of the hex uuid.
+	 *
+	 * @param uuid
+	 * @return
+	 */
+	public static long parseMsb(String uuid) {
+		checkLength(uuid);
+		return parseHex(uuid, 0);
+	}
+
+	/**
+	 * Return the least significant bits of the hex uuid.
+	 *
+	 * @param uuid
+	 * @return
+	 */
+	public static long parseLsb(String uuid) {
+		checkLength(uuid);
+		return parseHex(uuid, 16);
+	}
+
+	/**
+	 * Return the hex form of the uuid.
+	 *
+	 * @param msb
+	 * @param lsb
+	 * @return
+	 */
+	public static String toHex(long msb, long lsb) {
+		char[] buffer = new char[UuidGenerator.LENGTH];
+		UuidGenerator.writeHex(buffer, 0, msb, lsb);
+		return new String(buffer);
+	}
+
+	private static void checkLength(String uuid) {
+		if (uuid.length() != UuidGenerator.LENGTH) {
+			throw new IllegalArgumentException("Invalid uuid {" + uuid + "}");
+		}
+	}
+
+	private static long parseHex(String uuid, int offset) {
+		long value = 0;
+		for (int i = offset; i < offset + 16; i++) {
+			int digit = Character.digit(uuid.charAt(i), 16);
+			if (digit < 0) {
+				throw new IllegalArgumentException("Invalid uuid {" + uuid + "}");
+			}
+			value = (value << 4) | digit;
+		}
+		return value;
+	}
+
+	/**
+	 * Migrate a type with string uuids to binary uuids. The binary properties and index are added, the binary uuids of all vertices are
+	 * written in batches via {@link ClassScan}. When requested, the string property and its index are removed afterwards. The migration can
+	 * be repeated after a failure since vertices which already have a binary uuid are only updated again.
+	 *
+	 * @param txProvider
+	 * @param noTxProvider
+	 * @param typeName
+	 * @param batchSize
+	 * @param dropStringUuid
+	 *            Whether the string uuid property and index should be removed
+	 * @return Amount of migrated vertices
+	 */
+	public static long migrate(Supplier<OrientGraph> txProvider, Supplier<OrientGraphNoTx> noTxProvider, String typeName, int batchSize,
+		boolean dropStringUuid) {
+		OrientGraphNoTx noTx = noTxProvider.get();
+		try {
+			addBinaryUuid(noTx.getRawGraph().getMetadata().getSchema().getClass(typeName));
+		} finally {
+			noTx.shutdown();
+		}
+
+		long migrated = new ClassScan(txProvider, typeName).setBatchSize(batchSize).setPolymorphic(false).run((tx, element) -> {
+			String uuid = element.getProperty(UUID_KEY);
+			if (uuid != null) {
+				setUuid(element, uuid);
+				if (dropStringUuid) {
+					element.removeProperty(UUID_KEY);
+				}
+			}
+		});
+
+		if (dropStringUuid) {
+			noTx = noTxProvider.get();
+			try {
+				OClass type = noTx.getRawGraph().getMetadata().getSchema().getClass(typeName);
+				if (type.getClassIndex(stringIndexName(typeName)) != null) {
+					noTx.getRawGraph().getMetadata().getIndexManager().dropIndex(stringIndexName(typeName));
+				}
+				if (type.getProperty(UUID_KEY) != null) {
+					type.dropProperty(UUID_KEY);
+				}
+			} finally {
+				noTx.shutdown();
+			}
+		}
+		return migrated;
+	}
+
+}
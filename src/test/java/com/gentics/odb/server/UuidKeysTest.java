@@ -0,0 +1,159 @@
+package com.gentics.odb.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gentics.odb.AbstractOrientTest;
+import com.gentics.odb.StorageProfile;
+import com.gentics.odb.Utils;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.orient.core.index.OCompositeKey;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.serialization.serializer.binary.OBinarySerializerFactory;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OCompositeKeySerializer;
+import com.orientechnologies.orient.core.storage.ORecordDuplicatedException;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
+
+public class UuidKeysTest extends AbstractOrientTest {
+
+	private static final String PRODUCT = "Product";
+
+	private static final String LEGACY_PRODUCT = "LegacyProduct";
+
+	private static final int RECORDS = 2_000;
+
+	private OrientGraphFactory factory;
+
+	@Before
+	public void setupDB() {
+		factory = StorageProfile.current().createFactory("tinkerpop" + System.currentTimeMillis());
+		addVertexType(factory::getNoTx, PRODUCT, null, UuidKeys.binaryUuidTypeModifier());
+		addVertexType(factory::getNoTx, LEGACY_PRODUCT, null, UuidKeys.stringUuidTypeModifier());
+	}
+
+	@After
+	public void closeDB() {
+		StorageProfile.current().drop(factory);
+	}
+
+	@Test
+	public void testHexConversion() {
+		for (int i = 0; i < 1_000; i++) {
+			String uuid = Utils.randomUUID();
+			assertEquals(uuid, UuidKeys.toHex(UuidKeys.parseMsb(uuid), UuidKeys.parseLsb(uuid)));
+		}
+		assertEquals("ffffffffffffffff0000000000000001", UuidKeys.toHex(-1, 1));
+		assertEquals(-1, UuidKeys.parseMsb("FFFFFFFFFFFFFFFF0000000000000001"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidLength() {
+		UuidKeys.parseMsb("1234");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDigit() {
+		UuidKeys.parseLsb("ffffffffffffffff000000000000000x");
+	}
+
+	@Test
+	public void testLookup() {
+		List<String> uuids = new ArrayList<>();
+		new BulkLoader(factory::getTx, 1, 500).load(RECORDS, (tx, i) -> {
+			String uuid = Utils.randomUUID();
+			Vertex product = tx.addVertex("class:" + PRODUCT);
+			UuidKeys.setUuid(product, uuid);
+			product.setProperty("index", i);
+			synchronized (uuids) {
+				uuids.add(uuid);
+			}
+		});
+
+		OrientGraph tx = factory.getTx();
+		try {
+			for (String uuid : uuids) {
+				Vertex product = UuidKeys.findByUuid(tx, PRODUCT, uuid);
+				assertNotNull(product);
+				assertEquals(uuid, UuidKeys.getUuid(product));
+			}
+			assertNull(UuidKeys.findByUuid(tx, PRODUCT, Utils.randomUUID()));
+		} finally {
+			tx.shutdown();
+		}
+	}
+
+	@Test(expected = ORecordDuplicatedException.class)
+	public void testUnique() {
+		String uuid = Utils.randomUUID();
+		OrientGraph tx = factory.getTx();
+		try {
+			UuidKeys.setUuid(tx.addVertex("class:" + PRODUCT), uuid);
+			UuidKeys.setUuid(tx.addVertex("class:" + PRODUCT), uuid);
+			tx.commit();
+		} finally {
+			tx.shutdown();
+		}
+	}
+
+	@Test
+	public void testMigration() {
+		List<String> uuids = new ArrayList<>();
+		new BulkLoader(factory::getTx, 1, 500).load(RECORDS, (tx, i) -> {
+			String uuid = Utils.randomUUID();
+			tx.addVertex("class:" + LEGACY_PRODUCT).setProperty(UuidKeys.UUID_KEY, uuid);
+			synchronized (uuids) {
+				uuids.add(uuid);
+			}
+		});
+
+		long migrated = UuidKeys.migrate(factory::getTx, factory::getNoTx, LEGACY_PRODUCT, 300, true);
+		assertEquals(RECORDS, migrated);
+
+		OrientGraphNoTx noTx = factory.getNoTx();
+		try {
+			assertNull(noTx.getRawGraph().getMetadata().getIndexManager().getIndex(UuidKeys.stringIndexName(LEGACY_PRODUCT)));
+			assertNull(noTx.getVertexType(LEGACY_PRODUCT).getProperty(UuidKeys.UUID_KEY));
+		} finally {
+			noTx.shutdown();
+		}
+
+		OrientGraph tx = factory.getTx();
+		try {
+			for (String uuid : uuids) {
+				Vertex product = UuidKeys.findByUuid(tx, LEGACY_PRODUCT, uuid);
+				assertNotNull(product);
+				assertNull(product.getProperty(UuidKeys.UUID_KEY));
+			}
+		} finally {
+			tx.shutdown();
+		}
+	}
+
+	/**
+	 * The hash index files are preallocated, so the gain is measured on the serialized keys which fill the index buckets.
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testKeySize() {
+		String uuid = Utils.randomUUID();
+		OBinarySerializer<String> stringSerializer = OBinarySerializerFactory.getInstance().getObjectSerializer(OType.STRING);
+		int stringBytes = stringSerializer.getObjectSize(uuid);
+		int binaryBytes = OCompositeKeySerializer.INSTANCE.getObjectSize(new OCompositeKey(UuidKeys.parseMsb(uuid), UuidKeys.parseLsb(uuid)),
+			(Object[]) new OType[] { OType.LONG, OType.LONG });
+		System.out.println("String uuid key: " + stringBytes + " bytes, binary uuid key: " + binaryBytes + " bytes");
+		assertTrue("The binary key must be at most half of the string key", binaryBytes * 2 <= stringBytes);
+	}
+
+}
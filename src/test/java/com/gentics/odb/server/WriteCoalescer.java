@@ -0,0 +1,367 @@
+package com.gentics.odb.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.gentics.odb.LatencyHistogram;
+import com.orientechnologies.common.concur.ONeedRetryException;
+import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+
+/**
+ * Coalesces small write operations of many producer threads into a few larger transactions (group commit). A writer thread collects the
+ * submitted mutations until the batch size is reached or the time window is over and applies them in a single transaction.
+ *
+ * Every caller gets a future with the outcome of its own mutation:
+ * <ul>
+ * <li>When a mutation throws, the transaction is rolled back, the future of the mutation fails and the other mutations are applied
+ * again.</li>
+ * <li>When the commit fails, the batch is split in halves which are committed separately until the conflicting mutation is isolated.
+ * Single mutations which fail with a retryable conflict are retried.</li>
+ * </ul>
+ * Mutations may therefore be executed more than once and must not have side effects outside of the transaction. The results must not
+ * reference elements of the transaction since the transaction is closed when the future completes.
+ */
+public class WriteCoalescer implements AutoCloseable {
+
+	private final Supplier<OrientGraph> txProvider;
+
+	private int batchSize = 100;
+
+	private long windowMs = 5;
+
+	private int maxRetries = 10;
+
+	private BlockingQueue<Mutation<?>> queue;
+
+	private Thread writer;
+
+	private volatile boolean running;
+
+	private final LongAdder batches = new LongAdder();
+
+	private final LongAdder committed = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	private final LongAdder splits = new LongAdder();
+
+	private final LongAdder retries = new LongAdder();
+
+	private final LatencyHistogram commitLatency = new LatencyHistogram();
+
+	private final LatencyHistogram mutationLatency = new LatencyHistogram();
+
+	public WriteCoalescer(Supplier<OrientGraph> txProvider) {
+		this.txProvider = txProvider;
+	}
+
+	/**
+	 * Set the maximum amount of mutations per transaction.
+	 *
+	 * @param batchSize
+	 * @return Fluent API
+	 */
+	public WriteCoalescer setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * Set the time which the writer waits for more mutations after the first mutation of a batch was received.
+	 *
+	 * @param windowMs
+	 * @return Fluent API
+	 */
+	public WriteCoalescer setWindowMs(long windowMs) {
+		this.windowMs = windowMs;
+		return this;
+	}
+
+	/**
+	 * Set the amount of retries for single mutations which fail with a retryable conflict.
+	 *
+	 * @param maxRetries
+	 * @return Fluent API
+	 */
+	public WriteCoalescer setMaxRetries(int maxRetries) {
+		this.maxRetries = maxRetries;
+		return this;
+	}
+
+	/**
+	 * Start the writer thread. Producers block when the queue, which holds ten batches, is full.
+	 *
+	 * @return Fluent API
+	 */
+	public synchronized WriteCoalescer start() {
+		if (running) {
+			throw new IllegalStateException("The coalescer is already running");
+		}
+		queue = new ArrayBlockingQueue<>(batchSize * 10);
+		running = true;
+		writer = new Thread(this::writeLoop, "write-coalescer");
+		writer.start();
+		return this;
+	}
+
+	/**
+	 * Submit the mutation. The future completes with the result of the mutation once the transaction which contains it was committed.
+	 *
+	 * @param mutation
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public <T> CompletableFuture<T> submit(Function<OrientBaseGraph, T> mutation) throws InterruptedException {
+		if (!running) {
+			throw new IllegalStateException("The coalescer is not running");
+		}
+		Mutation<T> entry = new Mutation<>(mutation);
+		queue.put(entry);
+		// The writer may have stopped while the entry was put. Fail the entry unless the writer already took it.
+		if (!running && queue.remove(entry)) {
+			entry.fail(new IllegalStateException("The coalescer was closed"));
+		}
+		return entry.future;
+	}
+
+	/**
+	 * Submit the mutation. The future completes once the transaction which contains it was committed.
+	 *
+	 * @param mutation
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public CompletableFuture<Void> execute(Consumer<OrientBaseGraph> mutation) throws InterruptedException {
+		return submit(tx -> {
+			mutation.accept(tx);
+			return null;
+		});
+	}
+
+	private void writeLoop() {
+		List<Mutation<?>> batch = new ArrayList<>(batchSize);
+		try {
+			while (running || !queue.isEmpty()) {
+				Mutation<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMs);
+				while (batch.size() < batchSize) {
+					long remaining = deadline - System.nanoTime();
+					Mutation<?> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+				batches.increment();
+				try {
+					apply(batch, 0);
+				} catch (RuntimeException e) {
+					// E.g. no transaction could be opened. Only the mutations of this batch fail.
+					batch.forEach(m -> m.fail(e));
+				} finally {
+					batch.clear();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			// Stop accepting mutations before the queue is drained, otherwise producers could wait forever
+			running = false;
+			RuntimeException closed = new IllegalStateException("The coalescer was closed");
+			batch.forEach(m -> m.fail(closed));
+			Mutation<?> pending;
+			while ((pending = queue.poll()) != null) {
+				pending.fail(closed);
+			}
+		}
+	}
+
+	/**
+	 * Apply the mutations in one transaction and complete the futures.
+	 *
+	 * @param batch
+	 * @param attempt
+	 *            Retry of a single mutation
+	 */
+	private void apply(List<Mutation<?>> batch, int attempt) {
+		List<Mutation<?>> remaining = new ArrayList<>(batch.size());
+		boolean mutationFailed = false;
+		RuntimeException commitError = null;
+		long start = System.nanoTime();
+		OrientGraph tx = txProvider.get();
+		try {
+			for (Mutation<?> mutation : batch) {
+				try {
+					mutation.apply(tx);
+					remaining.add(mutation);
+				} catch (RuntimeException e) {
+					mutation.fail(e);
+					mutationFailed = true;
+				}
+			}
+			if (mutationFailed) {
+				tx.rollback();
+			} else {
+				try {
+					tx.commit();
+					commitLatency.recordSince(start);
+				} catch (RuntimeException e) {
+					tx.rollback();
+					commitError = e;
+				}
+			}
+		} finally {
+			tx.shutdown();
+		}
+
+		if (mutationFailed) {
+			// Apply the other mutations again without the failed ones
+			if (!remaining.isEmpty()) {
+				apply(remaining, attempt);
+			}
+		} else if (commitError == null) {
+			for (Mutation<?> mutation : batch) {
+				mutation.complete();
+			}
+		} else if (batch.size() > 1) {
+			// Isolate the conflicting mutation
+			splits.increment();
+			int half = batch.size() / 2;
+			apply(new ArrayList<>(batch.subList(0, half)), 0);
+			apply(new ArrayList<>(batch.subList(half, batch.size())), 0);
+		} else if (isRetryable(commitError) && attempt < maxRetries) {
+			retries.increment();
+			backoff(attempt);
+			apply(batch, attempt + 1);
+		} else {
+			batch.get(0).fail(commitError);
+		}
+	}
+
+	private static boolean isRetryable(Throwable e) {
+		for (Throwable t = e; t != null && t.getCause() != t; t = t.getCause()) {
+			if (t instanceof ONeedRetryException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void backoff(int attempt) {
+		try {
+			Thread.sleep(ThreadLocalRandom.current().nextLong((1L << Math.min(attempt, 6)) + 1));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Stop accepting mutations, apply the queued mutations and stop the writer thread.
+	 */
+	@Override
+	public void close() throws InterruptedException {
+		synchronized (this) {
+			if (!running) {
+				return;
+			}
+			running = false;
+		}
+		writer.join();
+	}
+
+	public long getBatches() {
+		return batches.sum();
+	}
+
+	public long getCommitted() {
+		return committed.sum();
+	}
+
+	public long getFailed() {
+		return failed.sum();
+	}
+
+	/**
+	 * Return how often a batch was split to isolate a failing commit.
+	 *
+	 * @return
+	 */
+	public long getSplits() {
+		return splits.sum();
+	}
+
+	public long getRetries() {
+		return retries.sum();
+	}
+
+	public double getAverageBatchSize() {
+		long b = getBatches();
+		return b == 0 ? 0 : (getCommitted() + getFailed()) / (double) b;
+	}
+
+	public LatencyHistogram getCommitLatency() {
+		return commitLatency;
+	}
+
+	/**
+	 * Return the latency from the submit until the future was completed.
+	 *
+	 * @return
+	 */
+	public LatencyHistogram getMutationLatency() {
+		return mutationLatency;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Coalesced %d mutations (%d failed) into %d batches (avg %.1f), %d splits, %d retries%n  commit   %s%n  mutation %s",
+			getCommitted(), getFailed(), getBatches(), getAverageBatchSize(), getSplits(), getRetries(), commitLatency, mutationLatency);
+	}
+
+	private class Mutation<T> {
+
+		private final Function<OrientBaseGraph, T> function;
+
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+
+		private final long submitted = System.nanoTime();
+
+		private T result;
+
+		Mutation(Function<OrientBaseGraph, T> function) {
+			this.function = function;
+		}
+
+		void apply(OrientBaseGraph tx) {
+			result = function.apply(tx);
+		}
+
+		void complete() {
+			committed.increment();
+			mutationLatency.recordSince(submitted);
+			future.complete(result);
+		}
+
+		void fail(Throwable e) {
+			if (future.completeExceptionally(e)) {
+				failed.increment();
+				mutationLatency.recordSince(submitted);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,230 @@
+package com.gentics.odb.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gentics.odb.AbstractOrientTest;
+import com.gentics.odb.StorageProfile;
+import com.gentics.odb.Utils;
+import com.orientechnologies.orient.core.metadata.schema.OClass.INDEX_TYPE;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.storage.ORecordDuplicatedException;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientGraphFactory;
+
+/**
+ * Compares the throughput of small write transactions with the coalesced writes of the {@link WriteCoalescer}. Use
+ * {@code -Dstorage.profile=plocal} to include the WAL flushes in the measurement.
+ *
+ * Tests can be configured with system properties:
+ * <ul>
+ * <li>{@code coalescer.threads}: Producer threads (default: 8)</li>
+ * <li>{@code coalescer.writes}: Writes per producer (default: 500)</li>
+ * <li>{@code coalescer.batchSize}: Maximum mutations per transaction (default: 100)</li>
+ * </ul>
+ */
+public class WriteCoalescerTest extends AbstractOrientTest {
+
+	private static final String ITEM = "Item";
+
+	private static final int THREADS = Integer.getInteger("coalescer.threads", 8);
+
+	private static final int WRITES = Integer.getInteger("coalescer.writes", 500);
+
+	private static final int BATCH_SIZE = Integer.getInteger("coalescer.batchSize", 100);
+
+	private OrientGraphFactory factory;
+
+	@Before
+	public void setupDB() {
+		factory = StorageProfile.current().createFactory("tinkerpop" + System.currentTimeMillis());
+		addVertexType(factory::getNoTx, ITEM, null, type -> {
+			type.createProperty("uuid", OType.STRING);
+			type.createIndex(ITEM + "_uuid", INDEX_TYPE.UNIQUE_HASH_INDEX, "uuid");
+		});
+	}
+
+	@After
+	public void closeDB() {
+		StorageProfile.current().drop(factory);
+	}
+
+	@Test
+	public void testThroughput() throws Exception {
+		TxExecutor executor = new TxExecutor(factory::getTx);
+		long singleMs = produce(() -> {
+			executor.run(tx -> addItem(tx, Utils.randomUUID()));
+			return null;
+		});
+
+		try (WriteCoalescer coalescer = new WriteCoalescer(factory::getTx).setBatchSize(BATCH_SIZE).start()) {
+			List<CompletableFuture<Void>> futures = new ArrayList<>();
+			long coalescedMs = produce(() -> {
+				CompletableFuture<Void> future = coalescer.execute(tx -> addItem(tx, Utils.randomUUID()));
+				synchronized (futures) {
+					futures.add(future);
+				}
+				return future;
+			});
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+			System.out.println(coalescer);
+
+			int total = THREADS * WRITES;
+			System.out.println(String.format("Single transactions: %d ms (%.0f writes/sec)", singleMs, total * 1000d / singleMs));
+			System.out.println(String.format("Coalesced:           %d ms (%.0f writes/sec)", coalescedMs, total * 1000d / coalescedMs));
+
+			assertEquals(total, coalescer.getCommitted());
+			assertEquals(0, coalescer.getFailed());
+			assertTrue("Writes should have been coalesced", coalescer.getBatches() < total);
+			assertEquals(2 * total, countItems());
+		}
+	}
+
+	@Test
+	public void testFailingMutationIsIsolated() throws Exception {
+		try (WriteCoalescer coalescer = new WriteCoalescer(factory::getTx).setBatchSize(10).setWindowMs(100).start()) {
+			List<CompletableFuture<Object>> futures = new ArrayList<>();
+			for (int i = 0; i < 10; i++) {
+				boolean failing = i % 3 == 0;
+				futures.add(coalescer.submit(tx -> {
+					Vertex v = addItem(tx, Utils.randomUUID());
+					if (failing) {
+						throw new IllegalStateException("failure");
+					}
+					return v.getId();
+				}));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					futures.get(i).get(10, TimeUnit.SECONDS);
+					assertTrue("Mutation " + i + " should have failed", i % 3 != 0);
+				} catch (ExecutionException e) {
+					assertTrue("Mutation " + i + " should have succeeded", i % 3 == 0);
+					assertTrue(e.getCause() instanceof IllegalStateException);
+				}
+			}
+			assertEquals(6, coalescer.getCommitted());
+			assertEquals(4, coalescer.getFailed());
+			assertEquals("The changes of the failed mutations must be rolled back", 6, countItems());
+		}
+	}
+
+	@Test
+	public void testCommitConflictIsIsolated() throws Exception {
+		String duplicate = Utils.randomUUID();
+		try (WriteCoalescer coalescer = new WriteCoalescer(factory::getTx).setBatchSize(8).setWindowMs(100).start()) {
+			List<CompletableFuture<Void>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				String uuid = i == 2 || i == 5 ? duplicate : Utils.randomUUID();
+				futures.add(coalescer.execute(tx -> addItem(tx, uuid)));
+			}
+			int failures = 0;
+			for (CompletableFuture<Void> future : futures) {
+				try {
+					future.get(10, TimeUnit.SECONDS);
+				} catch (ExecutionException e) {
+					assertTrue(e.getCause() instanceof ORecordDuplicatedException);
+					failures++;
+				}
+			}
+			System.out.println(coalescer);
+			assertEquals("Only the duplicate should fail", 1, failures);
+			assertTrue(coalescer.getSplits() > 0);
+			assertEquals(7, countItems());
+		}
+	}
+
+	@Test
+	public void testTxFailureOnlyFailsBatch() throws Exception {
+		AtomicBoolean unavailable = new AtomicBoolean(true);
+		try (WriteCoalescer coalescer = new WriteCoalescer(() -> {
+			if (unavailable.getAndSet(false)) {
+				throw new IllegalStateException("Database is not available");
+			}
+			return factory.getTx();
+		}).start()) {
+			CompletableFuture<Void> first = coalescer.execute(tx -> addItem(tx, Utils.randomUUID()));
+			try {
+				first.get(10, TimeUnit.SECONDS);
+				fail("The mutation of the failed batch should have failed");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof IllegalStateException);
+			}
+			// The writer must keep on running
+			coalescer.execute(tx -> addItem(tx, Utils.randomUUID())).get(10, TimeUnit.SECONDS);
+			assertEquals(1, countItems());
+		}
+	}
+
+	@Test
+	public void testSubmitAfterClose() throws Exception {
+		WriteCoalescer coalescer = new WriteCoalescer(factory::getTx).start();
+		CompletableFuture<Void> future = coalescer.execute(tx -> addItem(tx, Utils.randomUUID()));
+		coalescer.close();
+		assertTrue("Queued mutations must be applied on close", future.isDone() && !future.isCompletedExceptionally());
+		try {
+			coalescer.execute(tx -> addItem(tx, Utils.randomUUID()));
+			fail("The coalescer should reject mutations after close");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Run the producer in all threads and return the duration in milliseconds.
+	 */
+	private long produce(Producer producer) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		long start = System.currentTimeMillis();
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			futures.add(pool.submit(() -> {
+				CompletableFuture<?> last = null;
+				for (int i = 0; i < WRITES; i++) {
+					last = producer.write();
+				}
+				if (last != null) {
+					last.join();
+				}
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get(5, TimeUnit.MINUTES);
+		}
+		pool.shutdown();
+		return System.currentTimeMillis() - start;
+	}
+
+	private Vertex addItem(OrientBaseGraph tx, String uuid) {
+		Vertex v = tx.addVertex("class:" + ITEM);
+		v.setProperty("uuid", uuid);
+		return v;
+	}
+
+	private long countItems() {
+		return new TxExecutor(factory::getTx).execute(tx -> tx.getRawGraph().countClass(ITEM));
+	}
+
+	@FunctionalInterface
+	private interface Producer {
+		CompletableFuture<?> write() throws Exception;
+	}
+
+}